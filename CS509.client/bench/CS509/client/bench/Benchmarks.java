@@ -0,0 +1,31 @@
+package CS509.client.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of target/benchmarks.jar.
+ *
+ * Runs JMH with the GC profiler on, so every result also reports the allocation rate and bytes
+ * allocated per operation. Any JMH option can be given as usual; giving -prof replaces the GC
+ * profiler with the profilers asked for, e.g. -prof stack.
+ *
+ * java -jar target/benchmarks.jar FlightSearchBenchmark
+ *
+ * @author Team C
+ */
+public final class Benchmarks {
+
+	private Benchmarks() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<String> options = new ArrayList<String>(Arrays.asList(args));
+		if (!options.contains("-prof")) {
+			options.add(0, "gc");
+			options.add(0, "-prof");
+		}
+		org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+	}
+}
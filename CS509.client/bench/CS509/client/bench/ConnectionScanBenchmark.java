@@ -0,0 +1,67 @@
+package CS509.client.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import CS509.client.airport.TimeConversion;
+import CS509.client.driver.ConnectionScan;
+import CS509.client.flight.Flights;
+import CS509.client.util.SyntheticSchedule;
+
+/**
+ * How the Connection Scan search scales with the maximum number of stops.
+ * Run from the project root so timezone.csv can be found.
+ *
+ * @author Team C
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionScanBenchmark {
+
+	@Param({"0", "1", "2", "3", "4"})
+	public int maxStops;
+
+	@Param({"30"})
+	public int airports;
+
+	@Param({"40"})
+	public int flightsPerDay;
+
+	private SyntheticSchedule schedule;
+	private ConnectionScan scan;
+
+	@Setup
+	public void setup() throws IOException {
+		new TimeConversion("timezone.csv");
+		schedule = new SyntheticSchedule(airports, flightsPerDay, 3, 509L);
+		scan = new ConnectionScan(schedule.flights(), schedule.airplanes());
+	}
+
+	@Benchmark
+	public List<Flights> search() {
+		return scan.search(schedule.code(0), schedule.code(1), "2023_05_07", maxStops, 1, true);
+	}
+
+	@Benchmark
+	public List<Flights> buildAndSearch() {
+		ConnectionScan fresh = new ConnectionScan(schedule.flights(), schedule.airplanes());
+		return fresh.search(schedule.code(0), schedule.code(1), "2023_05_07", maxStops, 1, true);
+	}
+}
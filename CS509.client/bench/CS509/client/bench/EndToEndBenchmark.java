@@ -0,0 +1,90 @@
+package CS509.client.bench;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import CS509.client.airport.TimeConversion;
+import CS509.client.dao.ServerInterface;
+import CS509.client.dao.ServerMetrics;
+import CS509.client.dao.StubServer;
+import CS509.client.driver.reservationBuilder;
+import CS509.client.util.SyntheticSchedule;
+
+/**
+ * A whole round trip search over HTTP against a StubServer, with the flight cache emptied before
+ * every search so each one fetches its lists from the server. Sample mode reports the latency
+ * percentiles; run with -t to load the server from several threads, and -p errorRate=0.01 to see
+ * how failed requests affect the client. The client side ServerMetrics are printed at the end.
+ * Run from the project root so timezone.csv can be found.
+ *
+ * @author Team C
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Dcs509.server=http://localhost:" + EndToEndBenchmark.PORT + StubServer.PATH)
+public class EndToEndBenchmark {
+
+	static final int PORT = 8509;
+
+	@Param({"0", "50"})
+	public long latencyMillis;
+
+	@Param({"0"})
+	public double errorRate;
+
+	private SyntheticSchedule schedule;
+	private StubServer server;
+
+	@Setup
+	public void setup() throws IOException {
+		new TimeConversion("timezone.csv");
+		schedule = new SyntheticSchedule(30, 40, 3, 509L);
+		server = new StubServer(schedule, PORT, latencyMillis, latencyMillis / 2, errorRate).start();
+	}
+
+	@Setup(Level.Invocation)
+	public void emptyCache() {
+		ServerInterface.flightCache().invalidateAll();
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.println();
+		System.out.println(server.requests() + " requests, " + server.errors() + " injected errors");
+		ServerMetrics.global().dump(System.out);
+		server.stop();
+	}
+
+	@Benchmark
+	public reservationBuilder roundTrip() throws ParseException, TimeoutException {
+		reservationBuilder builder = new reservationBuilder();
+		builder.setDepartureCode(schedule.code(0));
+		builder.setArrivalCode(schedule.code(1));
+		builder.setDepartureDate(schedule.day(1));
+		builder.setArrivalDate(schedule.day(2));
+		builder.setTripType("round");
+		builder.setSeatClass("coach");
+		builder.searchFlights();
+		builder.makeTrips();
+		return builder;
+	}
+}
@@ -0,0 +1,72 @@
+package CS509.client.bench;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import CS509.client.airport.TimeConversion;
+import CS509.client.driver.FlightSearch;
+import CS509.client.flight.Flights;
+import CS509.client.util.Sp;
+import CS509.client.util.SyntheticSchedule;
+
+/**
+ * FlightSearch no-stop, one-stop and two-stop searches, with the flight lists served in process.
+ * Each search fetches its lists, indexes them and builds the itineraries, as it does for the client.
+ * Run from the project root so timezone.csv can be found.
+ *
+ * @author Team C
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlightSearchBenchmark {
+
+	@Param({"20", "52"})
+	public int airports;
+
+	@Param({"10", "40"})
+	public int flightsPerDay;
+
+	private SyntheticSchedule schedule;
+	private String date;
+
+	@Setup
+	public void setup() throws IOException {
+		new TimeConversion("timezone.csv");
+		schedule = new SyntheticSchedule(airports, flightsPerDay, 3, 509L);
+		date = schedule.day(1);
+		InProcessSource.install(schedule);
+	}
+
+	@Benchmark
+	public List<Flights> noStop() {
+		return FlightSearch.searchFlightsWithNoStop(Sp.TICKET_AGENCY, schedule.code(0), schedule.code(1), date, 1, true);
+	}
+
+	@Benchmark
+	public List<Flights> oneStop() throws ParseException {
+		return FlightSearch.searchFlightsWithOneStop(Sp.TICKET_AGENCY, schedule.code(0), schedule.code(1), date, 1, true);
+	}
+
+	@Benchmark
+	public List<Flights> twoStop() throws ParseException {
+		return FlightSearch.searchFlightsWithTwoStop(Sp.TICKET_AGENCY, schedule.code(0), schedule.code(1), date, 1, true);
+	}
+}
@@ -0,0 +1,102 @@
+package CS509.client.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+import CS509.client.flight.Flight;
+import CS509.client.flight.FlightStore;
+import CS509.client.flight.Flights;
+import CS509.client.util.SyntheticSchedule;
+
+/**
+ * Flights list against the columnar FlightStore: building the store and scanning every flight.
+ *
+ * Running the class directly prints the retained heap of both for a month of flights,
+ * measured with JOL:
+ * java -cp target/benchmarks.jar CS509.client.bench.FlightStoreBenchmark
+ *
+ * @author Team C
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlightStoreBenchmark {
+
+	@Param({"52"})
+	public int airports;
+
+	@Param({"40"})
+	public int flightsPerDay;
+
+	@Param({"26"})
+	public int days;
+
+	private Flights flights;
+	private FlightStore store;
+
+	@Setup
+	public void setup() throws IOException {
+		flights = parsed(airports, flightsPerDay, days);
+		store = FlightStore.of(flights);
+	}
+
+	@Benchmark
+	public FlightStore build() {
+		return FlightStore.of(flights);
+	}
+
+	@Benchmark
+	public long scanFlights() {
+		long seats = 0;
+		for (Flight f : flights) {
+			seats += f.getmSeatsCoach() + (f.getmMinuteArrival() - f.getmMinuteDepart());
+		}
+		return seats;
+	}
+
+	@Benchmark
+	public long scanStore() {
+		long seats = 0;
+		for (int row = 0; row < store.size(); row++) {
+			seats += store.seatsCoach(row) + (store.arriveMinute(row) - store.departMinute(row));
+		}
+		return seats;
+	}
+
+	/**
+	 * Flights as the client holds them after reading the server's XML, so every String is its own copy
+	 */
+	private static Flights parsed(int airports, int flightsPerDay, int days) throws IOException {
+		SyntheticSchedule schedule = new SyntheticSchedule(airports, flightsPerDay, days, 509L);
+		byte[] xml = SyntheticSchedule.toXml(schedule.flights()).getBytes(StandardCharsets.UTF_8);
+		return Flights.addAllf(new ByteArrayInputStream(xml));
+	}
+
+	public static void main(String[] args) throws IOException {
+		Flights flights = parsed(52, 40, 26);
+		FlightStore store = FlightStore.of(flights);
+		long list = GraphLayout.parseInstance(flights).totalSize();
+		long columns = GraphLayout.parseInstance(store).totalSize();
+		System.out.printf("%d flights%n", flights.size());
+		System.out.printf("Flights     %,12d bytes  %6d bytes/flight%n", list, list / flights.size());
+		System.out.printf("FlightStore %,12d bytes  %6d bytes/flight%n", columns, columns / store.size());
+	}
+}
@@ -0,0 +1,47 @@
+package CS509.client.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+import CS509.client.airport.Airports;
+import CS509.client.dao.ScheduleIndex;
+import CS509.client.dao.ServerInterface;
+import CS509.client.dao.Snapshot;
+import CS509.client.flight.Flights;
+import CS509.client.util.SyntheticSchedule;
+import CS509.client.util.Sp;
+
+/**
+ * Answers the ServerInterface requests made by the search from a synthetic schedule, so the
+ * search benchmarks never reach the CS509 server.
+ *
+ * The flight lists are served as a preloaded schedule and the airplanes from a snapshot written
+ * to a temporary file, the same way the client runs with --preload and a saved snapshot.
+ *
+ * @author Team C
+ */
+final class InProcessSource {
+
+	private InProcessSource() {
+	}
+
+	/**
+	 * Serves every later request of the JVM from the schedule
+	 *
+	 * @param schedule the synthetic schedule to serve
+	 */
+	static void install(SyntheticSchedule schedule) {
+		try {
+			Path file = Files.createTempFile("cs509-bench", ".snapshot");
+			file.toFile().deleteOnExit();
+			Snapshot.write(file, Sp.TICKET_AGENCY, new Airports(), schedule.airplanes(), new HashMap<String, Flights>());
+			ServerInterface.useSnapshot(Snapshot.open(file, Sp.TICKET_AGENCY, Long.MAX_VALUE, Long.MAX_VALUE));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		ServerInterface.useSchedule(ScheduleIndex.of(Sp.TICKET_AGENCY, schedule.lists()));
+	}
+}
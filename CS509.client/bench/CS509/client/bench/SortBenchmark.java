@@ -0,0 +1,128 @@
+package CS509.client.bench;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import CS509.client.airport.TimeConversion;
+import CS509.client.driver.ConnectionScan;
+import CS509.client.driver.Trip;
+import CS509.client.driver.TripRanking;
+import CS509.client.driver.Trips;
+import CS509.client.driver.reservationBuilder;
+import CS509.client.driver.reservationBuilder.flDirection;
+import CS509.client.flight.Flights;
+import CS509.client.util.Sp;
+import CS509.client.util.SyntheticSchedule;
+
+/**
+ * Ordering the trips of a search by each criterion of the reservationBuilder sort methods.
+ *
+ * sortAll sorts every trip found, as the sort methods did before the ranking; rankAll keeps the
+ * best Sp.RANKING_SIZE with a TripRanking; resort is a sort method of a reservationBuilder that
+ * has already searched, served in process.
+ * Run from the project root so timezone.csv can be found.
+ *
+ * @author Team C
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmark {
+
+	@Param({"PRICE", "DEPARTURE_TIME", "ARRIVAL_TIME", "TRIP_LENGTH"})
+	public TripRanking.Criterion criterion;
+
+	private Trips trips;
+	private List<Flights> itineraries;
+	private Comparator<Trip> order;
+	private reservationBuilder builder;
+
+	@Setup
+	public void setup() throws IOException, ParseException, TimeoutException {
+		new TimeConversion("timezone.csv");
+		SyntheticSchedule schedule = new SyntheticSchedule(30, 40, 3, 509L);
+		ConnectionScan scan = new ConnectionScan(schedule.flights(), schedule.airplanes());
+		itineraries = scan.search(schedule.code(0), schedule.code(1), schedule.day(1), 3, 1, true);
+		trips = new Trips();
+		trips.addAll(itineraries);
+		order = order(criterion);
+
+		InProcessSource.install(schedule);
+		builder = new reservationBuilder();
+		builder.setDepartureCode(schedule.code(0));
+		builder.setArrivalCode(schedule.code(1));
+		builder.setDepartureDate(schedule.day(1));
+		builder.setTripType("oneway");
+		builder.setSeatClass("coach");
+		builder.searchFlights();
+		builder.makeTrips();
+	}
+
+	@Benchmark
+	public Trips sortAll() {
+		Trips sorted = new Trips();
+		sorted.addAll(trips);
+		sorted.sort(order);
+		return sorted;
+	}
+
+	@Benchmark
+	public Trips rankAll() {
+		TripRanking ranking = new TripRanking(Trip.seatType.COACH, Sp.RANKING_SIZE);
+		for (Trip trip : trips) {
+			ranking.offer(trip);
+		}
+		return ranking.ranked(criterion);
+	}
+
+	@Benchmark
+	public reservationBuilder resort() {
+		switch (criterion) {
+		case PRICE:
+			builder.sortByPrice(flDirection.OUTBOUND);
+			break;
+		case DEPARTURE_TIME:
+			builder.sortByDepartureDate(flDirection.OUTBOUND);
+			break;
+		case ARRIVAL_TIME:
+			builder.sortByArrivalDate(flDirection.OUTBOUND);
+			break;
+		default:
+			builder.sortByTripLength(flDirection.OUTBOUND);
+			break;
+		}
+		return builder;
+	}
+
+	private static Comparator<Trip> order(TripRanking.Criterion criterion) {
+		switch (criterion) {
+		case PRICE:
+			return Comparator.comparingLong(t -> t.getPriceCents(Trip.seatType.COACH));
+		case DEPARTURE_TIME:
+			return Comparator.comparingLong(Trip::getDepartureMinute);
+		case ARRIVAL_TIME:
+			return Comparator.comparingLong(Trip::getArrivalMinute);
+		default:
+			return Comparator.comparingLong(Trip::getTripMinutes);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package CS509.client.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import CS509.client.airport.AirportCode;
+import CS509.client.airport.DayWindow;
+import CS509.client.airport.TimeConversion;
+import CS509.client.util.SyntheticSchedule;
+
+/**
+ * TimeConversion conversions the search and the display make for every flight, over every airport
+ * with time zone data: minute conversions by code and by AirportCode id, local day windows and the
+ * formatted local times shown to the user.
+ * Run from the project root so timezone.csv can be found.
+ *
+ * @author Team C
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeConversionBenchmark {
+
+	private static final long GMT_MINUTE = 27_045_211L;
+
+	private final String[] codes = SyntheticSchedule.CODES;
+	private final int[] ids = new int[codes.length];
+	private int next;
+
+	@Setup
+	public void setup() throws IOException {
+		new TimeConversion("timezone.csv");
+		for (int i = 0; i < codes.length; i++) {
+			ids[i] = AirportCode.id(codes[i]);
+		}
+	}
+
+	private int airport() {
+		next = next + 1 == codes.length ? 0 : next + 1;
+		return next;
+	}
+
+	@Benchmark
+	public long toLocalMinuteByCode() {
+		return TimeConversion.toLocalMinute(GMT_MINUTE, codes[airport()]);
+	}
+
+	@Benchmark
+	public long toLocalMinuteById() {
+		return TimeConversion.toLocalMinute(GMT_MINUTE, ids[airport()]);
+	}
+
+	@Benchmark
+	public long startofDayGMT() {
+		return TimeConversion.startofDayGMT("2023_05_07", ids[airport()]);
+	}
+
+	@Benchmark
+	public DayWindow dayWindow() {
+		return DayWindow.of("2023_05_07", ids[airport()]);
+	}
+
+	@Benchmark
+	public String convertToTimeZone() {
+		return TimeConversion.convertToTimeZone("2023 May 07 12:31 GMT", codes[airport()]);
+	}
+
+	@Benchmark
+	public String convertToGMT() {
+		return TimeConversion.convertToGMT("2023 May 07 08:31", codes[airport()]);
+	}
+}
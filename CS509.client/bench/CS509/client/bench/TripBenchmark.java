@@ -0,0 +1,69 @@
+package CS509.client.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import CS509.client.airport.TimeConversion;
+import CS509.client.driver.ConnectionScan;
+import CS509.client.driver.Trip;
+import CS509.client.driver.TripRanking;
+import CS509.client.driver.Trips;
+import CS509.client.flight.Flights;
+import CS509.client.util.Sp;
+import CS509.client.util.SyntheticSchedule;
+
+/**
+ * Building Trips from the itineraries of a search and ranking them.
+ * The itineraries are found once, with up to maxStops stops so there are many of them.
+ * Run from the project root so timezone.csv can be found.
+ *
+ * @author Team C
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TripBenchmark {
+
+	@Param({"2", "3"})
+	public int maxStops;
+
+	private List<Flights> itineraries;
+
+	@Setup
+	public void setup() throws IOException {
+		new TimeConversion("timezone.csv");
+		SyntheticSchedule schedule = new SyntheticSchedule(30, 40, 3, 509L);
+		ConnectionScan scan = new ConnectionScan(schedule.flights(), schedule.airplanes());
+		itineraries = scan.search(schedule.code(0), schedule.code(1), schedule.day(1), maxStops, 1, true);
+	}
+
+	@Benchmark
+	public Trips addAll() {
+		Trips trips = new Trips();
+		trips.addAll(itineraries);
+		return trips;
+	}
+
+	@Benchmark
+	public TripRanking offerAll() {
+		TripRanking ranking = new TripRanking(Trip.seatType.COACH, Sp.RANKING_SIZE);
+		ranking.offerAll(itineraries);
+		return ranking;
+	}
+}
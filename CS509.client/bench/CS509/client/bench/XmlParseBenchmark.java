@@ -0,0 +1,60 @@
+package CS509.client.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import CS509.client.flight.Flights;
+import CS509.client.util.SyntheticSchedule;
+
+/**
+ * DOM against StAX parsing of a server flight list.
+ * Run with -prof gc to compare allocation per parse.
+ *
+ * @author Team C
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlParseBenchmark {
+
+	@Param({"100", "1000", "10000"})
+	public int flights;
+
+	private String xml;
+	private byte[] bytes;
+
+	@Setup
+	public void setup() {
+		int airports = 20;
+		SyntheticSchedule schedule = new SyntheticSchedule(airports, Math.max(1, flights / airports), 1, 509L);
+		xml = SyntheticSchedule.toXml(schedule.flights());
+		bytes = xml.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public Flights dom() {
+		return Flights.addAllf(xml);
+	}
+
+	@Benchmark
+	public Flights stax() throws IOException {
+		return Flights.addAllf(new ByteArrayInputStream(bytes));
+	}
+}
@@ -0,0 +1,93 @@
+/**
+ *
+ */
+package CS509.client.airplane;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import CS509.client.flight.Flight;
+
+/**
+ * This class indexes a set of Airplanes by model. It is built once from the airplanes returned by
+ * the CS509 server and cannot be changed afterwards, so it can be shared by concurrent searches.
+ *
+ * Looking up an airplane, or the seats still free on a flight, is a single hash lookup instead of
+ * a scan of the Airplanes list.
+ *
+ * @author Team C
+ *
+ */
+public final class AirplaneRegistry {
+
+	private final Map<String, Airplane> mModels;
+
+	/**
+	 * Initializing constructor. When a model is listed more than once the first airplane is kept.
+	 *
+	 * @param airplanes the airplanes to index
+	 */
+	public AirplaneRegistry(Iterable<Airplane> airplanes) {
+		Map<String, Airplane> models = new HashMap<String, Airplane>();
+		for (Airplane airplane : airplanes) {
+			models.putIfAbsent(airplane.model(), new Airplane(airplane.manufacturer(), airplane.model(),
+					airplane.firstClassSeats(), airplane.coachSeats()));
+		}
+		mModels = Collections.unmodifiableMap(models);
+	}
+
+	/**
+	 * @param model the model of an airplane
+	 * @return the airplane of that model, or null if the model is unknown
+	 */
+	public Airplane get(String model) {
+		return mModels.get(model);
+	}
+
+	/**
+	 * @return number of airplane models indexed
+	 */
+	public int size() {
+		return mModels.size();
+	}
+
+	/**
+	 * @param flight a flight
+	 * @return the coach seats still free on the flight, 0 if its airplane is unknown
+	 */
+	public int coachSeatsLeft(Flight flight) {
+		Airplane airplane = mModels.get(flight.getmAirplane());
+		return airplane == null ? 0 : airplane.coachSeats() - flight.getmSeatsCoach();
+	}
+
+	/**
+	 * @param flight a flight
+	 * @return the first class seats still free on the flight, 0 if its airplane is unknown
+	 */
+	public int firstClassSeatsLeft(Flight flight) {
+		Airplane airplane = mModels.get(flight.getmAirplane());
+		return airplane == null ? 0 : airplane.firstClassSeats() - flight.getmSeatsFirstclass();
+	}
+
+	/**
+	 * @param flight a flight
+	 * @param coach true for coach seats, false for first class seats
+	 * @return the seats of that class still free on the flight, 0 if its airplane is unknown
+	 */
+	public int seatsLeft(Flight flight, boolean coach) {
+		return coach ? coachSeatsLeft(flight) : firstClassSeatsLeft(flight);
+	}
+
+	/**
+	 * Checks if the seats are available on the given flight
+	 *
+	 * @param flight flight in which seats have to be checked
+	 * @param seats number of seats
+	 * @param coach true if coach, false if FirstClass
+	 * @return true if at least that many seats of the class are still free
+	 */
+	public boolean isSeatAvailable(Flight flight, int seats, boolean coach) {
+		return seatsLeft(flight, coach) >= seats;
+	}
+}
@@ -4,11 +4,16 @@
 package CS509.client.airplane;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.util.ArrayList;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.CharacterData;
 import org.w3c.dom.Document;
@@ -30,6 +35,7 @@ import org.xml.sax.SAXException;
  */
 public class Airplanes extends ArrayList<Airplane> {
 	private static final long serialVersionUID = 1L;
+	private static final XMLInputFactory xmlInputFactory = newInputFactory();
 
 	/**
 	 * Builds collection of airplanes from airplanes described in XML
@@ -64,6 +70,107 @@ public class Airplanes extends ArrayList<Airplane> {
 		return collectionUpdated;
 	}
 	
+	/**
+	 * Builds collection of airplanes from airplanes described in an XML stream
+	 * 
+	 * Reads the stream with a StAX pull parser and adds each airplane to the collection
+	 * as soon as its element ends, without building a DOM tree.
+	 * 
+	 * @param xmlAirplanes XML stream containing set of airplanes 
+	 * @return true if the collection was modified, false otherwise
+	 * @throws IOException if the stream is cut short or is not a well formed list of airplanes
+	 */
+	public boolean addAll (InputStream xmlAirplanes) throws IOException {
+		return addAll(xmlAirplanes, null);
+	}
+	
+	/**
+	 * Builds collection of airplanes from airplanes described in an XML stream
+	 * 
+	 * Reads the stream with a StAX pull parser and adds each airplane to the collection
+	 * as soon as its element ends, without building a DOM tree.
+	 * 
+	 * The airplanes are only added when the whole document was read, so a connection reset in the
+	 * middle of a response never leaves a partial list of airplanes
+	 * 
+	 * @param xmlAirplanes XML stream containing set of airplanes 
+	 * @param encoding charset declared for the stream, or null to let the parser detect it from the XML
+	 * @return true if the collection was modified, false otherwise
+	 * @throws IOException if the stream is cut short or is not a well formed list of airplanes
+	 */
+	public boolean addAll (InputStream xmlAirplanes, String encoding) throws IOException {
+		
+		ArrayList<Airplane> airplanes = new ArrayList<Airplane>();
+		XMLStreamReader reader = null;
+		
+		try {
+			reader = encoding == null ? xmlInputFactory.createXMLStreamReader(xmlAirplanes)
+					: xmlInputFactory.createXMLStreamReader(xmlAirplanes, encoding);
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("Airplane")) {
+					airplanes.add(readAirplane(reader));
+				}
+			}
+		}
+		catch (XMLStreamException | NumberFormatException e) {
+			throw new IOException("Airplane list could not be read after " + airplanes.size() + " airplanes", e);
+		}
+		finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				}
+				catch (XMLStreamException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		
+		return this.addAll(airplanes);
+	}
+	
+	/**
+	 * Creates an Airplane object from the stream positioned on an Airplane start element
+	 * 
+	 * @param reader is positioned on the start element of an Airplane
+	 * @return Airplane object created from the element, the reader is left on its end element
+	 * @throws XMLStreamException
+	 */
+	static private Airplane readAirplane (XMLStreamReader reader) throws XMLStreamException {
+		Airplane airplane = new Airplane();
+		airplane.manufacturer(reader.getAttributeValue(null, "Manufacturer"));
+		airplane.model(reader.getAttributeValue(null, "Model"));
+		
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("Airplane")) {
+				break;
+			}
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if (reader.getLocalName().equals("CoachSeats")) {
+					airplane.coachSeats(Integer.parseInt(reader.getElementText().trim()));
+				} else if (reader.getLocalName().equals("FirstClassSeats")) {
+					airplane.firstClassSeats(Integer.parseInt(reader.getElementText().trim()));
+				}
+			}
+		}
+		return airplane;
+	}
+	
+	/**
+	 * Creates the StAX factory shared by all parses. External entities and DTDs are not needed
+	 * for the server XML and are turned off.
+	 * 
+	 * @return configured XMLInputFactory
+	 */
+	private static XMLInputFactory newInputFactory () {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+	
 	/**
 	 * Builds a DOM tree form an XML string
 	 * 
@@ -31,6 +31,7 @@ public class Airport {
 	private String mCode;              // Three character code of the airport
 	private double mLatitude;          // Latitude of airport in decimal format
 	private double mLongitude;         // Longitude of the airport in decimal format
+	private int mId;                   // AirportCode id of the code, NO_ID if it is not 3 letters
 	
 	/**
 	 * Default constructor
@@ -41,6 +42,7 @@ public class Airport {
 	public Airport () {
 		mName = "";
 		mCode = "";
+		mId = AirportCode.NO_ID;
 		mLatitude = Double.MAX_VALUE;
 		mLongitude = Double.MAX_VALUE;
 	}
@@ -57,7 +59,8 @@ public class Airport {
 	 */
 	public Airport (String name, String code, double latitude, double longitude) {
 		mName = name;
-		mCode = code;
+		mCode = AirportCode.intern(code);
+		mId = AirportCode.id(code);
 		mLatitude = latitude;
 		mLongitude = longitude;
 	}
@@ -100,7 +103,8 @@ public class Airport {
 	 * @param code The 3 letter code for the airport
 	 */
 	public void code (String code) {
-		mCode = code;
+		mCode = AirportCode.intern(code);
+		mId = AirportCode.id(code);
 	}
 	
 	/**
@@ -112,6 +116,15 @@ public class Airport {
 		return mCode;
 	}
 	
+	/**
+	 * Get the dense id of the airport code
+	 * 
+	 * @return The AirportCode id of the code, AirportCode.NO_ID if the code is not 3 letters A-Z
+	 */
+	public int id () {
+		return mId;
+	}
+	
 	/**
 	 * Set the latitude for the airport
 	 * 
@@ -200,8 +213,8 @@ public class Airport {
 		if ((mName == null) || (mName == ""))
 			return false;
 		
-		// If we don't have a 3 character code, object isn't valid
-		if ((mCode == null) || (mCode.length() != 3))
+		// If we don't have a 3 letter code, object isn't valid
+		if (mId == AirportCode.NO_ID)
 			return false;
 		
 		// Verify latitude and longitude are within range
@@ -0,0 +1,82 @@
+package CS509.client.airport;
+
+/**
+ * Dictionary of 3 letter airport codes.
+ *
+ * Every code of three letters A-Z is packed into a dense int id below SIZE, so airports can be
+ * compared with == and used as array indexes instead of comparing Strings. The id only depends
+ * on the code, it is the same in every table and never has to be looked up in a map.
+ *
+ * Codes are also interned here: intern and code return one shared String per code, so the
+ * thousands of flights naming the same airport hold the same String.
+ *
+ * @author Team C
+ */
+public final class AirportCode {
+
+	/**
+	 * Number of distinct 3 letter codes, every id is below it
+	 */
+	public static final int SIZE = 26 * 26 * 26;
+
+	/**
+	 * Id of a code that is not 3 letters A-Z
+	 */
+	public static final int NO_ID = -1;
+
+	private static final String[] codes = new String[SIZE];
+
+	private AirportCode() {
+	}
+
+	/**
+	 * Packs an airport code into its id
+	 *
+	 * @param code airport code
+	 * @return id of the code, NO_ID if it is not 3 letters A-Z
+	 */
+	public static int id(String code) {
+		if (code == null || code.length() != 3) {
+			return NO_ID;
+		}
+		int id = 0;
+		for (int i = 0; i < 3; i++) {
+			int c = code.charAt(i) - 'A';
+			if (c < 0 || c >= 26) {
+				return NO_ID;
+			}
+			id = id * 26 + c;
+		}
+		return id;
+	}
+
+	/**
+	 * Unpacks an id into its airport code
+	 *
+	 * @param id id of an airport, below SIZE
+	 * @return the shared String of the code
+	 * @throws IllegalArgumentException if the id is not below SIZE
+	 */
+	public static String code(int id) {
+		if (id < 0 || id >= SIZE) {
+			throw new IllegalArgumentException("Not an airport id: " + id);
+		}
+		String code = codes[id];
+		if (code == null) {
+			// racing threads build equal Strings, either one may be kept
+			char[] letters = {(char) ('A' + id / (26 * 26)), (char) ('A' + id / 26 % 26), (char) ('A' + id % 26)};
+			code = new String(letters);
+			codes[id] = code;
+		}
+		return code;
+	}
+
+	/**
+	 * @param code airport code
+	 * @return the shared String of the code, or the code itself if it is not 3 letters A-Z
+	 */
+	public static String intern(String code) {
+		int id = id(code);
+		return id == NO_ID ? code : code(id);
+	}
+}
@@ -4,13 +4,18 @@
 package CS509.client.airport;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Locale;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.CharacterData;
 import org.w3c.dom.Document;
@@ -25,12 +30,22 @@ import org.xml.sax.SAXException;
  * Airports can be added to the aggregate via XML strings in the format returned form the 
  * CS509 server, or as Airport objects using the ArrayList interface. Objects can 
  * be removed from the collection using the ArrayList interface.
+ * 
+ * Lookups by code go through an index on the AirportCode id of each airport, rebuilt
+ * whenever the list has changed since the last lookup.
  * 
   * @author blake
  *
  */
 public class Airports extends ArrayList<Airport> {
 	private static final long serialVersionUID = 1L;
+	private static final XMLInputFactory xmlInputFactory = newInputFactory();
+	
+	/**
+	 * Airports indexed by AirportCode id, and the modCount of the list they were indexed at
+	 */
+	private transient Airport[] mByCode;
+	private transient int mIndexedModCount;
 	
 	/**
 	 * Builds collection of airports from airports described in XML
@@ -65,6 +80,111 @@ public class Airports extends ArrayList<Airport> {
 		return collectionUpdated;
 	}
 	
+	/**
+	 * Builds collection of airports from airports described in an XML stream
+	 * 
+	 * Reads the stream with a StAX pull parser and adds each valid airport to the collection
+	 * as soon as its element ends, without building a DOM tree.
+	 * 
+	 * @param xmlAirports XML stream containing set of airports 
+	 * @return true if the collection was modified, false otherwise
+	 * @throws IOException if the stream is cut short or is not a well formed list of airports
+	 */
+	public boolean addAll (InputStream xmlAirports) throws IOException {
+		return addAll(xmlAirports, null);
+	}
+	
+	/**
+	 * Builds collection of airports from airports described in an XML stream
+	 * 
+	 * Reads the stream with a StAX pull parser and adds each valid airport to the collection
+	 * as soon as its element ends, without building a DOM tree.
+	 * 
+	 * The airports are only added when the whole document was read, so a connection reset in the
+	 * middle of a response never leaves a partial list of airports
+	 * 
+	 * @param xmlAirports XML stream containing set of airports 
+	 * @param encoding charset declared for the stream, or null to let the parser detect it from the XML
+	 * @return true if the collection was modified, false otherwise
+	 * @throws IOException if the stream is cut short or is not a well formed list of airports
+	 */
+	public boolean addAll (InputStream xmlAirports, String encoding) throws IOException {
+		
+		ArrayList<Airport> airports = new ArrayList<Airport>();
+		XMLStreamReader reader = null;
+		
+		try {
+			reader = encoding == null ? xmlInputFactory.createXMLStreamReader(xmlAirports)
+					: xmlInputFactory.createXMLStreamReader(xmlAirports, encoding);
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("Airport")) {
+					Airport airport = readAirport(reader);
+					
+					if (airport.isValid()) {
+						airports.add(airport);
+					}
+				}
+			}
+		}
+		catch (XMLStreamException | NumberFormatException e) {
+			throw new IOException("Airport list could not be read after " + airports.size() + " airports", e);
+		}
+		finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				}
+				catch (XMLStreamException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		
+		return this.addAll(airports);
+	}
+	
+	/**
+	 * Creates an Airport object from the stream positioned on an Airport start element
+	 * 
+	 * @param reader is positioned on the start element of an Airport
+	 * @return Airport object created from the element, the reader is left on its end element
+	 * @throws XMLStreamException
+	 */
+	private Airport readAirport (XMLStreamReader reader) throws XMLStreamException {
+		Airport airport = new Airport();
+		airport.name(reader.getAttributeValue(null, "Name"));
+		airport.code(reader.getAttributeValue(null, "Code"));
+		
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("Airport")) {
+				break;
+			}
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if (reader.getLocalName().equals("Latitude")) {
+					airport.latitude(Double.parseDouble(reader.getElementText()));
+				} else if (reader.getLocalName().equals("Longitude")) {
+					airport.longitude(Double.parseDouble(reader.getElementText()));
+				}
+			}
+		}
+		return airport;
+	}
+	
+	/**
+	 * Creates the StAX factory shared by all parses. External entities and DTDs are not needed
+	 * for the server XML and are turned off.
+	 * 
+	 * @return configured XMLInputFactory
+	 */
+	private static XMLInputFactory newInputFactory () {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+	
 	/**
 	 * Builds a DOM tree form an XML string
 	 * 
@@ -157,22 +277,41 @@ public class Airports extends ArrayList<Airport> {
 	}
 	
 	/**  Does the list contain the airport?
-	 * @param code String input 3 digit code
+	 * @param code String input 3 digit code, in any case
 	 * @return Boolean true/false if the list has the associated airport.
 	 */
 	 public Boolean containsCode(String code) {
-		Boolean containsCode = false;
-		
-		Iterator<Airport> iter = this.iterator();
-		
-		if(!iter.hasNext()) {
-			return false;
+		return byCode(code == null ? null : code.toUpperCase(Locale.ROOT)) != null;
+	}
+	
+	/**
+	 * Finds an airport by code without scanning the list
+	 * @param code 3 letter airport code
+	 * @return the first airport in the list with the code, null if there is none
+	 */
+	public Airport byCode(String code) {
+		int id = AirportCode.id(code);
+		if (id == AirportCode.NO_ID) {
+			return null;
 		}
-		
-		while(iter.hasNext()) {
-			containsCode |= (iter.next().code().equalsIgnoreCase(code));
+		Airport[] byCode = mByCode;
+		if (byCode == null || mIndexedModCount != modCount) {
+			byCode = new Airport[AirportCode.SIZE];
+			for (int i = size() - 1; i >= 0; i--) {
+				Airport airport = get(i);
+				if (airport.id() != AirportCode.NO_ID) {
+					byCode[airport.id()] = airport;
+				}
+			}
+			mByCode = byCode;
+			mIndexedModCount = modCount;
 		}
-		
-		return containsCode;
+		return byCode[id];
+	}
+	
+	@Override
+	public Airport set(int index, Airport airport) {
+		mByCode = null;
+		return super.set(index, airport);
 	}
 }
@@ -0,0 +1,147 @@
+package CS509.client.airport;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import CS509.client.flight.Flight;
+import CS509.client.flight.Flights;
+
+/**
+ * The GMT bounds of one day local to an airport.
+ *
+ * A flight is inside the window when it departs strictly after local midnight and strictly
+ * before 23:59 local time, the same check as TimeConversion.dateBetweentwoDates. Windows only
+ * depend on the date and the airport, so they are computed once and memoised per date in an
+ * array indexed by the AirportCode id of the airport.
+ *
+ * @author Team C
+ */
+public final class DayWindow {
+
+	/**
+	 * Memoised windows are dropped once there are more than this many
+	 */
+	private static final int MAX_WINDOWS = 4096;
+	/**
+	 * Memoised windows are dropped once they cover more than this many dates
+	 */
+	private static final int MAX_DATES = 64;
+	private static final Map<String, DayWindow[]> windows = new ConcurrentHashMap<String, DayWindow[]>();
+	private static final AtomicInteger memoised = new AtomicInteger();
+
+	private final String date;
+	private final String airportCode;
+	private final long startGMT;
+	private final long endGMT;
+
+	private DayWindow(String date, int airportId) {
+		this.date = date;
+		this.airportCode = AirportCode.code(airportId);
+		this.startGMT = TimeConversion.startofDayGMT(date, airportId);
+		this.endGMT = startGMT + 24 * 60 - 1;
+	}
+
+	/**
+	 * Returns the window of the given day at the given airport
+	 *
+	 * @param date date in yyyy_MM_dd format
+	 * @param airportCode code of airport
+	 * @return the memoised window
+	 * @throws IllegalArgumentException if the time zone of the airport is unknown
+	 */
+	public static DayWindow of(String date, String airportCode) {
+		int airportId = AirportCode.id(airportCode);
+		if (airportId == AirportCode.NO_ID) {
+			throw new IllegalArgumentException("Unknown airport code: " + airportCode);
+		}
+		return of(date, airportId);
+	}
+
+	/**
+	 * Returns the window of the given day at the given airport
+	 *
+	 * @param date date in yyyy_MM_dd format
+	 * @param airportId AirportCode id of airport
+	 * @return the memoised window
+	 * @throws IllegalArgumentException if the time zone of the airport is unknown
+	 */
+	public static DayWindow of(String date, int airportId) {
+		DayWindow[] day = windows.get(date);
+		if (day == null) {
+			if (windows.size() >= MAX_DATES) {
+				clear();
+			}
+			day = windows.computeIfAbsent(date, d -> new DayWindow[AirportCode.SIZE]);
+		}
+		DayWindow window = airportId >= 0 && airportId < day.length ? day[airportId] : null;
+		if (window == null) {
+			window = new DayWindow(date, airportId);
+			if (memoised.incrementAndGet() > MAX_WINDOWS) {
+				clear();
+			}
+			// racing threads build equal windows, either one may be kept
+			day[airportId] = window;
+		}
+		return window;
+	}
+
+	/**
+	 * Drops every memoised window. Called when the time zones of the airports are reloaded.
+	 */
+	static void clear() {
+		windows.clear();
+		memoised.set(0);
+	}
+
+	/**
+	 * @param minute a GMT time in minutes since the epoch
+	 * @return true if the time is inside the day
+	 */
+	public boolean contains(long minute) {
+		return minute > startGMT && minute < endGMT;
+	}
+
+	/**
+	 * @param flight a flight
+	 * @return true if the flight departs inside the day
+	 */
+	public boolean contains(Flight flight) {
+		return contains(flight.getmMinuteDepart());
+	}
+
+	/**
+	 * Keeps the flights departing inside the day, in one pass over the list
+	 *
+	 * @param flights flights to filter
+	 * @return a new list with the flights departing inside the day, in their original order
+	 */
+	public Flights filter(Flights flights) {
+		Flights inside = new Flights();
+		for (Flight flight : flights) {
+			if (contains(flight.getmMinuteDepart())) {
+				inside.add(flight);
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * @return local midnight starting the day, in GMT minutes since the epoch
+	 */
+	public long startGMT() {
+		return startGMT;
+	}
+
+	/**
+	 * @return 23:59 local time ending the day, in GMT minutes since the epoch
+	 */
+	public long endGMT() {
+		return endGMT;
+	}
+
+	@Override
+	public String toString() {
+		return "DayWindow[" + date + " " + airportCode + ", " + startGMT + ".." + endGMT + "]";
+	}
+}
@@ -9,9 +9,7 @@ import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Scanner;
 import java.io.FileWriter;
@@ -19,8 +17,8 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 /**
  * @author Gokul
  *
@@ -30,6 +28,9 @@ import java.util.Map;
  * Gets the GMT time and returns the Local time at that airport. Uses timezonedb.com api once to save all the time zones and GMT offsets in timezone_data.csv file. 
  * Uses timezone_data.csv for all the calculations
  * Returns the string of local time
+ * 
+ * The csv is compiled into an immutable ZoneTable, so conversions are safe to call from many threads.
+ * The epoch minute methods (toLocalMinute, toGMTMinute, startofDayGMT, dateBetweentwoDates) do not allocate.
  */
 
 public class TimeConversion {
@@ -37,25 +38,154 @@ public class TimeConversion {
     private static final String API_URL = "http://api.timezonedb.com/v2.1/get-time-zone?key=<API_KEY>&format=json&by=position&lat=%f&lng=%f";
     private static final DateTimeFormatter INPUT_FORMATTER = DateTimeFormatter.ofPattern("yyyy MMM dd HH:mm z");
     private static final DateTimeFormatter OUTPUT_FORMATTER = DateTimeFormatter.ofPattern("yyyy MMM dd HH:mm ");
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyy_MM_dd");
     private static long lastApiCallTime = 0;
 //    private static final String CSV_FILE_PATH = "timezone_data.csv";
     
-    private final static Map<String, String[]> airportData = new HashMap<>();
+    private static final DateTimeFormatter LOCAL_FORMATTER = DateTimeFormatter.ofPattern("yyyy MMM dd HH:mm");
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    /**
+     * Compiled zone data of every airport read so far. Replaced as a whole, never changed in place.
+     */
+    private static volatile ZoneTable zones = ZoneTable.EMPTY;
     
     /**
-     * Read CSV file and populate airportData map
+     * Read CSV file and compile its airports into the zone table
      * @param csvFilePath path of the csv file
      * @throws IOException
      */
     public TimeConversion(String csvFilePath) throws IOException {
-        // Read CSV file and populate airportData map
-        BufferedReader reader = new BufferedReader(new FileReader(csvFilePath));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            String[] fields = line.split(",");
-            airportData.put(fields[0], new String[]{fields[1], fields[2]});
+        // Read CSV file, airports already known are replaced
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(csvFilePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length >= 3) {
+                    rows.add(fields);
+                }
+            }
         }
-        reader.close();
+        String[] codes = new String[rows.size()];
+        int[] gmtOffsets = new int[rows.size()];
+        String[] abbreviations = new String[rows.size()];
+        for (int i = 0; i < codes.length; i++) {
+            String[] fields = rows.get(i);
+            codes[i] = fields[0];
+            gmtOffsets[i] = Integer.parseInt(fields[1].trim());
+            abbreviations[i] = fields[2].trim();
+        }
+        synchronized (TimeConversion.class) {
+            zones = zones.with(codes, gmtOffsets, abbreviations);
+            DayWindow.clear();
+        }
+    }
+
+    /**
+     * @param airportCode code of airport
+     * @return true if the time zone of the airport is known
+     */
+    public static boolean hasZone(String airportCode) {
+        return zones.contains(airportCode);
+    }
+
+    /**
+     * @param airportId AirportCode id of airport
+     * @return true if the time zone of the airport is known
+     */
+    public static boolean hasZone(int airportId) {
+        return zones.contains(airportId);
+    }
+
+    /**
+     * @param airportCode code of airport
+     * @return offset of the airport's time zone from GMT
+     * @throws IllegalArgumentException if the airport is unknown
+     */
+    public static ZoneOffset zoneOffset(String airportCode) {
+        ZoneTable table = zones;
+        return table.offset(table.require(airportCode));
+    }
+
+    /**
+     * @param airportCode code of airport
+     * @return abbreviation of the airport's time zone
+     * @throws IllegalArgumentException if the airport is unknown
+     */
+    public static String zoneAbbreviation(String airportCode) {
+        ZoneTable table = zones;
+        return table.abbreviation(table.require(airportCode));
+    }
+
+    /**
+     * Converts a GMT time to the time local to the airport
+     * @param gmtMinute time in GMT, in minutes since the epoch
+     * @param airportCode code of airport
+     * @return the local wall clock time, in minutes since the epoch
+     * @throws IllegalArgumentException if the airport is unknown
+     */
+    public static long toLocalMinute(long gmtMinute, String airportCode) {
+        ZoneTable table = zones;
+        return gmtMinute + table.offsetMinutes(table.require(airportCode));
+    }
+
+    /**
+     * Converts a GMT time to the time local to the airport
+     * @param gmtMinute time in GMT, in minutes since the epoch
+     * @param airportId AirportCode id of airport
+     * @return the local wall clock time, in minutes since the epoch
+     * @throws IllegalArgumentException if the airport is unknown
+     */
+    public static long toLocalMinute(long gmtMinute, int airportId) {
+        ZoneTable table = zones;
+        return gmtMinute + table.offsetMinutes(table.require(airportId));
+    }
+
+    /**
+     * Converts a time local to the airport to GMT
+     * @param localMinute local wall clock time, in minutes since the epoch
+     * @param airportCode code of airport
+     * @return the time in GMT, in minutes since the epoch
+     * @throws IllegalArgumentException if the airport is unknown
+     */
+    public static long toGMTMinute(long localMinute, String airportCode) {
+        ZoneTable table = zones;
+        return localMinute - table.offsetMinutes(table.require(airportCode));
+    }
+
+    /**
+     * Converts a time local to the airport to GMT
+     * @param localMinute local wall clock time, in minutes since the epoch
+     * @param airportId AirportCode id of airport
+     * @return the time in GMT, in minutes since the epoch
+     * @throws IllegalArgumentException if the airport is unknown
+     */
+    public static long toGMTMinute(long localMinute, int airportId) {
+        ZoneTable table = zones;
+        return localMinute - table.offsetMinutes(table.require(airportId));
+    }
+
+    /**
+     * Calculates when the given day starts at the airport
+     * @param date in yyyy_MM_dd format
+     * @param airportCode code of airport
+     * @return the local midnight starting the day, in GMT minutes since the epoch
+     * @throws IllegalArgumentException if the airport is unknown
+     */
+    public static long startofDayGMT(String date, String airportCode) {
+        return toGMTMinute(epochDay(date) * MINUTES_PER_DAY, airportCode);
+    }
+
+    /**
+     * Calculates when the given day starts at the airport
+     * @param date in yyyy_MM_dd format
+     * @param airportId AirportCode id of airport
+     * @return the local midnight starting the day, in GMT minutes since the epoch
+     * @throws IllegalArgumentException if the airport is unknown
+     */
+    public static long startofDayGMT(String date, int airportId) {
+        return toGMTMinute(epochDay(date) * MINUTES_PER_DAY, airportId);
     }
 
     /**
@@ -66,21 +196,10 @@ public class TimeConversion {
 	 * @throws DateTimeParseException
 	 */
     public static String convertToTimeZone(String gmtTime, String airportCode) throws DateTimeParseException {
-        // Get airport data from map
-        String[] airportInfo = airportData.get(airportCode);
-        if (airportInfo == null) {
-            throw new IllegalArgumentException("Unknown airport code: " + airportCode);
-        }
-        int gmtOffset = Integer.parseInt(airportInfo[0]);
-        String nextAbbreviation = airportInfo[1];
-
-        // Convert GMT time to local time
-        LocalDateTime inputDateTime = LocalDateTime.parse(gmtTime, INPUT_FORMATTER);
-		ZonedDateTime inputZonedDateTime = inputDateTime.atZone(ZoneOffset.UTC);
-		ZoneOffset zoneOffset = ZoneOffset.ofHoursMinutes(gmtOffset / 3600, Math.abs(gmtOffset % 3600) / 60);
-		ZonedDateTime outputZonedDateTime = inputZonedDateTime.withZoneSameInstant(zoneOffset);
-		String outputTime = outputZonedDateTime.format(OUTPUT_FORMATTER)  + nextAbbreviation;
-        return outputTime;
+        ZoneTable table = zones;
+        int airport = table.require(airportCode);
+        long localMinute = LocalDateTime.parse(gmtTime, INPUT_FORMATTER).toEpochSecond(ZoneOffset.UTC) / 60 + table.offsetMinutes(airport);
+        return format(localMinute, OUTPUT_FORMATTER) + table.abbreviation(airport);
     }
     
     /**
@@ -89,12 +208,7 @@ public class TimeConversion {
      * @return date in yyyy_MM_dd HH:mm format with HH:mm being 00:00
      */
     public static String startofDay(String date) {
-    	DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy_MM_dd");
-    	LocalDate localDate = LocalDate.parse(date, formatter);
-    	LocalDateTime gmtDateTime = localDate.atStartOfDay();
-    	String formattedDate = gmtDateTime.format(DateTimeFormatter.ofPattern("yyyy MMM dd HH:mm"));
- 	
-    	return formattedDate;
+    	return format(epochDay(date) * MINUTES_PER_DAY, LOCAL_FORMATTER);
     }
     
     /**
@@ -103,11 +217,7 @@ public class TimeConversion {
      * @return date in yyyy_MM_dd HH:mm format with HH:mm being 23:59
      */
     public static String endofDay(String date) {
-    	String startofdate = startofDay(date);
-    	LocalDateTime dateTime = LocalDateTime.parse(startofdate, DateTimeFormatter.ofPattern("yyyy MMM dd HH:mm"));
-        LocalDateTime minusOneMinute = dateTime.plusHours(24).minusMinutes(1);
-        String endofDay = minusOneMinute.format(DateTimeFormatter.ofPattern("yyyy MMM dd HH:mm"));
-    	return endofDay;
+    	return format((epochDay(date) + 1) * MINUTES_PER_DAY - 1, LOCAL_FORMATTER);
     }
 
     /**
@@ -118,23 +228,8 @@ public class TimeConversion {
 	 * @throws DateTimeParseException
 	 */
     public static String convertToGMT(String localTime, String airportCode) throws DateTimeParseException {
-        // Parse GMT time string
-    	DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy MMM dd HH:mm");
-    	LocalDateTime localDateTime = LocalDateTime.parse(localTime, formatter);
-
-    	// Get airport data from map
-    	String[] airportInfo = airportData.get(airportCode);
-    	if (airportInfo == null) {
-    	    throw new IllegalArgumentException("Unknown airport code: " + airportCode);
-    	}
-    	int gmtOffset = Integer.parseInt(airportInfo[0]);
-
-    	// Convert local time to GMT time
-    	ZoneOffset zoneOffset = ZoneOffset.ofHoursMinutes(gmtOffset / 3600, Math.abs(gmtOffset % 3600) / 60);
-    	OffsetDateTime offsetDateTime = OffsetDateTime.of(localDateTime, zoneOffset);
-    	ZonedDateTime gmtDateTime = offsetDateTime.toZonedDateTime().withZoneSameInstant(ZoneOffset.UTC);
-    	String outputTime = gmtDateTime.format(formatter) + " GMT";
-    	return outputTime;
+    	long localMinute = LocalDateTime.parse(localTime, LOCAL_FORMATTER).toEpochSecond(ZoneOffset.UTC) / 60;
+    	return format(toGMTMinute(localMinute, airportCode), LOCAL_FORMATTER) + " GMT";
     }
   
     /**
@@ -145,13 +240,20 @@ public class TimeConversion {
      * @return True if the departTime is in the 24 hours of given date (yyyy_MM_dd).  
      */
     public static boolean dateBetweentwoDates(String date,String departTime, String airportCode) {
-    	LocalDateTime startofdayGMT = LocalDateTime.parse(convertToGMT(startofDay(date),airportCode),DateTimeFormatter.ofPattern("yyyy MMM dd HH:mm zzz"));
-    	LocalDateTime endofdayGMT = LocalDateTime.parse(convertToGMT(endofDay(date),airportCode),DateTimeFormatter.ofPattern("yyyy MMM dd HH:mm zzz"));
-    	LocalDateTime dateC =LocalDateTime.parse(departTime,DateTimeFormatter.ofPattern("yyyy MMM dd HH:mm zzz"));
-    	if (dateC.isAfter(startofdayGMT) && dateC.isBefore(endofdayGMT)) {
-    	return true;
-    	}
-    	return false;
+    	long departMinute = LocalDateTime.parse(departTime, INPUT_FORMATTER).toEpochSecond(ZoneOffset.UTC) / 60;
+    	return dateBetweentwoDates(date, departMinute, airportCode);
+    }
+
+    /**
+     * Checks if the given departure minute is between the start and end of the given day local to the airport.
+     * Same check as dateBetweentwoDates(String, String, String) without parsing any time strings.
+     * @param date date in yyyy_MM_dd format
+     * @param departMinute departure time in minutes since the epoch
+     * @param airportCode code of airport
+     * @return True if the departure is in the 24 hours of given date (yyyy_MM_dd).
+     */
+    public static boolean dateBetweentwoDates(String date, long departMinute, String airportCode) {
+    	return DayWindow.of(date, airportCode).contains(departMinute);
     }
     
     /**
@@ -160,10 +262,59 @@ public class TimeConversion {
      * @return date of next day
      */
     public static String getNextDate(String dateString) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy_MM_dd");
-        LocalDate date = LocalDate.parse(dateString, formatter);
-        LocalDate nextDate = date.plusDays(1);
-        return nextDate.format(formatter);
+        return LocalDate.ofEpochDay(epochDay(dateString) + 1).format(DAY_FORMATTER);
+    }
+
+    /**
+     * Reads a date in yyyy_MM_dd format as days since the epoch, without building any objects
+     * @param date date in yyyy_MM_dd format
+     * @return days since 1970-01-01
+     * @throws DateTimeParseException if the date is not in yyyy_MM_dd format
+     */
+    static long epochDay(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '_' || date.charAt(7) != '_') {
+            throw new DateTimeParseException("Text could not be parsed as yyyy_MM_dd", String.valueOf(date), 0);
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            throw new DateTimeParseException("Text is not a valid date", date, 0);
+        }
+        // days from civil, proleptic Gregorian calendar
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int d = text.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+        case 2:
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        case 4: case 6: case 9: case 11:
+            return 30;
+        default:
+            return 31;
+        }
+    }
+
+    private static String format(long minute, DateTimeFormatter formatter) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC).format(formatter);
     }
 
     /**
@@ -251,7 +402,7 @@ public class TimeConversion {
      */
     public static String loctime(Airports airport,String time, String code) {
         
-        Airport a = airport.stream().filter(ap -> ap.code().equals(code)).findFirst().orElse(null);
+        Airport a = airport.byCode(code);
         if (a == null) {
 //            return "Airport code not found";
         }
@@ -0,0 +1,113 @@
+package CS509.client.airport;
+
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Compiled time zone data of the airports read from timezone.csv.
+ *
+ * The GMT offset and zone abbreviation of every airport are kept in arrays indexed by the
+ * AirportCode id of the airport. A table is never changed once built, so it can be read by
+ * many threads without locking and a lookup is a few array reads.
+ *
+ * @author Team C
+ */
+final class ZoneTable {
+
+	/**
+	 * Number of distinct 3 letter codes
+	 */
+	static final int SIZE = AirportCode.SIZE;
+
+	/**
+	 * Table without any airport
+	 */
+	static final ZoneTable EMPTY = new ZoneTable(new ZoneOffset[SIZE], new int[SIZE], new String[SIZE]);
+
+	private final ZoneOffset[] offsets;
+	private final int[] offsetMinutes;
+	private final String[] abbreviations;
+
+	private ZoneTable(ZoneOffset[] offsets, int[] offsetMinutes, String[] abbreviations) {
+		this.offsets = offsets;
+		this.offsetMinutes = offsetMinutes;
+		this.abbreviations = abbreviations;
+	}
+
+	/**
+	 * Builds a new table holding the airports of this table plus the given ones
+	 *
+	 * @param codes airport codes
+	 * @param gmtOffsets GMT offset in seconds of each airport
+	 * @param zoneAbbreviations zone abbreviation of each airport
+	 * @return the new table, airports listed again replace the ones already held
+	 */
+	ZoneTable with(String[] codes, int[] gmtOffsets, String[] zoneAbbreviations) {
+		ZoneOffset[] newOffsets = Arrays.copyOf(offsets, SIZE);
+		int[] newMinutes = Arrays.copyOf(offsetMinutes, SIZE);
+		String[] newAbbreviations = Arrays.copyOf(abbreviations, SIZE);
+		for (int i = 0; i < codes.length; i++) {
+			int index = AirportCode.id(codes[i]);
+			if (index < 0) {
+				continue;
+			}
+			newOffsets[index] = ZoneOffset.ofTotalSeconds(gmtOffsets[i]);
+			newMinutes[index] = gmtOffsets[i] / 60;
+			newAbbreviations[index] = zoneAbbreviations[i];
+		}
+		return new ZoneTable(newOffsets, newMinutes, newAbbreviations);
+	}
+
+	/**
+	 * @param code airport code
+	 * @return index of the airport in the table
+	 * @throws IllegalArgumentException if the table has no zone for the airport
+	 */
+	int require(String code) {
+		int index = AirportCode.id(code);
+		if (index < 0 || offsets[index] == null) {
+			throw new IllegalArgumentException("Unknown airport code: " + code);
+		}
+		return index;
+	}
+
+	/**
+	 * @param id AirportCode id of the airport
+	 * @return the id, which is the index of the airport in the table
+	 * @throws IllegalArgumentException if the table has no zone for the airport
+	 */
+	int require(int id) {
+		if (!contains(id)) {
+			throw new IllegalArgumentException("Unknown airport id: " + id);
+		}
+		return id;
+	}
+
+	/**
+	 * @param code airport code
+	 * @return true if the table has a zone for the airport
+	 */
+	boolean contains(String code) {
+		return contains(AirportCode.id(code));
+	}
+
+	/**
+	 * @param id AirportCode id of the airport
+	 * @return true if the table has a zone for the airport
+	 */
+	boolean contains(int id) {
+		return id >= 0 && id < SIZE && offsets[id] != null;
+	}
+
+	ZoneOffset offset(int index) {
+		return offsets[index];
+	}
+
+	int offsetMinutes(int index) {
+		return offsetMinutes[index];
+	}
+
+	String abbreviation(int index) {
+		return abbreviations[index];
+	}
+}
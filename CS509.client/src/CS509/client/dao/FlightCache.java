@@ -0,0 +1,181 @@
+/**
+ *
+ */
+package CS509.client.dao;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import CS509.client.flight.Flights;
+
+/**
+ * This class caches the flight lists returned by the CS509 server. Lists are keyed by team,
+ * airport, day and whether they are departing or arriving flights. An entry expires once it is
+ * older than the time to live, and the least recently used entry is evicted when the cache is full.
+ *
+ * The cache hands out copies of the cached lists so callers are free to modify what they get.
+ *
+ * @author Team C
+ *
+ */
+public class FlightCache {
+
+	/**
+	 * A cached flight list, the time it was stored and the same time in milliseconds since the epoch
+	 */
+	private static class Entry {
+		final Flights flights;
+		final long storedAt;
+		final long storedMillis;
+
+		Entry(Flights flights, long storedAt, long storedMillis) {
+			this.flights = flights;
+			this.storedAt = storedAt;
+			this.storedMillis = storedMillis;
+		}
+	}
+
+	private final long mTtlNanos;
+	private final int mMaxEntries;
+	private final LinkedHashMap<String, Entry> mEntries;
+	private final AtomicLong mHits = new AtomicLong();
+	private final AtomicLong mMisses = new AtomicLong();
+
+	/**
+	 * Initializing constructor
+	 *
+	 * @param ttlMillis time in milliseconds a flight list stays valid
+	 * @param maxEntries maximum number of flight lists held before the least recently used is evicted
+	 */
+	public FlightCache(long ttlMillis, int maxEntries) {
+		mTtlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		mMaxEntries = maxEntries;
+		mEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > mMaxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Look up a flight list
+	 *
+	 * @param team identifies the ticket agency
+	 * @param airportCode code of the departure or arrival airport
+	 * @param day day of the list in yyyy_MM_dd format
+	 * @param isByDeparture true for departing flights, false for arriving flights
+	 * @return a copy of the cached list, or null if it is not cached or has expired
+	 */
+	public synchronized Flights get(String team, String airportCode, String day, boolean isByDeparture) {
+		String key = key(team, airportCode, day, isByDeparture);
+		Entry entry = mEntries.get(key);
+		if (entry != null && System.nanoTime() - entry.storedAt >= mTtlNanos) {
+			mEntries.remove(key);
+			entry = null;
+		}
+		if (entry == null) {
+			mMisses.incrementAndGet();
+			return null;
+		}
+		mHits.incrementAndGet();
+		return copy(entry.flights);
+	}
+
+	/**
+	 * Store a flight list, replacing any list already cached for the same key
+	 *
+	 * @param team identifies the ticket agency
+	 * @param airportCode code of the departure or arrival airport
+	 * @param day day of the list in yyyy_MM_dd format
+	 * @param isByDeparture true for departing flights, false for arriving flights
+	 * @param flights the flight list returned by the server
+	 */
+	public synchronized void put(String team, String airportCode, String day, boolean isByDeparture, Flights flights) {
+		mEntries.put(key(team, airportCode, day, isByDeparture), new Entry(copy(flights), System.nanoTime(), System.currentTimeMillis()));
+	}
+
+	/**
+	 * Copy out the lists of one team that have not expired
+	 *
+	 * @param team identifies the ticket agency
+	 * @return copies of the lists keyed by airport|yyyy_MM_dd|D for departing or A for arriving
+	 */
+	public synchronized Map<String, Flights> lists(String team) {
+		Map<String, Flights> lists = new HashMap<String, Flights>();
+		String prefix = team + '|';
+		long now = System.nanoTime();
+		for (Map.Entry<String, Entry> entry : mEntries.entrySet()) {
+			if (entry.getKey().startsWith(prefix) && now - entry.getValue().storedAt < mTtlNanos) {
+				lists.put(entry.getKey().substring(prefix.length()), copy(entry.getValue().flights));
+			}
+		}
+		return lists;
+	}
+
+	/**
+	 * Copy out when the lists of one team that have not expired were stored
+	 *
+	 * @param team identifies the ticket agency
+	 * @return time each list was stored in milliseconds since the epoch, keyed like lists
+	 */
+	public synchronized Map<String, Long> storedAt(String team) {
+		Map<String, Long> times = new HashMap<String, Long>();
+		String prefix = team + '|';
+		long now = System.nanoTime();
+		for (Map.Entry<String, Entry> entry : mEntries.entrySet()) {
+			if (entry.getKey().startsWith(prefix) && now - entry.getValue().storedAt < mTtlNanos) {
+				times.put(entry.getKey().substring(prefix.length()), entry.getValue().storedMillis);
+			}
+		}
+		return times;
+	}
+
+	/**
+	 * Drop every cached list. Called after tickets are bought since seat counts have changed.
+	 */
+	public synchronized void invalidateAll() {
+		mEntries.clear();
+	}
+
+	/**
+	 * @return number of flight lists currently cached
+	 */
+	public synchronized int size() {
+		return mEntries.size();
+	}
+
+	/**
+	 * @return number of lookups answered from the cache
+	 */
+	public long hits() {
+		return mHits.get();
+	}
+
+	/**
+	 * @return number of lookups that had to go to the server
+	 */
+	public long misses() {
+		return mMisses.get();
+	}
+
+	private static String key(String team, String airportCode, String day, boolean isByDeparture) {
+		return team + '|' + airportCode + '|' + day + '|' + (isByDeparture ? 'D' : 'A');
+	}
+
+	private static Flights copy(Flights flights) {
+		Flights copy = new Flights();
+		copy.addAll(flights);
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		return "FlightCache[size=" + size() + ", hits=" + hits() + ", misses=" + misses() + "]";
+	}
+}
@@ -0,0 +1,250 @@
+/**
+ *
+ */
+package CS509.client.dao;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import CS509.client.dao.ServerMetrics.Action;
+
+/**
+ * This class is the HTTP transport to the CS509 server. A single java.net.http.HttpClient is
+ * shared by every request, so connections to the server are kept alive and reused instead of
+ * opened for each call. HTTP/2 is used when the server supports it, otherwise HTTP/1.1.
+ *
+ * The connect timeout bounds establishing a connection, the read timeout bounds the wait
+ * for the response headers of each request.
+ *
+ * Every request is recorded in a ServerMetrics under its QueryFactory action: the time until the
+ * response headers arrive, the status code or the failure, and the body bytes once they are read.
+ *
+ * @author Team C
+ *
+ */
+public class HttpTransport {
+
+	private final HttpClient mClient;
+	private final String mUrlBase;
+	private final Duration mReadTimeout;
+	private final ServerMetrics mMetrics;
+
+	/**
+	 * Initializing constructor, requests are recorded in ServerMetrics.global()
+	 *
+	 * @param urlBase base URL of the reservation system, queries are appended to it
+	 * @param connectTimeoutMillis time in milliseconds allowed to establish a connection
+	 * @param readTimeoutMillis time in milliseconds allowed for the server to answer a request
+	 */
+	public HttpTransport(String urlBase, long connectTimeoutMillis, long readTimeoutMillis) {
+		this(urlBase, connectTimeoutMillis, readTimeoutMillis, ServerMetrics.global());
+	}
+
+	/**
+	 * Initializing constructor
+	 *
+	 * @param urlBase base URL of the reservation system, queries are appended to it
+	 * @param connectTimeoutMillis time in milliseconds allowed to establish a connection
+	 * @param readTimeoutMillis time in milliseconds allowed for the server to answer a request
+	 * @param metrics where every request is recorded
+	 */
+	public HttpTransport(String urlBase, long connectTimeoutMillis, long readTimeoutMillis, ServerMetrics metrics) {
+		mUrlBase = urlBase;
+		mMetrics = metrics;
+		mReadTimeout = Duration.ofMillis(readTimeoutMillis);
+		mClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.build();
+	}
+
+	/**
+	 * @return base URL of the reservation system
+	 */
+	public String urlBase() {
+		return mUrlBase;
+	}
+
+	/**
+	 * @return where every request is recorded
+	 */
+	public ServerMetrics metrics() {
+		return mMetrics;
+	}
+
+	/**
+	 * Send an HTTP GET and wait for the response headers
+	 *
+	 * @param query query string appended to the base URL
+	 * @param team identifies the ticket agency, sent as the User-Agent
+	 * @return the response, whose body must be read and closed by the caller
+	 * @throws IOException if the request failed or timed out
+	 * @throws InterruptedException if interrupted while waiting for the response
+	 */
+	public HttpResponse<InputStream> get(String query, String team) throws IOException, InterruptedException {
+		Action action = Action.of(query);
+		long start = System.nanoTime();
+		try {
+			HttpResponse<InputStream> response = mClient.send(getRequest(query, team), counted(action));
+			mMetrics.response(action, System.nanoTime() - start, response.statusCode());
+			return response;
+		} catch (IOException | InterruptedException e) {
+			mMetrics.error(action, System.nanoTime() - start);
+			throw e;
+		}
+	}
+
+	/**
+	 * Send an HTTP GET without waiting
+	 *
+	 * @param query query string appended to the base URL
+	 * @param team identifies the ticket agency, sent as the User-Agent
+	 * @return future completed with the response once its headers arrive
+	 */
+	public CompletableFuture<HttpResponse<InputStream>> getAsync(String query, String team) {
+		Action action = Action.of(query);
+		long start = System.nanoTime();
+		return mClient.sendAsync(getRequest(query, team), counted(action)).whenComplete((response, e) -> {
+			if (e == null) {
+				mMetrics.response(action, System.nanoTime() - start, response.statusCode());
+			} else {
+				mMetrics.error(action, System.nanoTime() - start);
+			}
+		});
+	}
+
+	/**
+	 * Send a form encoded HTTP POST to the base URL
+	 *
+	 * @param params form parameters of the post
+	 * @param team identifies the ticket agency, sent as the User-Agent
+	 * @return the response with its body read as a String
+	 * @throws IOException if the request failed or timed out
+	 * @throws InterruptedException if interrupted while waiting for the response
+	 */
+	public HttpResponse<String> post(String params, String team) throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(mUrlBase))
+				.timeout(mReadTimeout)
+				.header("User-Agent", team)
+				.header("Accept-Language", "en-US,en;q=0.5")
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(params))
+				.build();
+		Action action = Action.of(params);
+		long start = System.nanoTime();
+		try {
+			HttpResponse<String> response = mClient.send(request, info -> HttpResponse.BodySubscribers.mapping(
+					HttpResponse.BodySubscribers.ofByteArray(), bytes -> {
+						mMetrics.bytes(action, bytes.length);
+						return new String(bytes, charset(info.headers().firstValue("Content-Type").orElse(null)));
+					}));
+			mMetrics.response(action, System.nanoTime() - start, response.statusCode());
+			return response;
+		} catch (IOException | InterruptedException e) {
+			mMetrics.error(action, System.nanoTime() - start);
+			throw e;
+		}
+	}
+
+	/**
+	 * @return a body handler whose stream records the bytes read under the action once it is closed
+	 */
+	private HttpResponse.BodyHandler<InputStream> counted(Action action) {
+		return info -> HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(),
+				body -> new CountingInputStream(body, action));
+	}
+
+	/**
+	 * @return the charset named by a Content-Type header, UTF-8 if none or an unknown one is named
+	 */
+	private static Charset charset(String contentType) {
+		String name = ServerInterface.charset(contentType);
+		try {
+			return name == null ? StandardCharsets.UTF_8 : Charset.forName(name);
+		} catch (IllegalArgumentException e) {
+			return StandardCharsets.UTF_8;
+		}
+	}
+
+	/**
+	 * Response body counting the bytes read through it
+	 */
+	private final class CountingInputStream extends FilterInputStream {
+		private final Action mAction;
+		private long mBytes;
+		private boolean mClosed;
+
+		CountingInputStream(InputStream in, Action action) {
+			super(in);
+			mAction = action;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				mBytes++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int n = super.read(buffer, offset, length);
+			if (n > 0) {
+				mBytes += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			mBytes += skipped;
+			return skipped;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!mClosed) {
+				mClosed = true;
+				mMetrics.bytes(mAction, mBytes);
+			}
+			super.close();
+		}
+	}
+
+	private HttpRequest getRequest(String query, String team) {
+		return HttpRequest.newBuilder(URI.create(mUrlBase + query))
+				.timeout(mReadTimeout)
+				.header("User-Agent", team)
+				.GET()
+				.build();
+	}
+
+	/**
+	 * @param statusCode HTTP status code of a response
+	 * @return true for a 2xx status
+	 */
+	static boolean isSuccess(int statusCode) {
+		return (statusCode >= 200) && (statusCode <= 299);
+	}
+
+	/**
+	 * @param response a response from the server
+	 * @return the charset declared in its Content-Type header, or null if none is declared
+	 */
+	static String charset(HttpResponse<?> response) {
+		return ServerInterface.charset(response.headers().firstValue("Content-Type").orElse(null));
+	}
+}
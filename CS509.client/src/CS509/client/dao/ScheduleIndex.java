@@ -0,0 +1,318 @@
+/**
+ *
+ */
+package CS509.client.dao;
+
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import CS509.client.flight.Flight;
+import CS509.client.flight.Flights;
+
+/**
+ * This class holds the whole flight schedule of one team in memory. It is filled once by
+ * preload, which fetches the departing and arriving lists of every airport for every day of the
+ * database window in parallel, and then answers flight list requests without the server.
+ *
+ * Lists are handed out as copies so callers are free to modify what they get. When tickets are
+ * bought the lists holding the reserved flights are marked stale and no longer answered, then
+ * fetched again once the server lock is released so seat counts stay current.
+ *
+ * @author Team C
+ *
+ */
+public class ScheduleIndex {
+
+	private static final DateTimeFormatter WINDOW_FORMATTER = DateTimeFormatter.ofPattern("yyyy MMM dd HH:mm", Locale.US);
+	private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyy_MM_dd");
+	private static final Pattern FLIGHT_NUMBER = Pattern.compile("number=\"([^\"]+)\"");
+
+	private final String mTeam;
+	private final Map<String, Flight[]> mLists = new ConcurrentHashMap<String, Flight[]>();
+	private final Map<String, Long> mFetched = new ConcurrentHashMap<String, Long>();
+	private final Map<String, Set<String>> mListsByFlight = new ConcurrentHashMap<String, Set<String>>();
+	private final Set<String> mStale = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Initializing constructor, the index starts empty
+	 *
+	 * @param team the ticket agency whose schedule is held
+	 */
+	public ScheduleIndex(String team) {
+		mTeam = team;
+	}
+
+	/**
+	 * Fetch the departing and arriving lists of every airport for every day and hold them in a new index
+	 *
+	 * Lists that cannot be fetched are left out, requests for them go to the server as before.
+	 *
+	 * @param resSys interface to the server
+	 * @param team the ticket agency
+	 * @param airportCodes codes of every airport
+	 * @param days every day to load in yyyy_MM_dd format
+	 * @param concurrency maximum number of requests sent to the server at the same time
+	 * @param progress where progress and timing are reported, null to stay silent
+	 * @return the filled index
+	 * @throws InterruptedException if interrupted while waiting for the server
+	 */
+	public static ScheduleIndex preload(ServerInterface resSys, String team, Collection<String> airportCodes,
+			List<String> days, int concurrency, PrintStream progress) throws InterruptedException {
+		ScheduleIndex index = new ScheduleIndex(team);
+		long start = System.nanoTime();
+		int total = airportCodes.size() * days.size() * 2;
+		AtomicInteger done = new AtomicInteger();
+		AtomicInteger failed = new AtomicInteger();
+		AtomicInteger reported = new AtomicInteger();
+		Semaphore permits = new Semaphore(concurrency);
+		List<CompletableFuture<Void>> fetches = new ArrayList<CompletableFuture<Void>>(total);
+
+		for (String day : days) {
+			for (String code : airportCodes) {
+				for (boolean isByDeparture : new boolean[] {true, false}) {
+					permits.acquire();
+					fetches.add(resSys.requestFlights(team, code, day, isByDeparture).handle((flights, e) -> {
+						permits.release();
+						if (e == null) {
+							index.put(code, day, isByDeparture, flights);
+						} else {
+							failed.incrementAndGet();
+						}
+						int percent = done.incrementAndGet() * 100 / total;
+						int last = reported.get();
+						if (progress != null && percent / 10 > last / 10 && reported.compareAndSet(last, percent)) {
+							progress.println("Loading flights... " + percent + "%");
+						}
+						return null;
+					}));
+				}
+			}
+		}
+		CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[0])).join();
+
+		if (progress != null) {
+			progress.printf("Loaded %d flight lists (%d flights) in %.1f s%s%n", index.lists(), index.flights(),
+					(System.nanoTime() - start) / 1e9, failed.get() == 0 ? "" : ", " + failed.get() + " could not be loaded");
+		}
+		return index;
+	}
+
+	/**
+	 * Hold flight lists already at hand, e.g. copied out of another index or a synthetic schedule
+	 *
+	 * @param team the ticket agency whose schedule is held
+	 * @param lists flight lists keyed by airport|yyyy_MM_dd|D for departing or A for arriving
+	 * @return the filled index
+	 * @throws IllegalArgumentException if a key is not in that format
+	 */
+	public static ScheduleIndex of(String team, Map<String, Flights> lists) {
+		ScheduleIndex index = new ScheduleIndex(team);
+		for (Map.Entry<String, Flights> list : lists.entrySet()) {
+			String[] parts = list.getKey().split("\\|");
+			if (parts.length != 3 || !(parts[2].equals("D") || parts[2].equals("A"))) {
+				throw new IllegalArgumentException("Not a flight list key: " + list.getKey());
+			}
+			index.put(parts[0], parts[1], parts[2].equals("D"), list.getValue());
+		}
+		return index;
+	}
+
+	/**
+	 * Lists every day of a window
+	 *
+	 * @param start first day of the window in yyyy MMM dd HH:mm format, e.g. Sp.START
+	 * @param end last day of the window in yyyy MMM dd HH:mm format, e.g. Sp.END
+	 * @return every day from start to end in yyyy_MM_dd format
+	 */
+	public static List<String> days(String start, String end) {
+		List<String> days = new ArrayList<String>();
+		LocalDate last = LocalDate.parse(end, WINDOW_FORMATTER);
+		for (LocalDate day = LocalDate.parse(start, WINDOW_FORMATTER); !day.isAfter(last); day = day.plusDays(1)) {
+			days.add(day.format(DAY_FORMATTER));
+		}
+		return days;
+	}
+
+	/**
+	 * Look up a flight list
+	 *
+	 * @param team identifies the ticket agency
+	 * @param airportCode code of the departure or arrival airport
+	 * @param day day of the list in yyyy_MM_dd format
+	 * @param isByDeparture true for departing flights, false for arriving flights
+	 * @return a copy of the list, or null if the index does not hold it
+	 */
+	public Flights get(String team, String airportCode, String day, boolean isByDeparture) {
+		if (!mTeam.equals(team)) {
+			return null;
+		}
+		Flight[] list = mLists.get(key(airportCode, day, isByDeparture));
+		if (list == null) {
+			return null;
+		}
+		Flights flights = new Flights();
+		flights.addAll(Arrays.asList(list));
+		return flights;
+	}
+
+	/**
+	 * Store a flight list, replacing the one held for the same airport, day and direction
+	 *
+	 * @param airportCode code of the departure or arrival airport
+	 * @param day day of the list in yyyy_MM_dd format
+	 * @param isByDeparture true for departing flights, false for arriving flights
+	 * @param flights the flight list returned by the server
+	 */
+	void put(String airportCode, String day, boolean isByDeparture, Flights flights) {
+		String key = key(airportCode, day, isByDeparture);
+		mFetched.put(key, System.currentTimeMillis());
+		mLists.put(key, flights.toArray(new Flight[0]));
+		for (Flight flight : flights) {
+			mListsByFlight.computeIfAbsent(flight.getmNumber(), n -> ConcurrentHashMap.newKeySet()).add(key);
+		}
+	}
+
+	/**
+	 * Fetch again every list holding a flight of a reservation, since their seat counts changed,
+	 * and wait for them. A list that cannot be fetched is dropped so requests for it go to the server.
+	 *
+	 * @param resSys interface to the server
+	 * @param xmlReservation the reservation sent to the server, listing the flight numbers
+	 */
+	public void refresh(ServerInterface resSys, String xmlReservation) {
+		markStale(xmlReservation);
+		refreshStale(resSys).join();
+	}
+
+	/**
+	 * Stop answering every list holding a flight of a reservation, since their seat counts changed.
+	 * Requests for them go to the server until refreshStale fetches them again. Nothing is sent to
+	 * the server, so this is safe while the server lock is held.
+	 *
+	 * @param xmlReservation the reservation sent to the server, listing the flight numbers
+	 */
+	public void markStale(String xmlReservation) {
+		Matcher matcher = FLIGHT_NUMBER.matcher(xmlReservation);
+		while (matcher.find()) {
+			Set<String> lists = mListsByFlight.get(matcher.group(1));
+			if (lists != null) {
+				for (String key : lists) {
+					if (mLists.remove(key) != null) {
+						mStale.add(key);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fetch again every list marked stale, without waiting. A list that cannot be fetched stays
+	 * out of the index so requests for it go to the server.
+	 *
+	 * @param resSys interface to the server
+	 * @return future completed once every stale list was fetched or given up
+	 */
+	public CompletableFuture<Void> refreshStale(ServerInterface resSys) {
+		List<CompletableFuture<Void>> fetches = new ArrayList<CompletableFuture<Void>>();
+		for (String key : mStale) {
+			if (!mStale.remove(key)) {
+				continue;
+			}
+			String[] parts = key.split("\\|");
+			boolean isByDeparture = parts[2].equals("D");
+			fetches.add(resSys.requestFlights(mTeam, parts[0], parts[1], isByDeparture).handle((flights, e) -> {
+				if (e == null) {
+					put(parts[0], parts[1], isByDeparture, flights);
+				}
+				return null;
+			}));
+		}
+		return CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[0]));
+	}
+
+	/**
+	 * @return number of lists marked stale and not fetched again yet
+	 */
+	public int staleLists() {
+		return mStale.size();
+	}
+
+	/**
+	 * Copy out every list held for a team
+	 *
+	 * @param team identifies the ticket agency
+	 * @return copies of the lists keyed by airport|yyyy_MM_dd|D for departing or A for arriving
+	 */
+	public Map<String, Flights> lists(String team) {
+		Map<String, Flights> lists = new HashMap<String, Flights>();
+		if (mTeam.equals(team)) {
+			for (Map.Entry<String, Flight[]> list : mLists.entrySet()) {
+				Flights flights = new Flights();
+				flights.addAll(Arrays.asList(list.getValue()));
+				lists.put(list.getKey(), flights);
+			}
+		}
+		return lists;
+	}
+
+	/**
+	 * Copy out when every list held for a team was stored
+	 *
+	 * @param team identifies the ticket agency
+	 * @return time each list was stored in milliseconds since the epoch, keyed like lists
+	 */
+	public Map<String, Long> storedAt(String team) {
+		Map<String, Long> times = new HashMap<String, Long>();
+		if (mTeam.equals(team)) {
+			for (String key : mLists.keySet()) {
+				Long fetched = mFetched.get(key);
+				if (fetched != null) {
+					times.put(key, fetched);
+				}
+			}
+		}
+		return times;
+	}
+
+	/**
+	 * @return number of flight lists held
+	 */
+	public int lists() {
+		return mLists.size();
+	}
+
+	/**
+	 * @return number of flights held, counting a flight once per list it is in
+	 */
+	public int flights() {
+		int flights = 0;
+		for (Flight[] list : mLists.values()) {
+			flights += list.length;
+		}
+		return flights;
+	}
+
+	private static String key(String airportCode, String day, boolean isByDeparture) {
+		return airportCode + '|' + day + '|' + (isByDeparture ? 'D' : 'A');
+	}
+
+	@Override
+	public String toString() {
+		return "ScheduleIndex[team=" + mTeam + ", lists=" + lists() + ", flights=" + flights() + "]";
+	}
+}
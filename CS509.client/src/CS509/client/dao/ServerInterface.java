@@ -3,20 +3,30 @@
  */
 package CS509.client.dao;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import CS509.client.util.QueryFactory;
+import CS509.client.util.SearchEvents;
+import CS509.client.util.Sp;
+import CS509.client.airplane.Airplanes;
+import CS509.client.airport.Airports;
 import CS509.client.flight.Flights;
 
 /**
  * This class provides an interface to the CS509 server. It provides sample methods to perform
  * HTTP GET and HTTP POSTS
+ * 
+ * Requests go through an HttpTransport. Unless another transport is given, every instance shares
+ * one transport to mUrlBase so connections to the server are pooled and reused.
+ * mUrlBase is Sp.SERVER_URL unless the cs509.server system property names another server, e.g. a StubServer.
+ * useTransport replaces the shared transport, e.g. to reserve against a StubServer in a test.
  *   
  * @author blake
  * @version 1.1
@@ -25,61 +35,254 @@ import CS509.client.flight.Flights;
  */
 public class ServerInterface {
 	
-	private final static String mUrlBase = "http://cs509.cs.wpi.edu:8181/CS509.server/ReservationSystem";
+	/**
+	 * System property holding the base URL of the reservation system, e.g. the url() of a StubServer
+	 */
+	public final static String SERVER_PROPERTY = "cs509.server";
+
+	private final static String mUrlBase = System.getProperty(SERVER_PROPERTY, Sp.SERVER_URL);
+	private final static HttpTransport mServerTransport = new HttpTransport(mUrlBase, Sp.CONNECT_TIMEOUT, Sp.READ_TIMEOUT);
+	private static volatile HttpTransport mDefaultTransport = mServerTransport;
+	private final static FlightCache mFlightCache = new FlightCache(Sp.FLIGHT_CACHE_TTL, Sp.FLIGHT_CACHE_SIZE);
+	private static volatile ScheduleIndex mSchedule;
+	private static volatile Snapshot mSnapshot;
+	private static volatile Fetched<Airports> mFetchedAirports;
+	private static volatile Fetched<Airplanes> mFetchedAirplanes;
+
+	/**
+	 * A list fetched from the server, kept for the snapshot with its team and the time it was fetched
+	 */
+	private static final class Fetched<T> {
+		final String team;
+		final T list;
+		final long at;
+
+		Fetched(String team, T list) {
+			this.team = team;
+			this.list = list;
+			this.at = System.currentTimeMillis();
+		}
+	}
+
+	private final HttpTransport mTransport;
+
+	/**
+	 * Default constructor, talks to the CS509 server through the shared transport
+	 */
+	public ServerInterface() {
+		this(mDefaultTransport);
+	}
 
 	/**
-	 * Return an XML list of all the airports
+	 * Initializing constructor
 	 * 
-	 * Retrieve the list of airports available to the specified ticketAgency via HTTPGet of the server
+	 * @param transport transport used for every request, e.g. one pointed at a local stub server
+	 */
+	public ServerInterface(HttpTransport transport) {
+		mTransport = transport;
+	}
+
+	/**
+	 * Send the requests of lock, unlock, buyTickets and every new default ServerInterface through another transport
 	 * 
-	 * @param team identifies the ticket agency requesting the information
-	 * @return xml string listing all airports
+	 * @param transport the transport to share, null to go back to the transport to mUrlBase
 	 */
-	public String getAirports (String team) {
+	public static void useTransport(HttpTransport transport) {
+		mDefaultTransport = transport == null ? mServerTransport : transport;
+	}
 
-		URL url;
-		HttpURLConnection connection;
-		BufferedReader reader;
-		String line;
-		StringBuffer result = new StringBuffer();
+	/**
+	 * Return the cache shared by all ServerInterface instances for flight lists
+	 * 
+	 * @return the flight list cache, exposing its hit and miss counters
+	 */
+	public static FlightCache flightCache() {
+		return mFlightCache;
+	}
 
-		try {
-			/**
-			 * Create an HTTP connection to the server for a GET 
-			 */
-			url = new URL(mUrlBase + QueryFactory.getAirports(team));
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("GET");
-			connection.setRequestProperty("User-Agent", team);
+	/**
+	 * Answer flight list requests from a preloaded schedule before the cache and the server
+	 * 
+	 * @param schedule the preloaded schedule, null to go back to fetching lists on demand
+	 */
+	public static void useSchedule(ScheduleIndex schedule) {
+		mSchedule = schedule;
+	}
+
+	/**
+	 * @return the preloaded schedule in use, null if lists are fetched on demand
+	 */
+	public static ScheduleIndex schedule() {
+		return mSchedule;
+	}
+
+	/**
+	 * Answer airports, airplanes and flight lists from a snapshot of an earlier run before going to the server
+	 * 
+	 * @param snapshot the snapshot, null to stop using one
+	 */
+	public static void useSnapshot(Snapshot snapshot) {
+		mSnapshot = snapshot;
+	}
+
+	/**
+	 * @return the snapshot in use, null if none
+	 */
+	public static Snapshot snapshot() {
+		return mSnapshot;
+	}
+
+	/**
+	 * Fetch again, without waiting, the preloaded lists whose seat counts changed when tickets were bought.
+	 * Call it after unlock so the server lock is not held while the lists are fetched.
+	 * 
+	 * @return future completed once the lists were fetched, at once if no schedule is preloaded
+	 */
+	public static CompletableFuture<Void> refreshSchedule() {
+		ScheduleIndex schedule = mSchedule;
+		if (schedule == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return schedule.refreshStale(new ServerInterface());
+	}
+
+	/**
+	 * Collect the flight lists held in memory, from the preloaded schedule if there is one, else from the flight cache
+	 * 
+	 * @param team identifies the ticket agency
+	 * @return the lists keyed by airport|yyyy_MM_dd|D for departing or A for arriving, as stored in a Snapshot
+	 */
+	public static Map<String, Flights> flightLists(String team) {
+		ScheduleIndex schedule = mSchedule;
+		return schedule != null ? schedule.lists(team) : mFlightCache.lists(team);
+	}
+
+	/**
+	 * Save what was fetched from the server to a snapshot for the next start. Airports, airplanes and
+	 * flight lists the snapshot in use answered are carried over with the time they were fetched, so
+	 * they still go stale on time, and nothing is written unless something came from the server.
+	 * The snapshot in use is closed and no longer used, since its file is replaced.
+	 * 
+	 * @param file the snapshot file
+	 * @param team identifies the ticket agency
+	 * @return true if the snapshot was written, false if nothing was fetched from the server
+	 * @throws IOException if the file could not be written
+	 */
+	public static boolean saveSnapshot(Path file, String team) throws IOException {
+		Snapshot snapshot = mSnapshot;
+		Map<String, Flights> lists = flightLists(team);
+		ScheduleIndex schedule = mSchedule;
+		Map<String, Long> listsFetched = schedule != null ? schedule.storedAt(team) : mFlightCache.storedAt(team);
+		Fetched<Airports> fetchedAirports = mFetchedAirports;
+		if (fetchedAirports != null && !fetchedAirports.team.equals(team)) {
+			fetchedAirports = null;
+		}
+		Fetched<Airplanes> fetchedAirplanes = mFetchedAirplanes;
+		if (fetchedAirplanes != null && !fetchedAirplanes.team.equals(team)) {
+			fetchedAirplanes = null;
+		}
+		if (lists.isEmpty() && fetchedAirports == null && fetchedAirplanes == null) {
+			return false;
+		}
 
+		Airports airports = new Airports();
+		long airportsFetched = 0;
+		Airplanes airplanes = new Airplanes();
+		long airplanesFetched = 0;
+		if (snapshot != null && snapshot.team().equals(team)) {
+			airports = snapshot.airports();
+			airportsFetched = snapshot.airportsFetched();
+			airplanes = snapshot.airplanes();
+			airplanesFetched = snapshot.airplanesFetched();
+			for (String key : snapshot.listKeys()) {
+				Flights flights = lists.containsKey(key) ? null : snapshot.flights(key);
+				if (flights != null) {
+					lists.put(key, flights);
+					listsFetched.put(key, snapshot.listFetched(key));
+				}
+			}
+		}
+		if (fetchedAirports != null) {
+			airports = fetchedAirports.list;
+			airportsFetched = fetchedAirports.at;
+		}
+		if (fetchedAirplanes != null) {
+			airplanes = fetchedAirplanes.list;
+			airplanesFetched = fetchedAirplanes.at;
+		}
+		if (snapshot != null) {
+			useSnapshot(null);
+			snapshot.close();
+		}
+		Snapshot.write(file, team, airports, airportsFetched, airplanes, airplanesFetched, lists, listsFetched);
+		return true;
+	}
+
+	/**
+	 * Return the list of all the airports
+	 * 
+	 * Retrieve the list of airports available to the specified ticketAgency via HTTPGet of the server.
+	 * The response is parsed straight from the connection stream using the charset declared by the server.
+	 * 
+	 * @param team identifies the ticket agency requesting the information
+	 * @return all airports, empty if the server could not be reached or the list could not be read whole
+	 */
+	public Airports getAirports (String team) {
+		Snapshot snapshot = mSnapshot;
+		if (snapshot != null && snapshot.team().equals(team)) {
+			Airports airports = snapshot.airports();
+			if (!airports.isEmpty()) {
+				return airports;
+			}
+		}
+		Airports airports = new Airports();
+		try {
+			HttpResponse<InputStream> response = mTransport.get(QueryFactory.getAirports(team), team);
 			/**
-			 * If response code of SUCCESS read the XML string returned
-			 * line by line to build the full return string
+			 * If response code of SUCCESS parse the XML returned
 			 */
-			int responseCode = connection.getResponseCode();
-			if ((responseCode >= 200) && (responseCode <= 299)) {
-				InputStream inputStream = connection.getInputStream();
-				String encoding = connection.getContentEncoding();
-				encoding = (encoding == null ? "URF-8" : encoding);
-
-				reader = new BufferedReader(new InputStreamReader(inputStream));
-				while ((line = reader.readLine()) != null) {
-					result.append(line);
+			try (InputStream inputStream = response.body()) {
+				if (HttpTransport.isSuccess(response.statusCode())) {
+					airports.addAll(inputStream, HttpTransport.charset(response));
+					fetched(team, airports);
 				}
-				reader.close();
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		} catch (IOException e) {
 			e.printStackTrace();
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		return airports;
+	}
 
-		return result.toString();
+	/**
+	 * Return the list of all the airports without blocking
+	 * 
+	 * @param team identifies the ticket agency requesting the information
+	 * @return future completed with all airports, or completed exceptionally if the server could not be reached or the list could not be read whole
+	 */
+	public CompletableFuture<Airports> getAirportsAsync (String team) {
+		return mTransport.getAsync(QueryFactory.getAirports(team), team).thenApply(response -> {
+			Airports airports = new Airports();
+			try (InputStream inputStream = response.body()) {
+				if (HttpTransport.isSuccess(response.statusCode())) {
+					airports.addAll(inputStream, HttpTransport.charset(response));
+					fetched(team, airports);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return airports;
+		});
 	}
 	
 	/**
-	 * Return a String of xml list of all the flights
-	 * Retrieve the list of flights available to the specified ticketAgency via HTTPGet of the server
+	 * Return the list of all the flights
+	 * Retrieve the list of flights available to the specified ticketAgency via HTTPGet of the server.
+	 * Lists already fetched for the same team, airport, day and direction are answered from the flight cache.
+	 * Each call is recorded as a SearchEvents.FetchFlights event naming where the list came from.
 	 * @param team
 	 * @param departCode
 	 * @param arrivalCode
@@ -90,102 +293,229 @@ public class ServerInterface {
 	public Flights getFlights (String team, String departCode,String arrivalCode, String day,boolean isByDeparture) {
 	// public Flight getFlights (String team, String airportCode, String day,boolean isByDeparture) {
 		
-		URL url;
-		HttpURLConnection connection;
-		BufferedReader reader;
-		String line;
-		StringBuffer result = new StringBuffer();
-		String xmlFlights;
+		SearchEvents.FetchFlights event = new SearchEvents.FetchFlights();
+		event.begin();
 		Flights flights;
+		String airportCode = isByDeparture ? departCode : arrivalCode;
+		String source = SearchEvents.FetchFlights.SCHEDULE;
 
-		try {
-			/**
-			 * Create an HTTP connection to the server for a GET 
-			 */
-			if(isByDeparture)url = new URL(mUrlBase + QueryFactory.getFlightsDeparting(team,departCode,day));
-			else url = new URL(mUrlBase + QueryFactory.getFlightsArriving(team, arrivalCode, day));
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("GET");
-			connection.setRequestProperty("User-Agent", team);
-			// System.out.println(url);
-			/**
-			 * If response code of SUCCESS read the XML string returned
-			 * line by line to build the full return string
-			 */
-			int responseCode = connection.getResponseCode();
-			if ((responseCode >= 200) && (responseCode <= 299)) {
-				InputStream inputStream = connection.getInputStream();
-				String encoding = connection.getContentEncoding();
-				encoding = (encoding == null ? "URF-8" : encoding);
-
-				reader = new BufferedReader(new InputStreamReader(inputStream));
-				while ((line = reader.readLine()) != null) {
-					result.append(line);
-					result.append(System.getProperty("line.separator"));
+		flights = preloaded(team, airportCode, day, isByDeparture);
+		if (flights == null) {
+			source = SearchEvents.FetchFlights.CACHE;
+			flights = mFlightCache.get(team, airportCode, day, isByDeparture);
+		}
+		if (flights == null) {
+			source = SearchEvents.FetchFlights.SERVER;
+			try {
+				HttpResponse<InputStream> response = mTransport.get(flightsQuery(team, departCode, arrivalCode, day, isByDeparture), team);
+				flights = readFlights(response, team, airportCode, day, isByDeparture);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (IOException e) {
+				e.printStackTrace();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		if (flights == null) {
+			flights = new Flights();
+		}
+		event.finish(airportCode, day, isByDeparture, source, flights.size());
+		return flights;
+	}
+
+	/**
+	 * Return the list of all the flights without blocking
+	 * Lists already fetched for the same team, airport, day and direction are answered from the flight cache.
+	 * 
+	 * @param team identifies the ticket agency requesting the information
+	 * @param departCode code of the departure airport, used when isByDeparture
+	 * @param arrivalCode code of the arrival airport, used when not isByDeparture
+	 * @param day day of the flights in yyyy_MM_dd format
+	 * @param isByDeparture true for departing flights, false for arriving flights
+	 * @return future completed with the flights, or completed exceptionally if the server could not be reached
+	 */
+	public CompletableFuture<Flights> getFlightsAsync (String team, String departCode, String arrivalCode, String day, boolean isByDeparture) {
+		SearchEvents.FetchFlights event = new SearchEvents.FetchFlights();
+		event.begin();
+		String airportCode = isByDeparture ? departCode : arrivalCode;
+
+		Flights cached = preloaded(team, airportCode, day, isByDeparture);
+		if (cached != null) {
+			event.finish(airportCode, day, isByDeparture, SearchEvents.FetchFlights.SCHEDULE, cached.size());
+			return CompletableFuture.completedFuture(cached);
+		}
+		cached = mFlightCache.get(team, airportCode, day, isByDeparture);
+		if (cached != null) {
+			event.finish(airportCode, day, isByDeparture, SearchEvents.FetchFlights.CACHE, cached.size());
+			return CompletableFuture.completedFuture(cached);
+		}
+		return mTransport.getAsync(flightsQuery(team, departCode, arrivalCode, day, isByDeparture), team).thenApply(response -> {
+			try {
+				return readFlights(response, team, airportCode, day, isByDeparture);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}).whenComplete((flights, e) -> {
+			// failed and timed out fetches are recorded too, with no flights
+			event.finish(airportCode, day, isByDeparture, SearchEvents.FetchFlights.SERVER, flights == null ? 0 : flights.size());
+		});
+	}
+
+	/**
+	 * Fetch a flight list from the server, bypassing the preloaded schedule and the flight cache
+	 * 
+	 * @param team identifies the ticket agency requesting the information
+	 * @param airportCode code of the departure or arrival airport
+	 * @param day day of the flights in yyyy_MM_dd format
+	 * @param isByDeparture true for departing flights, false for arriving flights
+	 * @return future completed with the flights, or completed exceptionally unless the server answered with SUCCESS
+	 */
+	CompletableFuture<Flights> requestFlights (String team, String airportCode, String day, boolean isByDeparture) {
+		return mTransport.getAsync(flightsQuery(team, airportCode, airportCode, day, isByDeparture), team).thenApply(response -> {
+			try (InputStream inputStream = response.body()) {
+				if (!HttpTransport.isSuccess(response.statusCode())) {
+					throw new CompletionException(new IOException("Server answered " + response.statusCode()));
 				}
-				reader.close();
+				return Flights.addAllf(inputStream, HttpTransport.charset(response));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		} catch (Exception e) {
-			e.printStackTrace();
+		});
+	}
+
+	/**
+	 * Look up a flight list in the preloaded schedule, then in the snapshot
+	 */
+	private static Flights preloaded (String team, String airportCode, String day, boolean isByDeparture) {
+		ScheduleIndex schedule = mSchedule;
+		Flights flights = schedule == null ? null : schedule.get(team, airportCode, day, isByDeparture);
+		Snapshot snapshot = mSnapshot;
+		if (flights == null && snapshot != null && snapshot.team().equals(team)) {
+			flights = snapshot.flights(airportCode, day, isByDeparture);
 		}
-		// return result.toString();
-		
-		xmlFlights =  result.toString();
-		flights = Flights.addAllf(xmlFlights);
 		return flights;
 	}
+
+	/**
+	 * Keep a copy of the airports fetched from the server for the snapshot
+	 */
+	private static void fetched (String team, Airports airports) {
+		if (!airports.isEmpty()) {
+			Airports copy = new Airports();
+			copy.addAll(airports);
+			mFetchedAirports = new Fetched<Airports>(team, copy);
+		}
+	}
+
+	/**
+	 * Keep a copy of the airplanes fetched from the server for the snapshot
+	 */
+	private static void fetched (String team, Airplanes airplanes) {
+		if (!airplanes.isEmpty()) {
+			Airplanes copy = new Airplanes();
+			copy.addAll(airplanes);
+			mFetchedAirplanes = new Fetched<Airplanes>(team, copy);
+		}
+	}
+
+	private static String flightsQuery (String team, String departCode, String arrivalCode, String day, boolean isByDeparture) {
+		if (isByDeparture) return QueryFactory.getFlightsDeparting(team, departCode, day);
+		return QueryFactory.getFlightsArriving(team, arrivalCode, day);
+	}
+
+	/**
+	 * If response code of SUCCESS parse the XML returned straight from the connection and cache it
+	 */
+	private static Flights readFlights (HttpResponse<InputStream> response, String team, String airportCode, String day, boolean isByDeparture) throws IOException {
+		try (InputStream inputStream = response.body()) {
+			if (!HttpTransport.isSuccess(response.statusCode())) {
+				return new Flights();
+			}
+			Flights flights = Flights.addAllf(inputStream, HttpTransport.charset(response));
+			mFlightCache.put(team, airportCode, day, isByDeparture, flights);
+			return flights;
+		}
+	}
 	
 	/**
-	 * Return an XML list of all the airplanes
+	 * Return the list of all the airplanes
 	 * 
-	 * Retrieve the list of airports available to the specified ticketAgency via HTTPGet of the server
+	 * Retrieve the list of airplanes available to the specified ticketAgency via HTTPGet of the server.
+	 * The response is parsed straight from the connection stream using the charset declared by the server.
 	 * 
 	 * @param team identifies the ticket agency requesting the information
-	 * @return xml string listing all airplanes
+	 * @return all airplanes, empty if the server could not be reached or the list could not be read whole
 	 */
 	
-	public String getAirplanes (String team) {
-
-		URL url;
-		HttpURLConnection connection;
-		BufferedReader reader;
-		String line;
-		StringBuffer result = new StringBuffer();
-
+	public Airplanes getAirplanes (String team) {
+		Snapshot snapshot = mSnapshot;
+		if (snapshot != null && snapshot.team().equals(team)) {
+			Airplanes airplanes = snapshot.airplanes();
+			if (!airplanes.isEmpty()) {
+				return airplanes;
+			}
+		}
+		Airplanes airplanes = new Airplanes();
 		try {
+			HttpResponse<InputStream> response = mTransport.get(QueryFactory.getAirplanes(team), team);
 			/**
-			 * Create an HTTP connection to the server for a GET 
-			 */
-			url = new URL(mUrlBase + QueryFactory.getAirplanes(team));
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("GET");
-			connection.setRequestProperty("User-Agent", team);
-
-			/**
-			 * If response code of SUCCESS read the XML string returned
-			 * line by line to build the full return string
+			 * If response code of SUCCESS parse the XML returned
 			 */
-			int responseCode = connection.getResponseCode();
-			if ((responseCode >= 200) && (responseCode <= 299)) {
-				InputStream inputStream = connection.getInputStream();
-				String encoding = connection.getContentEncoding();
-				encoding = (encoding == null ? "URF-8" : encoding);
-
-				reader = new BufferedReader(new InputStreamReader(inputStream));
-				while ((line = reader.readLine()) != null) {
-					result.append(line);
+			try (InputStream inputStream = response.body()) {
+				if (HttpTransport.isSuccess(response.statusCode())) {
+					airplanes.addAll(inputStream, HttpTransport.charset(response));
+					fetched(team, airplanes);
 				}
-				reader.close();
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		} catch (IOException e) {
 			e.printStackTrace();
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		return airplanes;
+	}
 
-		return result.toString();
+	/**
+	 * Return the list of all the airplanes without blocking
+	 * 
+	 * @param team identifies the ticket agency requesting the information
+	 * @return future completed with all airplanes, or completed exceptionally if the server could not be reached or the list could not be read whole
+	 */
+	public CompletableFuture<Airplanes> getAirplanesAsync (String team) {
+		return mTransport.getAsync(QueryFactory.getAirplanes(team), team).thenApply(response -> {
+			Airplanes airplanes = new Airplanes();
+			try (InputStream inputStream = response.body()) {
+				if (HttpTransport.isSuccess(response.statusCode())) {
+					airplanes.addAll(inputStream, HttpTransport.charset(response));
+					fetched(team, airplanes);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return airplanes;
+		});
+	}
+	
+	/**
+	 * Find the charset declared in a Content-Type header
+	 * 
+	 * @param contentType value of the Content-Type header, may be null
+	 * @return the declared charset, or null to let the XML parser detect the encoding
+	 */
+	static String charset (String contentType) {
+		if (contentType == null) {
+			return null;
+		}
+		for (String param : contentType.split(";")) {
+			String[] pair = param.trim().split("=", 2);
+			if (pair.length == 2 && pair[0].trim().equalsIgnoreCase("charset")) {
+				return pair[1].trim().replace("\"", "");
+			}
+		}
+		return null;
 	}
 	
 	/**
@@ -194,40 +524,18 @@ public class ServerInterface {
 	 * @param team is the name of team requesting server lock
 	 * @return true if the server was locked successfully, else false
 	 */
-	@SuppressWarnings("unused")
 	public static boolean lock (String team) {
-		URL url;
-		HttpURLConnection connection;
-
 		try {
-			url = new URL(mUrlBase);
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("POST");
-			connection.setRequestProperty("User-Agent", team);
-			connection.setRequestProperty("Accept-Language", "en-US,en;q=0.5");
-			
-			String params = QueryFactory.lock(team);
-			
-			connection.setDoOutput(true);
-			DataOutputStream writer = new DataOutputStream(connection.getOutputStream());
-			writer.writeBytes(params);
-			writer.flush();
-			writer.close();
-			
-			int responseCode = connection.getResponseCode();
+			HttpResponse<String> response = mDefaultTransport.post(QueryFactory.lock(team), team);
 //			System.out.println("\nSending 'POST' to lock database");
-//			System.out.println(("\nResponse Code : " + responseCode));
-			
-			BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-			String line;
-			StringBuffer response = new StringBuffer();
-			
-			while ((line = in.readLine()) != null) {
-				response.append(line);
+//			System.out.println(("\nResponse Code : " + response.statusCode()));
+			if (response.statusCode() >= 400) {
+				return false;
 			}
-			in.close();
-			
-//			System.out.println(response.toString());
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
 		}
 		catch (Exception ex) {
 			ex.printStackTrace();
@@ -246,40 +554,13 @@ public class ServerInterface {
 	 * @return true if the server was successfully unlocked.
 	 */
 	public static boolean unlock (String team) {
-		URL url;
-		HttpURLConnection connection;
-		
 		try {
-			url = new URL(mUrlBase);
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("POST");
-			
-			String params = QueryFactory.unlock(team);
-			
-			connection.setDoOutput(true);
-			connection.setDoInput(true);
-			
-			DataOutputStream writer = new DataOutputStream(connection.getOutputStream());
-			writer.writeBytes(params);
-			writer.flush();
-			writer.close();
-		    
-			int responseCode = connection.getResponseCode();
+			mDefaultTransport.post(QueryFactory.unlock(team), team);
 //			System.out.println("\nSending 'POST' to unlock database");
-//			System.out.println(("\nResponse Code : " + responseCode));
-
-			if ((responseCode >= 200) && (responseCode <= 299)) {
-				BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-				String line;
-				StringBuffer response = new StringBuffer();
-
-				while ((line = in.readLine()) != null) {
-					response.append(line);
-				}
-				in.close();
-
-//				System.out.println(response.toString());
-			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
 		}
 		catch (IOException ex) {
 			ex.printStackTrace();
@@ -300,57 +581,32 @@ public class ServerInterface {
 	 * @return true if SUCCESS code returned from server
 	 */
 	public static boolean buyTickets(String team, String xmlReservation) {
-		URL url;
-		HttpURLConnection connection;
-
 		try {
-			url = new URL(mUrlBase);
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("POST");
-
-			String params = QueryFactory.reserve(team, xmlReservation);
-
-//			System.out.println("\nSending 'POST' to ReserveFlights");
-//			System.out.println("\nSending " + params);
-			
-			connection.setDoOutput(true);
-			connection.setDoInput(true);
-			
-			DataOutputStream writer = new DataOutputStream(connection.getOutputStream());
-			writer.writeBytes(params);
-			writer.flush();
-			writer.close();
-			
-			int responseCode = connection.getResponseCode();
+			HttpResponse<String> response = mDefaultTransport.post(QueryFactory.reserve(team, xmlReservation), team);
 //			System.out.println("\nSending 'POST' to ReserveFlights");
-//			System.out.println(("\nResponse Code : " + responseCode));
+//			System.out.println(("\nResponse Code : " + response.statusCode()));
 
-			if ((responseCode >= 200) && (responseCode <= 299)) {
-				BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-				String line;
-				StringBuffer response = new StringBuffer();
-
-				while ((line = in.readLine()) != null) {
-					response.append(line);
+			if (HttpTransport.isSuccess(response.statusCode())) {
+				// seat counts changed on the server, cached flight lists are now stale
+				mFlightCache.invalidateAll();
+				Snapshot snapshot = mSnapshot;
+				if (snapshot != null) {
+					snapshot.invalidateFlights();
+				}
+				// only marked here, the lists are fetched again by refreshSchedule once the lock is released
+				ScheduleIndex schedule = mSchedule;
+				if (schedule != null) {
+					schedule.markStale(xmlReservation);
 				}
-				in.close();
-
-//				System.out.println(response.toString());
 				return true;
 			} else {
-				BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-				String line;
-				StringBuffer response = new StringBuffer();
-
-				while ((line = in.readLine()) != null) {
-					response.append(line);
-				}
-				in.close();
-
-//				System.out.println(response.toString());
 				return false;
 			}
 		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
 		catch (IOException ex) {
 			ex.printStackTrace();
 			return false;
@@ -0,0 +1,410 @@
+/**
+ *
+ */
+package CS509.client.dao;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * This class records what every request to the server costs, per action: how many were sent,
+ * the latency until the response headers arrived, the response bytes, the status codes answered
+ * and the requests that failed without an answer (connection errors and timeouts).
+ *
+ * Latencies go into a histogram of power of two microsecond buckets, so percentiles are exact to
+ * within a factor of two and recording is a few atomic increments with no locking or allocation.
+ *
+ * The metrics of each action can be read over JMX as CS509.client:type=ServerMetrics,action=...
+ * once register is called, and printed as a text table by dump, on demand or every few seconds.
+ *
+ * @author Team C
+ *
+ */
+public class ServerMetrics {
+
+	/**
+	 * Kinds of request sent to the server, named after the QueryFactory actions
+	 */
+	public enum Action {
+		AIRPORTS("airports"),
+		AIRPLANES("airplanes"),
+		DEPARTING("departing"),
+		ARRIVING("arriving"),
+		LOCK("lockDB"),
+		UNLOCK("unlockDB"),
+		BUY_TICKETS("buyTickets"),
+		OTHER("other");
+
+		private final String mName;
+
+		Action(String name) {
+			mName = name;
+		}
+
+		/**
+		 * @return the name of the action in QueryFactory queries
+		 */
+		public String actionName() {
+			return mName;
+		}
+
+		/**
+		 * @param query query string or form parameters of a request, as built by QueryFactory
+		 * @return the action of the request, OTHER if it is not one of the QueryFactory actions
+		 */
+		public static Action of(String query) {
+			String action = param(query, "action");
+			if ("list".equals(action)) {
+				String type = param(query, "list_type");
+				for (Action list : new Action[] {AIRPORTS, AIRPLANES, DEPARTING, ARRIVING}) {
+					if (list.mName.equals(type)) {
+						return list;
+					}
+				}
+				return OTHER;
+			}
+			for (Action update : new Action[] {LOCK, UNLOCK, BUY_TICKETS}) {
+				if (update.mName.equals(action)) {
+					return update;
+				}
+			}
+			return OTHER;
+		}
+
+		private static String param(String query, String name) {
+			if (query == null) {
+				return null;
+			}
+			int start = query.indexOf(name + "=");
+			while (start > 0 && query.charAt(start - 1) != '&' && query.charAt(start - 1) != '?') {
+				start = query.indexOf(name + "=", start + 1);
+			}
+			if (start < 0) {
+				return null;
+			}
+			start += name.length() + 1;
+			int end = query.indexOf('&', start);
+			return query.substring(start, end < 0 ? query.length() : end);
+		}
+	}
+
+	/**
+	 * Metrics of one action as seen over JMX
+	 */
+	public interface ActionMBean {
+		long getRequests();
+		long getErrors();
+		long getResponseBytes();
+		double getMeanMillis();
+		double getP50Millis();
+		double getP90Millis();
+		double getP99Millis();
+		double getMaxMillis();
+		String getStatusCodes();
+		void reset();
+	}
+
+	/**
+	 * Metrics of one action
+	 */
+	public static final class ActionMetrics implements ActionMBean {
+
+		private static final int BUCKETS = 40;
+
+		private final Action mAction;
+		private final LongAdder mRequests = new LongAdder();
+		private final LongAdder mErrors = new LongAdder();
+		private final LongAdder mBytes = new LongAdder();
+		private final LongAdder mTotalMicros = new LongAdder();
+		private final AtomicLong mMaxMicros = new AtomicLong();
+		private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKETS);
+		private final Map<Integer, LongAdder> mStatusCodes = new ConcurrentHashMap<Integer, LongAdder>();
+
+		ActionMetrics(Action action) {
+			mAction = action;
+		}
+
+		/**
+		 * @return the action measured
+		 */
+		public Action action() {
+			return mAction;
+		}
+
+		void response(long nanos, int statusCode) {
+			latency(nanos);
+			mStatusCodes.computeIfAbsent(statusCode, s -> new LongAdder()).increment();
+		}
+
+		void error(long nanos) {
+			latency(nanos);
+			mErrors.increment();
+		}
+
+		void bytes(long bytes) {
+			mBytes.add(bytes);
+		}
+
+		private void latency(long nanos) {
+			long micros = Math.max(0, nanos / 1000);
+			mRequests.increment();
+			mTotalMicros.add(micros);
+			mMaxMicros.accumulateAndGet(micros, Math::max);
+			// bucket b holds latencies below 2^b microseconds
+			mBuckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+		}
+
+		@Override
+		public long getRequests() {
+			return mRequests.sum();
+		}
+
+		/**
+		 * @return number of requests that got no answer, because of a connection error or a timeout
+		 */
+		@Override
+		public long getErrors() {
+			return mErrors.sum();
+		}
+
+		@Override
+		public long getResponseBytes() {
+			return mBytes.sum();
+		}
+
+		@Override
+		public double getMeanMillis() {
+			long requests = getRequests();
+			return requests == 0 ? 0 : mTotalMicros.sum() / 1000.0 / requests;
+		}
+
+		@Override
+		public double getP50Millis() {
+			return percentile(0.50);
+		}
+
+		@Override
+		public double getP90Millis() {
+			return percentile(0.90);
+		}
+
+		@Override
+		public double getP99Millis() {
+			return percentile(0.99);
+		}
+
+		@Override
+		public double getMaxMillis() {
+			return mMaxMicros.get() / 1000.0;
+		}
+
+		/**
+		 * @return count of each status code answered, e.g. {200=41, 503=2}
+		 */
+		@Override
+		public String getStatusCodes() {
+			Map<Integer, Long> codes = new TreeMap<Integer, Long>();
+			for (Map.Entry<Integer, LongAdder> code : mStatusCodes.entrySet()) {
+				codes.put(code.getKey(), code.getValue().sum());
+			}
+			return codes.toString();
+		}
+
+		@Override
+		public void reset() {
+			mRequests.reset();
+			mErrors.reset();
+			mBytes.reset();
+			mTotalMicros.reset();
+			mMaxMicros.set(0);
+			for (int b = 0; b < BUCKETS; b++) {
+				mBuckets.set(b, 0);
+			}
+			mStatusCodes.clear();
+		}
+
+		/**
+		 * @param fraction between 0 and 1, e.g. 0.99
+		 * @return upper bound in milliseconds of the bucket holding the percentile, at most the maximum latency
+		 */
+		public double percentile(double fraction) {
+			long[] counts = new long[BUCKETS];
+			long total = 0;
+			for (int b = 0; b < BUCKETS; b++) {
+				counts[b] = mBuckets.get(b);
+				total += counts[b];
+			}
+			if (total == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(fraction * total);
+			long seen = 0;
+			for (int b = 0; b < BUCKETS; b++) {
+				seen += counts[b];
+				if (seen >= rank) {
+					return Math.min(1L << b, mMaxMicros.get()) / 1000.0;
+				}
+			}
+			return getMaxMillis();
+		}
+	}
+
+	private static final ServerMetrics GLOBAL = new ServerMetrics();
+
+	private final ActionMetrics[] mActions = new ActionMetrics[Action.values().length];
+	private ScheduledExecutorService mDumper;
+	private ScheduledFuture<?> mDump;
+
+	/**
+	 * Default constructor, every action starts at zero
+	 */
+	public ServerMetrics() {
+		for (Action action : Action.values()) {
+			mActions[action.ordinal()] = new ActionMetrics(action);
+		}
+	}
+
+	/**
+	 * @return the metrics shared by every HttpTransport that is not given its own
+	 */
+	public static ServerMetrics global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * @param action kind of request
+	 * @return the metrics of the action
+	 */
+	public ActionMetrics action(Action action) {
+		return mActions[action.ordinal()];
+	}
+
+	/**
+	 * Record a request answered by the server
+	 *
+	 * @param action kind of request
+	 * @param nanos time from sending the request to receiving the response headers
+	 * @param statusCode HTTP status code of the response
+	 */
+	public void response(Action action, long nanos, int statusCode) {
+		action(action).response(nanos, statusCode);
+	}
+
+	/**
+	 * Record a request that got no answer
+	 *
+	 * @param action kind of request
+	 * @param nanos time from sending the request to the failure
+	 */
+	public void error(Action action, long nanos) {
+		action(action).error(nanos);
+	}
+
+	/**
+	 * Record response body bytes read
+	 *
+	 * @param action kind of request
+	 * @param bytes number of bytes
+	 */
+	public void bytes(Action action, long bytes) {
+		action(action).bytes(bytes);
+	}
+
+	/**
+	 * Clear every action
+	 */
+	public void reset() {
+		for (ActionMetrics metrics : mActions) {
+			metrics.reset();
+		}
+	}
+
+	/**
+	 * Register one MBean per action with the platform MBean server, replacing any registered before
+	 *
+	 * @return true if every action was registered
+	 */
+	public boolean register() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			for (ActionMetrics metrics : mActions) {
+				ObjectName name = new ObjectName("CS509.client:type=ServerMetrics,action=" + metrics.action().actionName());
+				if (server.isRegistered(name)) {
+					server.unregisterMBean(name);
+				}
+				server.registerMBean(new StandardMBean(metrics, ActionMBean.class), name);
+			}
+			return true;
+		} catch (JMException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Print a table of the actions that sent at least one request
+	 *
+	 * @param out where the table is printed
+	 */
+	public void dump(PrintStream out) {
+		StringBuilder table = new StringBuilder();
+		table.append(String.format("%-10s %8s %6s %12s %9s %9s %9s %9s %9s  %s%n",
+				"action", "requests", "errors", "bytes", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms", "status codes"));
+		for (ActionMetrics metrics : mActions) {
+			if (metrics.getRequests() == 0) {
+				continue;
+			}
+			table.append(String.format("%-10s %8d %6d %12d %9.1f %9.1f %9.1f %9.1f %9.1f  %s%n",
+					metrics.action().actionName(), metrics.getRequests(), metrics.getErrors(), metrics.getResponseBytes(),
+					metrics.getMeanMillis(), metrics.getP50Millis(), metrics.getP90Millis(), metrics.getP99Millis(),
+					metrics.getMaxMillis(), metrics.getStatusCodes()));
+		}
+		out.print(table);
+		out.flush();
+	}
+
+	/**
+	 * Print the table every period until stopDump, replacing any dump already running
+	 *
+	 * @param out where the table is printed
+	 * @param periodMillis time in milliseconds between two tables
+	 */
+	public synchronized void startDump(PrintStream out, long periodMillis) {
+		if (mDumper == null) {
+			mDumper = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "server-metrics");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		if (mDump != null) {
+			mDump.cancel(false);
+		}
+		mDump = mDumper.scheduleAtFixedRate(() -> dump(out), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop printing the table every period
+	 */
+	public synchronized void stopDump() {
+		if (mDump != null) {
+			mDump.cancel(false);
+			mDump = null;
+		}
+	}
+}
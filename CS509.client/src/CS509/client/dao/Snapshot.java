@@ -0,0 +1,586 @@
+/**
+ *
+ */
+package CS509.client.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import CS509.client.airplane.Airplane;
+import CS509.client.airplane.Airplanes;
+import CS509.client.airport.Airport;
+import CS509.client.airport.Airports;
+import CS509.client.flight.Flight;
+import CS509.client.flight.Flights;
+
+/**
+ * This class is a binary snapshot of what the client fetched from the CS509 server: the airports,
+ * the airplanes and the flight lists. It is written when the application exits and memory-mapped
+ * on the next start, so a cold start does not wait for the server.
+ *
+ * Nothing is decoded when the file is opened except its header. Airports, airplanes and each
+ * flight list are decoded the first time they are asked for. If a section turns out to be
+ * truncated or corrupt the whole snapshot is disabled and answers nothing, so every request
+ * goes to the server.
+ *
+ * Every section carries the time it was fetched from the server, so a section carried over into
+ * a later snapshot still goes stale on time: airports and airplanes after the maximum age, each
+ * flight list after the flight list TTL.
+ *
+ * File layout, all numbers big endian, strings as an unsigned short length and UTF-8 bytes
+ * (length 0xFFFF for null), times in milliseconds since the epoch:
+ * <pre>
+ * header     int magic, int version, long created, string team,
+ *            long airports fetched, int airports offset, long airplanes fetched, int airplanes offset,
+ *            int directory offset
+ * airports   int count, then name, code, double latitude, double longitude
+ * airplanes  int count, then manufacturer, model, int first class seats, int coach seats
+ * directory  int count, then string key (airport|yyyy_MM_dd|D or A), long list fetched, int list offset
+ * lists      int count, then the eleven fields of each flight in Flight constructor order
+ * </pre>
+ *
+ * @author Team C
+ *
+ */
+public class Snapshot {
+
+	private static final int MAGIC = 0x43353039;
+	private static final int VERSION = 2;
+	private static final int NULL_STRING = 0xFFFF;
+
+	/**
+	 * A flight list entry of the directory
+	 */
+	private static class Entry {
+		final long fetched;
+		final int offset;
+
+		Entry(long fetched, int offset) {
+			this.fetched = fetched;
+			this.offset = offset;
+		}
+	}
+
+	private final Path mFile;
+	private final ByteBuffer mBuffer;
+	private final long mCreated;
+	private final String mTeam;
+	private final long mAirportsFetched;
+	private final int mAirportsOffset;
+	private final long mAirplanesFetched;
+	private final int mAirplanesOffset;
+	private final int mDirectoryOffset;
+	private final long mMaxAgeMillis;
+	private final long mFlightTtlMillis;
+	// held to read the mapped file, taken for writing to unmap it
+	private final ReadWriteLock mMapping = new ReentrantReadWriteLock();
+
+	private Airports mAirports;
+	private Airplanes mAirplanes;
+	private Map<String, Entry> mDirectory;
+	private volatile boolean mFlightsInvalid;
+	private volatile boolean mCorrupt;
+	private boolean mClosed;
+
+	private Snapshot(Path file, ByteBuffer buffer, long maxAgeMillis, long flightTtlMillis) {
+		mFile = file;
+		mBuffer = buffer;
+		ByteBuffer header = buffer.duplicate();
+		header.position(8);
+		mCreated = header.getLong();
+		mTeam = readString(header);
+		mAirportsFetched = header.getLong();
+		mAirportsOffset = header.getInt();
+		mAirplanesFetched = header.getLong();
+		mAirplanesOffset = header.getInt();
+		mDirectoryOffset = header.getInt();
+		mMaxAgeMillis = maxAgeMillis;
+		mFlightTtlMillis = flightTtlMillis;
+	}
+
+	/**
+	 * Open a snapshot
+	 *
+	 * @param file the snapshot file
+	 * @param team the ticket agency the snapshot must belong to
+	 * @param maxAgeMillis age in milliseconds after which the snapshot is not used at all, and its airports or airplanes are not used
+	 * @param flightTtlMillis age in milliseconds after which a flight list is not used
+	 * @return the snapshot, or null if it is missing, stale, of another team or version, or unreadable
+	 */
+	public static Snapshot open(Path file, String team, long maxAgeMillis, long flightTtlMillis) {
+		MappedByteBuffer buffer = null;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.limit() < 16 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				unmap(buffer);
+				return null;
+			}
+			Snapshot snapshot = new Snapshot(file, buffer, maxAgeMillis, flightTtlMillis);
+			if (!team.equals(snapshot.mTeam) || isStale(snapshot.mCreated, maxAgeMillis)) {
+				unmap(buffer);
+				return null;
+			}
+			return snapshot;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace();
+			if (buffer != null) {
+				unmap(buffer);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Write a snapshot of data fetched from the server just now, replacing the file only once it is complete
+	 *
+	 * @param file the snapshot file
+	 * @param team the ticket agency
+	 * @param airports the airports to store
+	 * @param airplanes the airplanes to store
+	 * @param lists flight lists to store, keyed by airport|yyyy_MM_dd|D for departing or A for arriving
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write(Path file, String team, Airports airports, Airplanes airplanes, Map<String, Flights> lists) throws IOException {
+		long now = System.currentTimeMillis();
+		Map<String, Long> listsFetched = new HashMap<String, Long>();
+		for (String key : lists.keySet()) {
+			listsFetched.put(key, now);
+		}
+		write(file, team, airports, now, airplanes, now, lists, listsFetched);
+	}
+
+	/**
+	 * Write a snapshot, replacing the file only once it is complete. A snapshot opened on the file
+	 * must be closed first, a mapped file cannot be replaced on Windows.
+	 *
+	 * @param file the snapshot file
+	 * @param team the ticket agency
+	 * @param airports the airports to store
+	 * @param airportsFetched time the airports were fetched from the server
+	 * @param airplanes the airplanes to store
+	 * @param airplanesFetched time the airplanes were fetched from the server
+	 * @param lists flight lists to store, keyed by airport|yyyy_MM_dd|D for departing or A for arriving
+	 * @param listsFetched time each list was fetched from the server, by the same keys, now if missing
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write(Path file, String team, Airports airports, long airportsFetched, Airplanes airplanes, long airplanesFetched,
+			Map<String, Flights> lists, Map<String, Long> listsFetched) throws IOException {
+		long now = System.currentTimeMillis();
+		ByteArrayOutputStream airportBytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(airportBytes);
+		out.writeInt(airports.size());
+		for (Airport airport : airports) {
+			writeString(out, airport.name());
+			writeString(out, airport.code());
+			out.writeDouble(airport.latitude());
+			out.writeDouble(airport.longitude());
+		}
+
+		ByteArrayOutputStream airplaneBytes = new ByteArrayOutputStream();
+		out = new DataOutputStream(airplaneBytes);
+		out.writeInt(airplanes.size());
+		for (Airplane airplane : airplanes) {
+			writeString(out, airplane.manufacturer());
+			writeString(out, airplane.model());
+			out.writeInt(airplane.firstClassSeats());
+			out.writeInt(airplane.coachSeats());
+		}
+
+		ByteArrayOutputStream listBytes = new ByteArrayOutputStream();
+		out = new DataOutputStream(listBytes);
+		Map<String, Integer> listOffsets = new HashMap<String, Integer>();
+		for (Map.Entry<String, Flights> list : lists.entrySet()) {
+			listOffsets.put(list.getKey(), out.size());
+			out.writeInt(list.getValue().size());
+			for (Flight f : list.getValue()) {
+				writeString(out, f.getmAirplane());
+				writeString(out, f.getmFlightTime());
+				writeString(out, f.getmNumber());
+				writeString(out, f.getmCodeDepart());
+				writeString(out, f.getmTimeDepart());
+				writeString(out, f.getmCodeArrival());
+				writeString(out, f.getmTimeArrival());
+				writeString(out, f.getmPriceFirstclass());
+				out.writeInt(f.getmSeatsFirstclass());
+				writeString(out, f.getmPriceCoach());
+				out.writeInt(f.getmSeatsCoach());
+			}
+		}
+
+		int headerSize = 4 + 4 + 8 + 2 + team.getBytes(StandardCharsets.UTF_8).length + 8 + 4 + 8 + 4 + 4;
+		int airportsOffset = headerSize;
+		int airplanesOffset = airportsOffset + airportBytes.size();
+		int directoryOffset = airplanesOffset + airplaneBytes.size();
+
+		ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+		out = new DataOutputStream(directoryBytes);
+		out.writeInt(listOffsets.size());
+		for (String key : listOffsets.keySet()) {
+			writeString(out, key);
+			out.writeLong(0);
+			out.writeInt(0);
+		}
+		int listsOffset = directoryOffset + directoryBytes.size();
+		directoryBytes.reset();
+		out.writeInt(listOffsets.size());
+		for (Map.Entry<String, Integer> entry : listOffsets.entrySet()) {
+			Long fetched = listsFetched.get(entry.getKey());
+			writeString(out, entry.getKey());
+			out.writeLong(fetched != null ? fetched : now);
+			out.writeInt(listsOffset + entry.getValue());
+		}
+
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream fileOut = new DataOutputStream(Files.newOutputStream(temp))) {
+			fileOut.writeInt(MAGIC);
+			fileOut.writeInt(VERSION);
+			fileOut.writeLong(now);
+			writeString(fileOut, team);
+			fileOut.writeLong(airportsFetched);
+			fileOut.writeInt(airportsOffset);
+			fileOut.writeLong(airplanesFetched);
+			fileOut.writeInt(airplanesOffset);
+			fileOut.writeInt(directoryOffset);
+			airportBytes.writeTo(fileOut);
+			airplaneBytes.writeTo(fileOut);
+			directoryBytes.writeTo(fileOut);
+			listBytes.writeTo(fileOut);
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @return the ticket agency the snapshot belongs to
+	 */
+	public String team() {
+		return mTeam;
+	}
+
+	/**
+	 * @return the time the snapshot was written, in milliseconds since the epoch
+	 */
+	public long created() {
+		return mCreated;
+	}
+
+	/**
+	 * @return the time the airports were fetched from the server, in milliseconds since the epoch
+	 */
+	public long airportsFetched() {
+		return mAirportsFetched;
+	}
+
+	/**
+	 * @return the time the airplanes were fetched from the server, in milliseconds since the epoch
+	 */
+	public long airplanesFetched() {
+		return mAirplanesFetched;
+	}
+
+	/**
+	 * @return the snapshot file
+	 */
+	public Path file() {
+		return mFile;
+	}
+
+	/**
+	 * @return true if a section of the file could not be decoded, the snapshot then answers nothing
+	 */
+	public boolean isCorrupt() {
+		return mCorrupt;
+	}
+
+	/**
+	 * @return a copy of the airports in the snapshot, empty if they are stale or the snapshot is corrupt or closed
+	 */
+	public synchronized Airports airports() {
+		Airports copy = new Airports();
+		if (isStale(mAirportsFetched, mMaxAgeMillis)) {
+			return copy;
+		}
+		mMapping.readLock().lock();
+		try {
+			if (mAirports == null && !mCorrupt && !mClosed) {
+				try {
+					ByteBuffer in = at(mAirportsOffset);
+					Airports airports = new Airports();
+					for (int i = in.getInt(); i > 0; i--) {
+						String name = readString(in);
+						String code = readString(in);
+						airports.add(new Airport(name, code, in.getDouble(), in.getDouble()));
+					}
+					mAirports = airports;
+				} catch (RuntimeException e) {
+					corrupt(e);
+				}
+			}
+		} finally {
+			mMapping.readLock().unlock();
+		}
+		if (mAirports != null && !mCorrupt) {
+			copy.addAll(mAirports);
+		}
+		return copy;
+	}
+
+	/**
+	 * @return a copy of the airplanes in the snapshot, empty if they are stale or the snapshot is corrupt or closed
+	 */
+	public synchronized Airplanes airplanes() {
+		Airplanes copy = new Airplanes();
+		if (isStale(mAirplanesFetched, mMaxAgeMillis)) {
+			return copy;
+		}
+		mMapping.readLock().lock();
+		try {
+			if (mAirplanes == null && !mCorrupt && !mClosed) {
+				try {
+					ByteBuffer in = at(mAirplanesOffset);
+					Airplanes airplanes = new Airplanes();
+					for (int i = in.getInt(); i > 0; i--) {
+						String manufacturer = readString(in);
+						String model = readString(in);
+						int firstClassSeats = in.getInt();
+						airplanes.add(new Airplane(manufacturer, model, firstClassSeats, in.getInt()));
+					}
+					mAirplanes = airplanes;
+				} catch (RuntimeException e) {
+					corrupt(e);
+				}
+			}
+		} finally {
+			mMapping.readLock().unlock();
+		}
+		if (mAirplanes != null && !mCorrupt) {
+			copy.addAll(mAirplanes);
+		}
+		return copy;
+	}
+
+	/**
+	 * Look up a flight list
+	 *
+	 * @param airportCode code of the departure or arrival airport
+	 * @param day day of the list in yyyy_MM_dd format
+	 * @param isByDeparture true for departing flights, false for arriving flights
+	 * @return the flights, or null if the list is not in the snapshot or stale, or the snapshot is corrupt or closed
+	 */
+	public Flights flights(String airportCode, String day, boolean isByDeparture) {
+		return flights(key(airportCode, day, isByDeparture));
+	}
+
+	/**
+	 * Look up a flight list
+	 *
+	 * @param key key of the list, airport|yyyy_MM_dd|D for departing or A for arriving
+	 * @return the flights, or null if the list is not in the snapshot or stale, or the snapshot is corrupt or closed
+	 */
+	Flights flights(String key) {
+		if (mCorrupt || mFlightsInvalid) {
+			return null;
+		}
+		mMapping.readLock().lock();
+		try {
+			if (mClosed) {
+				return null;
+			}
+			Entry entry = directory().get(key);
+			if (entry == null || isStale(entry.fetched, mFlightTtlMillis)) {
+				return null;
+			}
+			ByteBuffer in = at(entry.offset);
+			Flights flights = new Flights();
+			for (int i = in.getInt(); i > 0; i--) {
+				String airplane = readString(in);
+				String flightTime = readString(in);
+				String number = readString(in);
+				String codeDepart = readString(in);
+				String timeDepart = readString(in);
+				String codeArrival = readString(in);
+				String timeArrival = readString(in);
+				String priceFirstclass = readString(in);
+				int seatsFirstclass = in.getInt();
+				String priceCoach = readString(in);
+				flights.add(new Flight(airplane, flightTime, number, codeDepart, timeDepart, codeArrival, timeArrival,
+						priceFirstclass, seatsFirstclass, priceCoach, in.getInt()));
+			}
+			return flights;
+		} catch (RuntimeException e) {
+			corrupt(e);
+			return null;
+		} finally {
+			mMapping.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return keys of every flight list in the snapshot, stale or not, empty if the snapshot is corrupt or closed
+	 */
+	Set<String> listKeys() {
+		mMapping.readLock().lock();
+		try {
+			return mCorrupt || mClosed ? Set.of() : Set.copyOf(directory().keySet());
+		} catch (RuntimeException e) {
+			corrupt(e);
+			return Set.of();
+		} finally {
+			mMapping.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @param key key of a flight list in the snapshot
+	 * @return the time the list was fetched from the server, in milliseconds since the epoch
+	 */
+	long listFetched(String key) {
+		mMapping.readLock().lock();
+		try {
+			Entry entry = mClosed ? null : directory().get(key);
+			return entry == null ? 0 : entry.fetched;
+		} finally {
+			mMapping.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Stop answering flight lists from the snapshot. Called after tickets are bought since seat counts have changed.
+	 */
+	public void invalidateFlights() {
+		mFlightsInvalid = true;
+	}
+
+	/**
+	 * Stop answering and unmap the file at once instead of when the snapshot is garbage collected,
+	 * so the file can be replaced. Sections already decoded are still answered.
+	 */
+	public void close() {
+		mMapping.writeLock().lock();
+		try {
+			if (!mClosed) {
+				mClosed = true;
+				unmap(mBuffer);
+			}
+		} finally {
+			mMapping.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @param airportCode code of the departure or arrival airport
+	 * @param day day of the list in yyyy_MM_dd format
+	 * @param isByDeparture true for departing flights, false for arriving flights
+	 * @return key of the list in the snapshot directory
+	 */
+	static String key(String airportCode, String day, boolean isByDeparture) {
+		return airportCode + '|' + day + '|' + (isByDeparture ? 'D' : 'A');
+	}
+
+	/**
+	 * @return true if something fetched at that time is at least maxAgeMillis old, compared as a difference so
+	 *         a maxAgeMillis of Long.MAX_VALUE never goes stale
+	 */
+	private static boolean isStale(long fetched, long maxAgeMillis) {
+		return System.currentTimeMillis() - fetched >= maxAgeMillis;
+	}
+
+	/**
+	 * Disable the snapshot after a section could not be decoded
+	 */
+	private void corrupt(RuntimeException e) {
+		if (!mCorrupt) {
+			mCorrupt = true;
+			System.err.println("Snapshot " + mFile + " is corrupt and will not be used");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return the directory of flight lists, decoded on first use
+	 * @throws RuntimeException if the directory is truncated or corrupt
+	 */
+	private synchronized Map<String, Entry> directory() {
+		if (mDirectory == null) {
+			ByteBuffer in = at(mDirectoryOffset);
+			Map<String, Entry> directory = new HashMap<String, Entry>();
+			for (int i = in.getInt(); i > 0; i--) {
+				String key = readString(in);
+				long fetched = in.getLong();
+				directory.put(key, new Entry(fetched, in.getInt()));
+			}
+			mDirectory = directory;
+		}
+		return mDirectory;
+	}
+
+	/**
+	 * @return a view of the mapped file positioned at offset, so concurrent readers do not share a position
+	 */
+	private ByteBuffer at(int offset) {
+		ByteBuffer view = mBuffer.duplicate();
+		view.position(offset);
+		return view;
+	}
+
+	/**
+	 * Unmap a mapped buffer through the JDK's cleaner. Left to the garbage collector if that is not possible,
+	 * the file may then not be replaced until it is. The buffer must not be read afterwards.
+	 */
+	private static void unmap(ByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static String readString(ByteBuffer in) throws BufferUnderflowException {
+		int length = Short.toUnsignedInt(in.getShort());
+		if (length == NULL_STRING) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeShort(NULL_STRING);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length >= NULL_STRING) {
+			throw new IOException("String too long for the snapshot: " + bytes.length + " bytes");
+		}
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	@Override
+	public String toString() {
+		return "Snapshot[" + mFile + ", team=" + mTeam + ", created=" + mCreated + "]";
+	}
+}
@@ -0,0 +1,362 @@
+/**
+ *
+ */
+package CS509.client.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import CS509.client.airplane.Airplane;
+import CS509.client.airplane.AirplaneRegistry;
+import CS509.client.flight.Flight;
+import CS509.client.util.Sp;
+import CS509.client.util.SyntheticSchedule;
+
+/**
+ * This class is a local stand-in for the CS509 reservation server, serving a synthetic schedule
+ * over HTTP so the client can be load tested and benchmarked end to end without the real server.
+ *
+ * It answers the actions of QueryFactory the way the server does: list of airports, airplanes and
+ * departing or arriving flights, lockDB, unlockDB and buyTickets. Buying tickets needs the lock,
+ * adds one to the seats reserved on every flight and fails if a flight is unknown or already has
+ * every seat of the class reserved on its airplane.
+ *
+ * Every request is held for a latency of latencyMillis plus an exponentially distributed jitter
+ * averaging jitterMillis, which gives the long tail of a loaded server, and fails with 503 with
+ * probability errorRate. Requests are served by a thread each so held requests do not queue.
+ *
+ * Point the client at it with -Dcs509.server=URL, the URL is printed on start and given by url().
+ *
+ * @author Team C
+ *
+ */
+public class StubServer {
+
+	/**
+	 * Path of the reservation system on the CS509 server, kept so only host and port change
+	 */
+	public static final String PATH = "/CS509.server/ReservationSystem";
+
+	private static final Pattern FLIGHT = Pattern.compile("<Flight\\s+number=\"([^\"]+)\"\\s+seating=\"([^\"]+)\"\\s*/>");
+
+	private final SyntheticSchedule mSchedule;
+	private final Map<String, Flight> mFlights = new HashMap<String, Flight>();
+	private final AirplaneRegistry mAirplanes;
+	private final long mLatencyMillis;
+	private final long mJitterMillis;
+	private final double mErrorRate;
+	private final HttpServer mServer;
+	private final ExecutorService mExecutor;
+
+	private final Object mLock = new Object();
+	private String mLockHolder;
+
+	private final AtomicLong mRequests = new AtomicLong();
+	private final AtomicLong mErrors = new AtomicLong();
+
+	/**
+	 * Initializing constructor, binds the port but does not serve until start
+	 *
+	 * @param schedule the schedule to serve, its flights gain reserved seats as tickets are bought
+	 * @param port port to listen on, 0 for any free port
+	 * @param latencyMillis time in milliseconds every request is held for
+	 * @param jitterMillis mean of the extra, exponentially distributed, time in milliseconds a request is held for
+	 * @param errorRate probability between 0 and 1 that a request fails with 503
+	 * @throws IOException if the port cannot be bound
+	 */
+	public StubServer(SyntheticSchedule schedule, int port, long latencyMillis, long jitterMillis, double errorRate) throws IOException {
+		if (latencyMillis < 0 || jitterMillis < 0 || errorRate < 0 || errorRate > 1) {
+			throw new IllegalArgumentException("Latency and jitter must not be negative and the error rate must be between 0 and 1");
+		}
+		mSchedule = schedule;
+		for (Flight flight : schedule.flights()) {
+			mFlights.put(flight.getmNumber(), flight);
+		}
+		mAirplanes = new AirplaneRegistry(schedule.airplanes());
+		mLatencyMillis = latencyMillis;
+		mJitterMillis = jitterMillis;
+		mErrorRate = errorRate;
+		mServer = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+		mServer.createContext(PATH, this::handle);
+		mExecutor = Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, "stub-server");
+			t.setDaemon(true);
+			return t;
+		});
+		mServer.setExecutor(mExecutor);
+	}
+
+	/**
+	 * Start serving requests
+	 *
+	 * @return this server
+	 */
+	public StubServer start() {
+		mServer.start();
+		return this;
+	}
+
+	/**
+	 * Stop serving requests, waiting at most a second for the ones in progress
+	 */
+	public void stop() {
+		mServer.stop(1);
+		mExecutor.shutdownNow();
+	}
+
+	/**
+	 * @return base URL of the reservation system served, to use in place of Sp.SERVER_URL
+	 */
+	public String url() {
+		return "http://localhost:" + mServer.getAddress().getPort() + PATH;
+	}
+
+	/**
+	 * @return number of requests received
+	 */
+	public long requests() {
+		return mRequests.get();
+	}
+
+	/**
+	 * @return number of requests failed on purpose with 503
+	 */
+	public long errors() {
+		return mErrors.get();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			mRequests.incrementAndGet();
+			hold();
+			if (mErrorRate > 0 && ThreadLocalRandom.current().nextDouble() < mErrorRate) {
+				mErrors.incrementAndGet();
+				respond(exchange, 503, "Injected error");
+				return;
+			}
+
+			Map<String, String> params;
+			if (exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+				try (InputStream body = exchange.getRequestBody()) {
+					params = params(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+				}
+			} else {
+				params = params(exchange.getRequestURI().getRawQuery());
+			}
+
+			String team = params.get("team");
+			String action = params.get("action");
+			if (team == null || action == null) {
+				respond(exchange, 400, "Missing team or action");
+			} else if (action.equals("list")) {
+				list(exchange, params);
+			} else if (action.equals("lockDB")) {
+				respond(exchange, lock(team) ? 200 : 409, "");
+			} else if (action.equals("unlockDB")) {
+				respond(exchange, unlock(team) ? 200 : 409, "");
+			} else if (action.equals("buyTickets")) {
+				respond(exchange, buy(team, params.get("flightData")) ? 202 : 409, "");
+			} else {
+				respond(exchange, 400, "Unknown action " + action);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			exchange.close();
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			respond(exchange, 500, String.valueOf(e.getMessage()));
+		}
+	}
+
+	private void hold() throws InterruptedException {
+		long millis = mLatencyMillis;
+		if (mJitterMillis > 0) {
+			millis += (long) (-mJitterMillis * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+		}
+		if (millis > 0) {
+			Thread.sleep(millis);
+		}
+	}
+
+	private void list(HttpExchange exchange, Map<String, String> params) throws IOException {
+		String type = String.valueOf(params.get("list_type"));
+		String xml;
+		switch (type) {
+		case "airports":
+			xml = airports();
+			break;
+		case "airplanes":
+			xml = airplanes();
+			break;
+		case "departing":
+		case "arriving":
+			String airport = params.get("airport");
+			String day = params.get("day");
+			if (airport == null || day == null) {
+				respond(exchange, 400, "Missing airport or day");
+				return;
+			}
+			// seat counts change while tickets are bought
+			synchronized (mLock) {
+				xml = SyntheticSchedule.toXml(mSchedule.list(airport, day, type.equals("departing")));
+			}
+			break;
+		default:
+			respond(exchange, 400, "Unknown list_type " + type);
+			return;
+		}
+		respond(exchange, 200, xml);
+	}
+
+	private boolean lock(String team) {
+		synchronized (mLock) {
+			if (mLockHolder != null && !mLockHolder.equals(team)) {
+				return false;
+			}
+			mLockHolder = team;
+			return true;
+		}
+	}
+
+	private boolean unlock(String team) {
+		synchronized (mLock) {
+			if (mLockHolder != null && !mLockHolder.equals(team)) {
+				return false;
+			}
+			mLockHolder = null;
+			return true;
+		}
+	}
+
+	/**
+	 * Reserves one seat on every flight of the reservation, or none if any flight cannot be booked
+	 */
+	private boolean buy(String team, String flightData) {
+		if (flightData == null) {
+			return false;
+		}
+		synchronized (mLock) {
+			if (!team.equals(mLockHolder)) {
+				return false;
+			}
+			Map<Flight, Boolean> seats = new HashMap<Flight, Boolean>();
+			Matcher matcher = FLIGHT.matcher(flightData);
+			while (matcher.find()) {
+				Flight flight = mFlights.get(matcher.group(1));
+				boolean coach = matcher.group(2).equalsIgnoreCase("Coach");
+				if (flight == null || !mAirplanes.isSeatAvailable(flight, 1, coach)) {
+					return false;
+				}
+				seats.put(flight, coach);
+			}
+			if (seats.isEmpty()) {
+				return false;
+			}
+			for (Map.Entry<Flight, Boolean> seat : seats.entrySet()) {
+				Flight flight = seat.getKey();
+				if (seat.getValue()) {
+					flight.setmSeatsCoach(flight.getmSeatsCoach() + 1);
+				} else {
+					flight.setmSeatsFirstclass(flight.getmSeatsFirstclass() + 1);
+				}
+			}
+			return true;
+		}
+	}
+
+	private String airports() {
+		StringBuilder xml = new StringBuilder("<Airports>");
+		for (int i = 0; i < mSchedule.airportCount(); i++) {
+			String code = mSchedule.code(i);
+			// spread the airports over the continental US, only the codes matter to the search
+			xml.append("<Airport Code=\"").append(code).append("\" Name=\"").append(code).append(" Airport\">")
+					.append("<Latitude>").append(30 + (i * 7) % 18).append(".0</Latitude>")
+					.append("<Longitude>").append(-120 + (i * 11) % 45).append(".0</Longitude>")
+					.append("</Airport>");
+		}
+		return xml.append("</Airports>").toString();
+	}
+
+	private String airplanes() {
+		StringBuilder xml = new StringBuilder("<Airplanes>");
+		for (Airplane airplane : mSchedule.airplanes()) {
+			xml.append("<Airplane Manufacturer=\"").append(airplane.manufacturer())
+					.append("\" Model=\"").append(airplane.model()).append("\">")
+					.append("<FirstClassSeats>").append(airplane.firstClassSeats()).append("</FirstClassSeats>")
+					.append("<CoachSeats>").append(airplane.coachSeats()).append("</CoachSeats>")
+					.append("</Airplane>");
+		}
+		return xml.append("</Airplanes>").toString();
+	}
+
+	/**
+	 * Splits a query or form body. flightData is sent without encoding, so it runs to the end of the body.
+	 */
+	private static Map<String, String> params(String query) {
+		Map<String, String> params = new HashMap<String, String>();
+		if (query == null) {
+			return params;
+		}
+		int data = query.indexOf("flightData=");
+		if (data >= 0) {
+			params.put("flightData", query.substring(data + "flightData=".length()));
+			query = query.substring(0, data);
+		}
+		for (String param : query.split("&")) {
+			String[] pair = param.split("=", 2);
+			if (pair.length == 2) {
+				params.put(URLDecoder.decode(pair[0], StandardCharsets.UTF_8), URLDecoder.decode(pair[1], StandardCharsets.UTF_8));
+			}
+		}
+		return params;
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/xml; charset=UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+		if (bytes.length == 0) {
+			exchange.close();
+			return;
+		}
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Serve a synthetic schedule of the whole database window until the process is stopped
+	 *
+	 * @param args port, airports, flights per airport per day, latency and jitter in milliseconds and error rate,
+	 *             defaulting to 8509 52 40 50 25 0.01
+	 * @throws IOException if the port cannot be bound
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8509;
+		int airports = args.length > 1 ? Integer.parseInt(args[1]) : SyntheticSchedule.CODES.length;
+		int flightsPerDay = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+		long latency = args.length > 3 ? Long.parseLong(args[3]) : 50;
+		long jitter = args.length > 4 ? Long.parseLong(args[4]) : 25;
+		double errorRate = args.length > 5 ? Double.parseDouble(args[5]) : 0.01;
+
+		int days = ScheduleIndex.days(Sp.START, Sp.END).size();
+		StubServer server = new StubServer(new SyntheticSchedule(airports, flightsPerDay, days, 509L), port, latency, jitter, errorRate).start();
+		System.out.println("Serving " + airports + " airports, " + flightsPerDay + " flights per airport per day at " + server.url());
+		System.out.println("Run the client with -D" + ServerInterface.SERVER_PROPERTY + "=" + server.url());
+	}
+}
@@ -0,0 +1,596 @@
+package CS509.client.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import CS509.client.airplane.AirplaneRegistry;
+import CS509.client.airplane.Airplanes;
+import CS509.client.airport.Airport;
+import CS509.client.airport.Airports;
+import CS509.client.flight.Flight;
+import CS509.client.flight.Flights;
+import CS509.client.util.QueryFactory;
+import CS509.client.util.SyntheticSchedule;
+
+class dao_test {
+	public Flight f1 = new Flight("777",
+            "606",
+            "20836",
+            "HNL",
+            "2023 May 26 01:25 GMT",
+            "SAT",
+            "2023 May 26 11:31 GMT",
+            "$580.61",
+            39,
+            "$114.67",
+            197);
+
+	private Flights list() {
+		Flights flights = new Flights();
+		flights.add(f1);
+		return flights;
+	}
+
+	/**
+	 * JUnit test method for testing hits, misses and copies handed out by the FlightCache.
+	 */
+	@Test
+	void cachetest() {
+		FlightCache cache = new FlightCache(60000, 4);
+		assertNull(cache.get("TeamC", "HNL", "2023_05_26", true));
+		cache.put("TeamC", "HNL", "2023_05_26", true, list());
+
+		Flights cached = cache.get("TeamC", "HNL", "2023_05_26", true);
+		assertEquals(1, cached.size());
+		cached.clear();
+		assertEquals(1, cache.get("TeamC", "HNL", "2023_05_26", true).size());
+		assertNull(cache.get("TeamC", "HNL", "2023_05_26", false));
+
+		assertEquals(2, cache.hits());
+		assertEquals(2, cache.misses());
+
+		cache.invalidateAll();
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * JUnit test method for testing least recently used eviction and expiry of the FlightCache.
+	 */
+	@Test
+	void cacheevictiontest() {
+		FlightCache cache = new FlightCache(60000, 2);
+		cache.put("TeamC", "HNL", "2023_05_26", true, list());
+		cache.put("TeamC", "SAT", "2023_05_26", true, list());
+		cache.get("TeamC", "HNL", "2023_05_26", true);
+		cache.put("TeamC", "BOS", "2023_05_26", true, list());
+
+		assertNotNull(cache.get("TeamC", "HNL", "2023_05_26", true));
+		assertNull(cache.get("TeamC", "SAT", "2023_05_26", true));
+
+		FlightCache expired = new FlightCache(0, 2);
+		expired.put("TeamC", "HNL", "2023_05_26", true, list());
+		assertNull(expired.get("TeamC", "HNL", "2023_05_26", true));
+	}
+
+	/**
+	 * JUnit test method for testing the charset read from a Content-Type header.
+	 */
+	@Test
+	void charsettest() {
+		assertEquals("ISO-8859-1", ServerInterface.charset("text/xml; charset=\"ISO-8859-1\""));
+		assertEquals("UTF-8", ServerInterface.charset("application/xml;charset=UTF-8"));
+		assertNull(ServerInterface.charset("text/xml"));
+		assertNull(ServerInterface.charset(null));
+	}
+
+	/**
+	 * Start a local stub of the CS509 server answering airplane and flight lists
+	 *
+	 * @param delayMillis time the stub waits before answering
+	 * @param requests counts the requests received by the stub
+	 */
+	private HttpServer stub(long delayMillis, AtomicInteger requests) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/ReservationSystem", exchange -> {
+			requests.incrementAndGet();
+			try {
+				Thread.sleep(delayMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			String query = exchange.getRequestURI().getQuery();
+			String xml = query.contains("list_type=airplanes")
+					? "<Airplanes><Airplane Manufacturer=\"Boeing\" Model=\"777\"><FirstClassSeats>40</FirstClassSeats><CoachSeats>260</CoachSeats></Airplane></Airplanes>"
+					: SyntheticSchedule.toXml(list());
+			byte[] body = xml.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+		return server;
+	}
+
+	/**
+	 * JUnit test method for testing that airport and airplane lists cut short are reported as failures, leave nothing
+	 * behind and are not saved to a snapshot.
+	 */
+	@Test
+	void truncatedlisttest() throws Exception {
+		String airplanesXml = "<Airplanes><Airplane Manufacturer=\"Boeing\" Model=\"777\"><FirstClassSeats>40</FirstClassSeats><CoachSeats>260</CoachSeats></Airplane>"
+				+ "<Airplane Manufacturer=\"Airbus\" Model=\"A320\"><FirstClassSeats>12</FirstClassSeats><CoachSeats>138</CoachSeats></Airplane></Airplanes>";
+		String airportsXml = "<Airports><Airport Code=\"HNL\" Name=\"Honolulu International\"><Latitude>21.318681</Latitude><Longitude>-157.922428</Longitude></Airport>"
+				+ "<Airport Code=\"SAT\" Name=\"San Antonio International\"><Latitude>29.533694</Latitude><Longitude>-98.469778</Longitude></Airport></Airports>";
+		byte[] airplanes = airplanesXml.substring(0, airplanesXml.indexOf("A320")).getBytes(StandardCharsets.UTF_8);
+		byte[] airports = airportsXml.substring(0, airportsXml.indexOf("SAT")).getBytes(StandardCharsets.UTF_8);
+
+		Airplanes whole = new Airplanes();
+		assertTrue(whole.addAll(new ByteArrayInputStream(airplanesXml.getBytes(StandardCharsets.UTF_8))));
+		assertEquals(2, whole.size());
+		Airplanes partial = new Airplanes();
+		assertThrows(IOException.class, () -> partial.addAll(new ByteArrayInputStream(airplanes)));
+		assertTrue(partial.isEmpty());
+		Airports partialAirports = new Airports();
+		assertThrows(IOException.class, () -> partialAirports.addAll(new ByteArrayInputStream(airports)));
+		assertTrue(partialAirports.isEmpty());
+		Airports badLatitude = new Airports();
+		assertThrows(IOException.class, () -> badLatitude.addAll(new ByteArrayInputStream(
+				airportsXml.replace("21.318681", "north").getBytes(StandardCharsets.UTF_8))));
+		assertTrue(badLatitude.isEmpty());
+
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/ReservationSystem", exchange -> {
+			byte[] body = exchange.getRequestURI().getQuery().contains("list_type=airplanes") ? airplanes : airports;
+			exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+		Path file = Files.createTempDirectory("cs509").resolve("truncated.snapshot");
+		try {
+			ServerInterface resSys = new ServerInterface(new HttpTransport(urlBase(server), 1000, 5000));
+			assertTrue(resSys.getAirplanes("TruncatedTeam").isEmpty());
+			assertTrue(resSys.getAirports("TruncatedTeam").isEmpty());
+			ExecutionException e = assertThrows(ExecutionException.class, () -> resSys.getAirplanesAsync("TruncatedTeam").get());
+			assertInstanceOf(IOException.class, e.getCause().getCause());
+			e = assertThrows(ExecutionException.class, () -> resSys.getAirportsAsync("TruncatedTeam").get());
+			assertInstanceOf(IOException.class, e.getCause().getCause());
+			assertFalse(ServerInterface.saveSnapshot(file, "TruncatedTeam"));
+			assertFalse(Files.exists(file));
+		} finally {
+			server.stop(0);
+			Files.deleteIfExists(file.getParent());
+		}
+	}
+
+	/**
+	 * JUnit test method for testing that a flight list cut short is reported as a failure and never cached.
+	 */
+	@Test
+	void truncatedtest() throws Exception {
+		Flights two = list();
+		two.add(new Flight("777", "200", "20837", "SAT", "2023 May 26 12:31 GMT", "BOS", "2023 May 26 15:51 GMT",
+				"$0.10", 39, "$0.20", 197));
+		String xml = SyntheticSchedule.toXml(two);
+		byte[] truncated = xml.substring(0, xml.indexOf("20837")).getBytes(StandardCharsets.UTF_8);
+		assertEquals(2, Flights.addAllf(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))).size());
+		assertThrows(IOException.class, () -> Flights.addAllf(new ByteArrayInputStream(truncated)));
+
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/ReservationSystem", exchange -> {
+			exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+			exchange.sendResponseHeaders(200, truncated.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(truncated);
+			}
+		});
+		server.start();
+		try {
+			ServerInterface resSys = new ServerInterface(new HttpTransport(urlBase(server), 1000, 5000));
+			assertEquals(0, resSys.getFlights("TruncatedTeam", "HNL", "Dummy", "2023_05_26", true).size());
+			assertNull(ServerInterface.flightCache().get("TruncatedTeam", "HNL", "2023_05_26", true));
+			ExecutionException e = assertThrows(ExecutionException.class,
+					() -> resSys.requestFlights("TruncatedTeam", "HNL", "2023_05_26", true).get());
+			assertInstanceOf(IOException.class, e.getCause().getCause());
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	/**
+	 * JUnit test method for testing that a failed asynchronous fetch is still recorded as a flight recorder event.
+	 */
+	@Test
+	void fetcheventtest() throws Exception {
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		String urlBase = urlBase(server);
+		server.stop(0);
+		Path file = Files.createTempFile("cs509", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("CS509.FetchFlights");
+			recording.start();
+			ServerInterface resSys = new ServerInterface(new HttpTransport(urlBase, 1000, 5000));
+			assertThrows(ExecutionException.class, () -> resSys.getFlightsAsync("EventTeam", "HNL", "Dummy", "2023_05_26", true).get());
+			recording.stop();
+			recording.dump(file);
+
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			assertEquals(1, events.size());
+			assertEquals("server", events.get(0).getString("source"));
+			assertEquals("HNL", events.get(0).getString("airport"));
+			assertEquals(0, events.get(0).getInt("flights"));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private static String urlBase(HttpServer server) {
+		return "http://localhost:" + server.getAddress().getPort() + "/ReservationSystem";
+	}
+
+	/**
+	 * JUnit test method for testing the blocking and asynchronous requests against a local stub server.
+	 */
+	@Test
+	void transporttest() throws Exception {
+		AtomicInteger requests = new AtomicInteger();
+		HttpServer server = stub(0, requests);
+		try {
+			ServerInterface resSys = new ServerInterface(new HttpTransport(urlBase(server), 1000, 5000));
+
+			Airplanes airplanes = resSys.getAirplanes("StubTeam");
+			assertEquals(1, airplanes.size());
+			assertEquals(260, airplanes.get(0).coachSeats());
+			assertEquals(1, resSys.getAirplanesAsync("StubTeam").get().size());
+
+			Flights flights = resSys.getFlightsAsync("StubTeam", "HNL", "Dummy", "2023_05_26", true).get();
+			assertEquals(1, flights.size());
+			assertEquals("20836", flights.get(0).getmNumber());
+			assertEquals(1, resSys.getFlights("StubTeam", "HNL", "Dummy", "2023_05_26", true).size());
+			assertEquals(3, requests.get());
+		} finally {
+			ServerInterface.flightCache().invalidateAll();
+			server.stop(0);
+		}
+	}
+
+	/**
+	 * JUnit test method for testing that a server slower than the read timeout does not hang the client.
+	 */
+	@Test
+	void timeouttest() throws Exception {
+		HttpServer server = stub(2000, new AtomicInteger());
+		try {
+			ServerInterface resSys = new ServerInterface(new HttpTransport(urlBase(server), 1000, 200));
+
+			assertEquals(0, resSys.getAirplanes("StubTeam").size());
+			CompletionException e = assertThrows(CompletionException.class,
+					() -> resSys.getAirplanesAsync("StubTeam").join());
+			assertInstanceOf(HttpTimeoutException.class, e.getCause());
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	/**
+	 * JUnit test method for testing that a preloaded schedule answers flight lists locally and is refreshed after a reservation.
+	 */
+	@Test
+	void preloadtest() throws Exception {
+		AtomicInteger requests = new AtomicInteger();
+		HttpServer server = stub(0, requests);
+		try {
+			ServerInterface resSys = new ServerInterface(new HttpTransport(urlBase(server), 1000, 5000));
+			ScheduleIndex schedule = ScheduleIndex.preload(resSys, "StubTeam", Arrays.asList("HNL", "SAT"),
+					ScheduleIndex.days("2023 May 25 00:00", "2023 May 26 23:59"), 2, null);
+			assertEquals(8, requests.get());
+			assertEquals(8, schedule.lists());
+			assertNull(schedule.get("OtherTeam", "HNL", "2023_05_26", true));
+
+			ServerInterface.useSchedule(schedule);
+			Flights flights = resSys.getFlights("StubTeam", "HNL", "Dummy", "2023_05_26", true);
+			assertEquals(1, flights.size());
+			flights.clear();
+			assertEquals(1, resSys.getFlightsAsync("StubTeam", "Dummy", "SAT", "2023_05_25", false).get().size());
+			assertEquals(8, requests.get());
+
+			// buying tickets only marks the lists, they are fetched again once the lock is released
+			schedule.markStale("<Flights><Flight number=\"20836\" seating=\"Coach\"/></Flights>");
+			assertEquals(8, requests.get());
+			assertEquals(0, schedule.lists());
+			assertEquals(8, schedule.staleLists());
+			assertNull(schedule.get("StubTeam", "HNL", "2023_05_26", true));
+			schedule.refreshStale(resSys).join();
+			assertEquals(16, requests.get());
+			assertEquals(8, schedule.lists());
+			assertEquals(0, schedule.staleLists());
+
+			schedule.refresh(resSys, "<Flights><Flight number=\"20836\" seating=\"Coach\"/></Flights>");
+			assertEquals(24, requests.get());
+			assertEquals(8, schedule.lists());
+		} finally {
+			ServerInterface.useSchedule(null);
+			server.stop(0);
+		}
+	}
+
+	/**
+	 * JUnit test method for testing that the StubServer serves a synthetic schedule, holds the lock per team,
+	 * reserves seats when tickets are bought, refuses a full flight and injects errors.
+	 */
+	@Test
+	void stubservertest() throws Exception {
+		SyntheticSchedule schedule = new SyntheticSchedule(4, 3, 2, 509L);
+		StubServer server = new StubServer(schedule, 0, 0, 0, 0).start();
+		try {
+			HttpTransport transport = new HttpTransport(server.url(), 1000, 5000);
+			ServerInterface resSys = new ServerInterface(transport);
+			String day = schedule.day(0);
+			Flights flights = resSys.requestFlights("StubTeam", schedule.code(0), day, true).get();
+			assertEquals(schedule.list(schedule.code(0), day, true).size(), flights.size());
+			assertEquals(schedule.airplanes().size(), resSys.getAirplanes("StubTeam").size());
+			assertEquals(4, resSys.getAirports("StubTeam").size());
+
+			AirplaneRegistry registry = new AirplaneRegistry(schedule.airplanes());
+			Flight flight = null;
+			Flight full = null;
+			for (Flight f : flights) {
+				if (registry.coachSeatsLeft(f) > 0) {
+					flight = f;
+				}
+			}
+			for (Flight f : schedule.list(schedule.code(0), day, true)) {
+				if (!f.getmNumber().equals(flight.getmNumber())) {
+					full = f;
+				}
+			}
+			assertNotNull(flight);
+			assertNotNull(full);
+			full.setmSeatsCoach(registry.get(full.getmAirplane()).coachSeats());
+			String reservation = "<Flights><Flight number=\"" + flight.getmNumber() + "\" seating=\"Coach\"/></Flights>";
+			assertEquals(409, transport.post("team=StubTeam&action=buyTickets&flightData=" + reservation, "StubTeam").statusCode());
+			assertEquals(200, transport.post("team=StubTeam&action=lockDB", "StubTeam").statusCode());
+			assertEquals(409, transport.post("team=OtherTeam&action=lockDB", "OtherTeam").statusCode());
+			assertEquals(202, transport.post("team=StubTeam&action=buyTickets&flightData=" + reservation, "StubTeam").statusCode());
+			String both = "<Flights><Flight number=\"" + flight.getmNumber() + "\" seating=\"Coach\"/>"
+					+ "<Flight number=\"" + full.getmNumber() + "\" seating=\"Coach\"/></Flights>";
+			assertEquals(409, transport.post("team=StubTeam&action=buyTickets&flightData=" + both, "StubTeam").statusCode());
+			assertEquals(200, transport.post("team=StubTeam&action=unlockDB", "StubTeam").statusCode());
+			Flights after = resSys.requestFlights("StubTeam", schedule.code(0), day, true).get();
+			for (Flight f : after) {
+				if (f.getmNumber().equals(flight.getmNumber())) {
+					assertEquals(flight.getmSeatsCoach() + 1, f.getmSeatsCoach());
+				} else if (f.getmNumber().equals(full.getmNumber())) {
+					assertEquals(full.getmSeatsCoach(), f.getmSeatsCoach());
+				}
+			}
+		} finally {
+			server.stop();
+		}
+
+		server = new StubServer(schedule, 0, 0, 0, 1).start();
+		try {
+			HttpTransport transport = new HttpTransport(server.url(), 1000, 5000);
+			assertEquals(503, transport.post("team=StubTeam&action=lockDB", "StubTeam").statusCode());
+			assertEquals(1, server.errors());
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * JUnit test method for testing that ServerMetrics records latency, bytes, status codes and errors per action.
+	 */
+	@Test
+	void metricstest() throws Exception {
+		assertEquals(ServerMetrics.Action.DEPARTING, ServerMetrics.Action.of(QueryFactory.getFlightsDeparting("TeamC", "BOS", "2023_05_10")));
+		assertEquals(ServerMetrics.Action.AIRPLANES, ServerMetrics.Action.of(QueryFactory.getAirplanes("TeamC")));
+		assertEquals(ServerMetrics.Action.BUY_TICKETS, ServerMetrics.Action.of(QueryFactory.reserve("TeamC", "<Flights/>")));
+		assertEquals(ServerMetrics.Action.OTHER, ServerMetrics.Action.of("?team=TeamC&transaction=list"));
+
+		SyntheticSchedule schedule = new SyntheticSchedule(4, 3, 2, 509L);
+		StubServer server = new StubServer(schedule, 0, 0, 0, 0).start();
+		ServerMetrics metrics = new ServerMetrics();
+		try {
+			HttpTransport transport = new HttpTransport(server.url(), 1000, 5000, metrics);
+			ServerInterface resSys = new ServerInterface(transport);
+			resSys.requestFlights("StubTeam", schedule.code(0), schedule.day(0), true).get();
+			resSys.requestFlights("StubTeam", schedule.code(1), schedule.day(0), true).get();
+			transport.post(QueryFactory.lock("StubTeam"), "StubTeam");
+			transport.post(QueryFactory.lock("OtherTeam"), "OtherTeam");
+
+			ServerMetrics.ActionMetrics departing = metrics.action(ServerMetrics.Action.DEPARTING);
+			assertEquals(2, departing.getRequests());
+			assertEquals(0, departing.getErrors());
+			assertTrue(departing.getResponseBytes() > 0);
+			assertTrue(departing.getP99Millis() <= departing.getMaxMillis());
+			assertEquals("{200=2}", departing.getStatusCodes());
+			assertEquals("{200=1, 409=1}", metrics.action(ServerMetrics.Action.LOCK).getStatusCodes());
+			assertEquals(0, metrics.action(ServerMetrics.Action.ARRIVING).getRequests());
+		} finally {
+			server.stop();
+		}
+
+		HttpTransport closed = new HttpTransport(server.url(), 1000, 5000, metrics);
+		assertThrows(IOException.class, () -> closed.get(QueryFactory.getAirports("StubTeam"), "StubTeam"));
+		assertEquals(1, metrics.action(ServerMetrics.Action.AIRPORTS).getErrors());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		metrics.dump(new PrintStream(out, true, "UTF-8"));
+		String table = out.toString("UTF-8");
+		assertTrue(table.contains("departing"));
+		assertFalse(table.contains("arriving"));
+		assertTrue(metrics.register());
+	}
+
+	/**
+	 * JUnit test method for testing that a snapshot written to disk reads back, and is refused when stale or of another team.
+	 */
+	@Test
+	void snapshottest() throws Exception {
+		Path file = Files.createTempFile("cs509", ".snapshot");
+		try {
+			Airports airports = new Airports();
+			airports.add(new Airport("Honolulu International", "HNL", 21.318681, -157.922428));
+			airports.add(new Airport("San Antonio International", "SAT", 29.533694, -98.469778));
+			Airplanes airplanes = new SyntheticSchedule(2, 1, 1, 7).airplanes();
+			Map<String, Flights> lists = new HashMap<String, Flights>();
+			lists.put(Snapshot.key("HNL", "2023_05_26", true), list());
+			Snapshot.write(file, "TeamC", airports, airplanes, lists);
+
+			Snapshot snapshot = Snapshot.open(file, "TeamC", 60 * 1000, 60 * 1000);
+			assertNotNull(snapshot);
+			assertEquals(2, snapshot.airports().size());
+			assertEquals("SAT", snapshot.airports().get(1).code());
+			assertEquals(airplanes.size(), snapshot.airplanes().size());
+			Flights flights = snapshot.flights("HNL", "2023_05_26", true);
+			assertEquals(1, flights.size());
+			assertEquals(list().get(0).getmNumber(), flights.get(0).getmNumber());
+			assertEquals(list().get(0).getmMinuteDepart(), flights.get(0).getmMinuteDepart());
+			assertNull(snapshot.flights("HNL", "2023_05_26", false));
+			assertEquals(1, Snapshot.open(file, "TeamC", Long.MAX_VALUE, Long.MAX_VALUE).flights("HNL", "2023_05_26", true).size());
+			snapshot.invalidateFlights();
+			assertNull(snapshot.flights("HNL", "2023_05_26", true));
+
+			assertNull(Snapshot.open(file, "OtherTeam", 60 * 1000, 60 * 1000));
+			Thread.sleep(5);
+			assertNull(Snapshot.open(file, "TeamC", 1, 60 * 1000));
+			assertNull(Snapshot.open(file.resolveSibling("missing.snapshot"), "TeamC", 60 * 1000, 60 * 1000));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * JUnit test method for testing that a truncated snapshot with a valid header is disabled and requests go to the server.
+	 */
+	@Test
+	void truncatedsnapshottest() throws Exception {
+		Path file = Files.createTempFile("cs509", ".snapshot");
+		AtomicInteger requests = new AtomicInteger();
+		HttpServer server = stub(0, requests);
+		try {
+			Airports airports = new Airports();
+			airports.add(new Airport("Honolulu International", "HNL", 21.318681, -157.922428));
+			Map<String, Flights> lists = new HashMap<String, Flights>();
+			lists.put(Snapshot.key("HNL", "2023_05_27", true), list());
+			Snapshot.write(file, "TeamC", airports, new SyntheticSchedule(2, 1, 1, 7).airplanes(), lists);
+			byte[] bytes = Files.readAllBytes(file);
+			Files.write(file, Arrays.copyOf(bytes, bytes.length - 20));
+
+			Snapshot snapshot = Snapshot.open(file, "TeamC", 60 * 1000, 60 * 1000);
+			assertNotNull(snapshot);
+			assertFalse(snapshot.isCorrupt());
+			assertNull(snapshot.flights("HNL", "2023_05_27", true));
+			assertTrue(snapshot.isCorrupt());
+			assertTrue(snapshot.airports().isEmpty());
+			assertTrue(snapshot.airplanes().isEmpty());
+
+			ServerInterface.useSnapshot(snapshot);
+			ServerInterface resSys = new ServerInterface(new HttpTransport(urlBase(server), 1000, 5000));
+			assertEquals(1, resSys.getFlights("TeamC", "HNL", "Dummy", "2023_05_27", true).size());
+			assertEquals(1, requests.get());
+
+			Files.write(file, Arrays.copyOf(bytes, 60));
+			Snapshot header = Snapshot.open(file, "TeamC", 60 * 1000, 60 * 1000);
+			assertNotNull(header);
+			assertTrue(header.airports().isEmpty());
+			assertTrue(header.isCorrupt());
+		} finally {
+			ServerInterface.useSnapshot(null);
+			ServerInterface.flightCache().invalidateAll();
+			server.stop(0);
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * JUnit test method for testing that saving a snapshot keeps what the snapshot in use answered with the time it was
+	 * fetched, adds what was fetched from the server, and leaves the file alone when nothing was fetched.
+	 */
+	@Test
+	void snapshotsavetest() throws Exception {
+		Path file = Files.createTempFile("cs509", ".snapshot");
+		AtomicInteger requests = new AtomicInteger();
+		HttpServer server = stub(0, requests);
+		try {
+			long fetched = System.currentTimeMillis() - 10 * 1000;
+			Airports airports = new Airports();
+			airports.add(new Airport("Honolulu International", "HNL", 21.318681, -157.922428));
+			Map<String, Flights> lists = new HashMap<String, Flights>();
+			lists.put(Snapshot.key("HNL", "2023_05_26", true), list());
+			Map<String, Long> listsFetched = new HashMap<String, Long>();
+			listsFetched.put(Snapshot.key("HNL", "2023_05_26", true), fetched);
+			Snapshot.write(file, "SaveTeam", airports, fetched, new SyntheticSchedule(2, 1, 1, 7).airplanes(), fetched, lists, listsFetched);
+			byte[] written = Files.readAllBytes(file);
+
+			ServerInterface.useSnapshot(Snapshot.open(file, "SaveTeam", 60 * 1000, 60 * 1000));
+			ServerInterface resSys = new ServerInterface(new HttpTransport(urlBase(server), 1000, 5000));
+			assertEquals(1, resSys.getAirports("SaveTeam").size());
+			assertEquals(1, resSys.getFlights("SaveTeam", "HNL", "Dummy", "2023_05_26", true).size());
+			assertEquals(0, requests.get());
+			assertFalse(ServerInterface.saveSnapshot(file, "SaveTeam"));
+			assertArrayEquals(written, Files.readAllBytes(file));
+
+			long before = System.currentTimeMillis();
+			assertEquals(1, resSys.getFlights("SaveTeam", "HNL", "Dummy", "2023_05_27", true).size());
+			assertEquals(1, requests.get());
+			Snapshot live = ServerInterface.snapshot();
+			assertTrue(ServerInterface.saveSnapshot(file, "SaveTeam"));
+			assertNull(ServerInterface.snapshot());
+			assertNull(live.flights("HNL", "2023_05_26", true));
+
+			Snapshot saved = Snapshot.open(file, "SaveTeam", 60 * 1000, 60 * 1000);
+			assertTrue(saved.created() >= before);
+			assertEquals(fetched, saved.airportsFetched());
+			assertEquals(fetched, saved.airplanesFetched());
+			assertEquals(1, saved.airports().size());
+			assertEquals(fetched, saved.listFetched(Snapshot.key("HNL", "2023_05_26", true)));
+			assertTrue(saved.listFetched(Snapshot.key("HNL", "2023_05_27", true)) >= before);
+			assertEquals(1, saved.flights("HNL", "2023_05_26", true).size());
+			assertEquals(1, saved.flights("HNL", "2023_05_27", true).size());
+			saved.close();
+
+			Snapshot aged = Snapshot.open(file, "SaveTeam", 5 * 1000, 5 * 1000);
+			assertTrue(aged.airports().isEmpty());
+			assertTrue(aged.airplanes().isEmpty());
+			assertNull(aged.flights("HNL", "2023_05_26", true));
+			assertEquals(1, aged.flights("HNL", "2023_05_27", true).size());
+			aged.close();
+		} finally {
+			ServerInterface.useSnapshot(null);
+			ServerInterface.flightCache().invalidateAll();
+			server.stop(0);
+			Files.deleteIfExists(file);
+		}
+	}
+}
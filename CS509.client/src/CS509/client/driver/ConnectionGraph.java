@@ -0,0 +1,221 @@
+package CS509.client.driver;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import CS509.client.airplane.AirplaneRegistry;
+import CS509.client.airplane.Airplanes;
+import CS509.client.airport.AirportCode;
+import CS509.client.airport.DayWindow;
+import CS509.client.flight.Flight;
+import CS509.client.flight.Flights;
+import CS509.client.util.SearchEvents;
+import CS509.client.util.Sp;
+
+/**
+ * Time-expanded connection graph built from a set of loaded Flights.
+ *
+ * Every flight is a node keyed by its departure airport and departure minute. Nodes are held in
+ * a RouteIndex, so the legs that can follow an arrival at (airport, minute) are found with a
+ * binary search over that airport's departures, or over one route when the next airport is
+ * known, instead of comparing every departing flight against every arriving flight.
+ *
+ * Queries answer the same 0/1/2 stop searches as FlightSearch and return the same
+ * List of Flights, so callers can switch between the two without other changes.
+ *
+ * @author Team C
+ */
+public class ConnectionGraph {
+
+	/**
+	 * Nodes of the graph, numbered by their leg in the index
+	 */
+	private final RouteIndex routes;
+	private final int[] coachLeft;
+	private final int[] firstLeft;
+
+	/**
+	 * Builds the graph from the given flights. Flights listed more than once (for example in
+	 * both a departing and an arriving list) become a single node, and flights whose times
+	 * cannot be parsed are left out.
+	 *
+	 * @param loaded Flights to build the graph from
+	 * @param airplanes Airplanes used to work out the remaining seats of every flight
+	 */
+	public ConnectionGraph(Flights loaded, Airplanes airplanes) {
+		this(loaded, new AirplaneRegistry(airplanes));
+	}
+
+	/**
+	 * Builds the graph from the given flights, reading airplane capacities from a registry
+	 *
+	 * @param loaded Flights to build from
+	 * @param airplanes registry used to work out the remaining seats of every flight
+	 */
+	public ConnectionGraph(Flights loaded, AirplaneRegistry airplanes) {
+		routes = new RouteIndex(loaded);
+
+		int n = routes.size();
+		coachLeft = new int[n];
+		firstLeft = new int[n];
+		for (int i = 0; i < n; i++) {
+			coachLeft[i] = airplanes.coachSeatsLeft(routes.flight(i));
+			firstLeft[i] = airplanes.firstClassSeatsLeft(routes.flight(i));
+		}
+	}
+
+	/**
+	 * Loads every flight needed to answer the 0/1/2 stop searches between two airports and builds
+	 * the graph from them. The departing lists of the intermediate airports are fetched once per
+	 * airport instead of once per first leg, and concurrently.
+	 *
+	 * @param team The ticket agency
+	 * @param departure Departure airport code
+	 * @param arrival Arrival airport code
+	 * @param date Departure Date
+	 * @return graph holding the departing, arriving and intermediate flights for the date
+	 */
+	public static ConnectionGraph load(String team, String departure, String arrival, String date) {
+		SearchEvents.LoadGraph event = new SearchEvents.LoadGraph();
+		event.begin();
+		Flights loaded = new Flights();
+		Flights departing = FlightSearch.getFlights(team, departure, arrival, date, true);
+		loaded.addAll(departing);
+		loaded.addAll(FlightSearch.getFlights(team, departure, arrival, date, false));
+
+		Set<String> stops = new LinkedHashSet<String>();
+		for (Flight f1 : departing) {
+			if (!f1.getmCodeArrival().equals(arrival) && FlightSearch.validDate(f1, date, departure)) {
+				stops.add(f1.getmCodeArrival());
+			}
+		}
+		for (Flights second : FlightSearch.getDepartingFlights(team, stops, date).values()) {
+			loaded.addAll(second);
+		}
+		ConnectionGraph graph = new ConnectionGraph(loaded, FlightSearch.registry);
+		event.finish(departure, arrival, date, stops.size(), loaded.size());
+		return graph;
+	}
+
+	/**
+	 * Returns the list of possible flights between the given airports with No layover
+	 *
+	 * @param departure Departure airport code
+	 * @param arrival Arrival airport code
+	 * @param date Departure Date
+	 * @param seats Number of seats
+	 * @param coach True if coach, false if FirstClass
+	 * @return List of flights with no stops.
+	 */
+	public List<Flights> searchWithNoStop(String departure, String arrival, String date, int seats, boolean coach) {
+		SearchEvents.Search event = new SearchEvents.Search();
+		event.begin();
+		List<Flights> res = new ArrayList<Flights>();
+		DayWindow window = DayWindow.of(date, departure);
+		for (int i : routes.route(departure, arrival, window.startGMT() + 1, window.endGMT() - 1)) {
+			if (isSeatAvailable(i, seats, coach)) {
+				res.add(itinerary(i));
+			}
+		}
+		event.finish("ConnectionGraph.searchWithNoStop", departure, arrival, date, 0, routes.size(), res.size());
+		return res;
+	}
+
+	/**
+	 * Returns the list of possible flights between the given airports with one layover.
+	 * The layover threshold is set between Sp.MIN_LAYOVER and Sp.MAX_TOTAL_LAYOVER
+	 *
+	 * @param departure Departure airport code
+	 * @param arrival Arrival airport code
+	 * @param date Departure Date
+	 * @param seats Number of seats
+	 * @param coach True if coach, false if FirstClass
+	 * @return List of flights with one stop.
+	 */
+	public List<Flights> searchWithOneStop(String departure, String arrival, String date, int seats, boolean coach) {
+		SearchEvents.Search event = new SearchEvents.Search();
+		event.begin();
+		List<Flights> res = new ArrayList<Flights>();
+		int arrivalId = AirportCode.id(arrival);
+		int[] out = firstLegs(departure, date);
+		for (int i = out[0]; i < out[1]; i++) {
+			if (!isSeatAvailable(i, seats, coach)) {
+				continue;
+			}
+			long landed = routes.arriveMinute(i);
+			for (int j : routes.route(routes.arriveId(i), arrivalId, landed + Sp.MIN_LAYOVER, landed + Sp.MAX_TOTAL_LAYOVER)) {
+				if (isSeatAvailable(j, seats, coach)) {
+					res.add(itinerary(i, j));
+				}
+			}
+		}
+		event.finish("ConnectionGraph.searchWithOneStop", departure, arrival, date, 1, routes.size(), res.size());
+		return res;
+	}
+
+	/**
+	 * Returns the list of possible flights between the given airports with two layovers.
+	 * Each layover is between Sp.MIN_LAYOVER and Sp.MAX_LAYOVER and the total layover is
+	 * at most Sp.MAX_TOTAL_LAYOVER
+	 *
+	 * @param departure Departure airport code
+	 * @param arrival Arrival airport code
+	 * @param date Departure Date
+	 * @param seats Number of seats
+	 * @param coach True if coach, false if FirstClass
+	 * @return List of flights with two stops.
+	 */
+	public List<Flights> searchWithTwoStop(String departure, String arrival, String date, int seats, boolean coach) {
+		SearchEvents.Search event = new SearchEvents.Search();
+		event.begin();
+		List<Flights> res = new ArrayList<Flights>();
+		int arrivalId = AirportCode.id(arrival);
+		int[] out = firstLegs(departure, date);
+		for (int i = out[0]; i < out[1]; i++) {
+			if (routes.arriveId(i) == arrivalId || !isSeatAvailable(i, seats, coach)) {
+				continue;
+			}
+			long landed = routes.arriveMinute(i);
+			int[] second = routes.departing(routes.arriveId(i), landed + Sp.MIN_LAYOVER, landed + Sp.MAX_LAYOVER);
+			for (int j = second[0]; j < second[1]; j++) {
+				int stop = routes.arriveId(j);
+				if (!routes.connects(stop, arrivalId) || !isSeatAvailable(j, seats, coach)) {
+					continue;
+				}
+				long layover1 = routes.departMinute(j) - landed;
+				long landed2 = routes.arriveMinute(j);
+				long latest = Math.min(landed2 + Sp.MAX_LAYOVER, landed2 + Sp.MAX_TOTAL_LAYOVER - layover1);
+				for (int k : routes.route(stop, arrivalId, landed2 + Sp.MIN_LAYOVER, latest)) {
+					if (isSeatAvailable(k, seats, coach)) {
+						res.add(itinerary(i, j, k));
+					}
+				}
+			}
+		}
+		event.finish("ConnectionGraph.searchWithTwoStop", departure, arrival, date, 2, routes.size(), res.size());
+		return res;
+	}
+
+	/**
+	 * @return {from, to} range of the nodes leaving the departure airport on the local day
+	 */
+	private int[] firstLegs(String departure, String date) {
+		DayWindow window = DayWindow.of(date, departure);
+		return routes.departing(departure, window.startGMT() + 1, window.endGMT() - 1);
+	}
+
+	private boolean isSeatAvailable(int node, int seats, boolean coach) {
+		return (coach ? coachLeft[node] : firstLeft[node]) >= seats;
+	}
+
+	private Flights itinerary(int... nodes) {
+		Flights flight = new Flights();
+		for (int node : nodes) {
+			flight.add(routes.flight(node));
+		}
+		return flight;
+	}
+
+}
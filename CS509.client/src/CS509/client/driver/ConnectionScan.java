@@ -0,0 +1,286 @@
+package CS509.client.driver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import CS509.client.airplane.AirplaneRegistry;
+import CS509.client.airplane.Airplanes;
+import CS509.client.airport.AirportCode;
+import CS509.client.airport.DayWindow;
+import CS509.client.flight.Flight;
+import CS509.client.flight.Flights;
+import CS509.client.util.Sp;
+
+/**
+ * Connection Scan Algorithm (CSA) search over a set of loaded Flights.
+ *
+ * All flights are held as connections in one array sorted by departure minute. A search walks
+ * that array once; every connection either starts an itinerary at the departure airport or extends
+ * the partial itineraries waiting at its departure airport. Layovers follow the same rules as the
+ * fixed stop searches: a single layover is between Sp.MIN_LAYOVER and Sp.MAX_TOTAL_LAYOVER, and
+ * when an itinerary has two or more, each is between Sp.MIN_LAYOVER and Sp.MAX_LAYOVER and their
+ * total is at most Sp.MAX_TOTAL_LAYOVER. As in the fixed stop searches, only reaching the arrival
+ * airport ends an itinerary, other airports may be passed through again. Any number of stops is
+ * found in the same pass, and up to 0, 1 or 2 stops it finds the same itineraries as FlightSearch.
+ *
+ * @author Team C
+ */
+public class ConnectionScan {
+
+	/**
+	 * Connections sorted by departure minute
+	 */
+	private final Flight[] connections;
+	private final long[] departMinute;
+	private final long[] arriveMinute;
+	private final int[] departId;
+	private final int[] arriveId;
+	private final int[] coachLeft;
+	private final int[] firstLeft;
+
+	/**
+	 * A partial itinerary ending with a connection. Partial itineraries share their prefix.
+	 */
+	private static class Leg {
+		final int connection;
+		final Leg previous;
+		final int stops;
+		final long layover;
+		final long longest;
+
+		Leg(int connection, Leg previous, long layover) {
+			this.connection = connection;
+			this.previous = previous;
+			this.stops = previous == null ? 0 : previous.stops + 1;
+			this.layover = previous == null ? 0 : previous.layover + layover;
+			this.longest = previous == null ? 0 : Math.max(previous.longest, layover);
+		}
+	}
+
+	/**
+	 * Builds the connection array from the given flights. Flights listed more than once become a
+	 * single connection, and flights whose times cannot be parsed are left out.
+	 *
+	 * @param loaded Flights to scan
+	 * @param airplanes Airplanes used to work out the remaining seats of every flight
+	 */
+	public ConnectionScan(Flights loaded, Airplanes airplanes) {
+		this(loaded, new AirplaneRegistry(airplanes));
+	}
+
+	/**
+	 * Builds the connection array from the given flights, reading airplane capacities from a registry
+	 *
+	 * @param loaded Flights to build from
+	 * @param airplanes registry used to work out the remaining seats of every flight
+	 */
+	public ConnectionScan(Flights loaded, AirplaneRegistry airplanes) {
+		Map<String, Flight> unique = new HashMap<String, Flight>();
+		for (Flight flight : loaded) {
+			if (unique.containsKey(flight.getmNumber())) {
+				continue;
+			}
+			// a flight without a usable schedule can never be part of an itinerary
+			if (flight.getmMinuteDepart() != Flight.NO_TIME && flight.getmMinuteArrival() != Flight.NO_TIME
+					&& flight.getmIdDepart() != AirportCode.NO_ID && flight.getmIdArrival() != AirportCode.NO_ID) {
+				unique.put(flight.getmNumber(), flight);
+			}
+		}
+
+		Flight[] sorted = unique.values().toArray(new Flight[0]);
+		Arrays.sort(sorted, Comparator.comparingLong(Flight::getmMinuteDepart));
+
+		int n = sorted.length;
+		connections = sorted;
+		departMinute = new long[n];
+		arriveMinute = new long[n];
+		departId = new int[n];
+		arriveId = new int[n];
+		coachLeft = new int[n];
+		firstLeft = new int[n];
+		for (int i = 0; i < n; i++) {
+			departMinute[i] = sorted[i].getmMinuteDepart();
+			arriveMinute[i] = sorted[i].getmMinuteArrival();
+			departId[i] = sorted[i].getmIdDepart();
+			arriveId[i] = sorted[i].getmIdArrival();
+			coachLeft[i] = airplanes.coachSeatsLeft(sorted[i]);
+			firstLeft[i] = airplanes.firstClassSeatsLeft(sorted[i]);
+		}
+	}
+
+	/**
+	 * @return number of connections in the scan
+	 */
+	public int size() {
+		return connections.length;
+	}
+
+	/**
+	 * Loads every flight an itinerary of up to maxStops stops can use: the departing lists of all
+	 * airports reachable from the departure airport in fewer than maxStops + 1 legs, plus the
+	 * flights arriving at the arrival airport.
+	 *
+	 * @param team The ticket agency
+	 * @param departure Departure airport code
+	 * @param arrival Arrival airport code
+	 * @param date Departure Date
+	 * @param maxStops Maximum number of stops
+	 * @return scan holding the loaded connections
+	 */
+	public static ConnectionScan load(String team, String departure, String arrival, String date, int maxStops) {
+		Flights loaded = new Flights();
+		loaded.addAll(FlightSearch.getFlights(team, departure, arrival, date, false));
+
+		Set<String> visited = new HashSet<String>();
+		List<String> frontier = new ArrayList<String>();
+		frontier.add(departure);
+		visited.add(departure);
+		visited.add(arrival);
+
+		for (int depth = 0; depth <= maxStops && !frontier.isEmpty(); depth++) {
+			List<String> next = new ArrayList<String>();
+			for (Flights departing : FlightSearch.getDepartingFlights(team, frontier, date).values()) {
+				loaded.addAll(departing);
+				for (Flight f : departing) {
+					if (visited.add(f.getmCodeArrival())) {
+						next.add(f.getmCodeArrival());
+					}
+				}
+			}
+			frontier = next;
+		}
+		return new ConnectionScan(loaded, FlightSearch.registry);
+	}
+
+	/**
+	 * Finds every itinerary between the given airports with at most maxStops stops in a single
+	 * scan over the connections.
+	 *
+	 * @param departure Departure airport code
+	 * @param arrival Arrival airport code
+	 * @param date Departure Date
+	 * @param maxStops Maximum number of stops
+	 * @param seats Number of seats
+	 * @param coach True if coach, false if FirstClass
+	 * @return List of flights, ordered by the departure of their last leg
+	 */
+	public List<Flights> search(String departure, String arrival, String date, int maxStops, int seats, boolean coach) {
+		List<Flights> res = new ArrayList<Flights>();
+		int departureId = AirportCode.id(departure);
+		int arrivalId = AirportCode.id(arrival);
+		if (departureId == AirportCode.NO_ID || arrivalId == AirportCode.NO_ID) {
+			return res;
+		}
+		int[] hops = hopsTo(arrivalId, maxStops);
+		if (hops[departureId] < 0) {
+			return res;
+		}
+
+		// partial itineraries still in the air, ordered by arrival, and those waiting at an airport
+		PriorityQueue<Leg> landing = new PriorityQueue<Leg>(Comparator.comparingLong(l -> arriveMinute[l.connection]));
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		ArrayDeque<Leg>[] waiting = new ArrayDeque[AirportCode.SIZE];
+
+		for (int c = 0; c < connections.length; c++) {
+			long now = departMinute[c];
+			while (!landing.isEmpty() && arriveMinute[landing.peek().connection] + Sp.MIN_LAYOVER <= now) {
+				Leg leg = landing.poll();
+				int at = arriveId[leg.connection];
+				if (waiting[at] == null) {
+					waiting[at] = new ArrayDeque<Leg>();
+				}
+				waiting[at].addLast(leg);
+			}
+
+			int remaining = hops[arriveId[c]];
+			if (remaining < 0 || !isSeatAvailable(c, seats, coach)) {
+				continue;
+			}
+
+			// a connection from the departure airport starts an itinerary, and can also continue one passing through
+			if (departId[c] == departureId && remaining <= maxStops && validDate(c, date, departureId)) {
+				extend(new Leg(c, null, 0), arrivalId, maxStops, landing, res);
+			}
+
+			ArrayDeque<Leg> here = waiting[departId[c]];
+			if (here == null) {
+				continue;
+			}
+			// a leg may wait up to Sp.MAX_TOTAL_LAYOVER when it makes the only layover of its itinerary
+			while (!here.isEmpty() && arriveMinute[here.peekFirst().connection] + Sp.MAX_TOTAL_LAYOVER < now) {
+				here.pollFirst();
+			}
+			for (Leg previous : here) {
+				long layover = now - arriveMinute[previous.connection];
+				if (previous.stops + 1 + remaining <= maxStops
+						&& previous.layover + layover <= Sp.MAX_TOTAL_LAYOVER
+						&& (previous.stops == 0 || Math.max(previous.longest, layover) <= Sp.MAX_LAYOVER)) {
+					extend(new Leg(c, previous, layover), arrivalId, maxStops, landing, res);
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Either completes an itinerary or leaves it waiting for its next connection.
+	 * A layover longer than Sp.MAX_LAYOVER is only allowed as the single layover of an itinerary,
+	 * so a partial itinerary holding one cannot wait for another connection.
+	 */
+	private void extend(Leg leg, int arrivalId, int maxStops, PriorityQueue<Leg> landing, List<Flights> res) {
+		if (arriveId[leg.connection] == arrivalId) {
+			res.add(itinerary(leg));
+		} else if (leg.stops < maxStops && leg.longest <= Sp.MAX_LAYOVER) {
+			landing.add(leg);
+		}
+	}
+
+	/**
+	 * Counts, for every airport, the fewest legs needed to reach the arrival airport, leaving out
+	 * airports that need more than maxStops + 1 legs
+	 *
+	 * @return fewest legs indexed by AirportCode id, -1 for airports left out
+	 */
+	private int[] hopsTo(int arrivalId, int maxStops) {
+		int[] hops = new int[AirportCode.SIZE];
+		Arrays.fill(hops, -1);
+		hops[arrivalId] = 0;
+		boolean reached = true;
+		for (int depth = 1; depth <= maxStops + 1 && reached; depth++) {
+			reached = false;
+			for (int c = 0; c < connections.length; c++) {
+				if (hops[arriveId[c]] == depth - 1 && hops[departId[c]] < 0) {
+					hops[departId[c]] = depth;
+					reached = true;
+				}
+			}
+		}
+		return hops;
+	}
+
+	private boolean isSeatAvailable(int connection, int seats, boolean coach) {
+		return (coach ? coachLeft[connection] : firstLeft[connection]) >= seats;
+	}
+
+	private boolean validDate(int connection, String date, int airportId) {
+		return DayWindow.of(date, airportId).contains(departMinute[connection]);
+	}
+
+	private Flights itinerary(Leg leg) {
+		Flight[] legs = new Flight[leg.stops + 1];
+		for (Leg l = leg; l != null; l = l.previous) {
+			legs[l.stops] = connections[l.connection];
+		}
+		Flights flight = new Flights();
+		flight.addAll(Arrays.asList(legs));
+		return flight;
+	}
+}
@@ -1,14 +1,22 @@
 package CS509.client.driver;
 
+import CS509.client.dao.ScheduleIndex;
 import CS509.client.dao.ServerInterface;
+import CS509.client.dao.ServerMetrics;
+import CS509.client.dao.Snapshot;
 import CS509.client.driver.reservationBuilder.flDirection;
 import CS509.client.flight.*;
 import CS509.client.util.Sp;
 import CS509.client.airport.*;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.TimeoutException;
 /**
  * @author Gokul
  * @author Akaash
@@ -37,7 +45,10 @@ public class Driver {
 	}
 
 	/**
-	 * @param args
+	 * @param args pass --preload (or set -Dcs509.preload=true) to load the whole schedule at startup
+	 * and set -Dcs509.server=URL to use another reservation server, e.g. a local StubServer.
+	 * Pass --metrics (or set -Dcs509.metrics=true) to print the server metrics to stderr every Sp.METRICS_DUMP_PERIOD
+	 * Run with -XX:StartFlightRecording:filename=search.jfr to record the time of every search phase, see SearchEvents
 	 * @throws IOException 
 	 */
 	public static void main(String[] args) throws IOException {
@@ -50,6 +61,15 @@ public class Driver {
 		State uiState = State.WELCOME;
 		String stringIn = new String();
 		Airports airports = new Airports();
+		ServerInterface.useSnapshot(Snapshot.open(Paths.get(Sp.SNAPSHOT_FILE), team, Sp.SNAPSHOT_MAX_AGE, Sp.FLIGHT_CACHE_TTL));
+		ServerMetrics.global().register();
+		boolean metrics = metricsRequested(args);
+		if (metrics) {
+			ServerMetrics.global().startDump(System.err, Sp.METRICS_DUMP_PERIOD);
+		}
+		if (preloadRequested(args)) {
+			preload(resSys, team);
+		}
 		
 		boolean justSorted = false;
 		//------------
@@ -85,8 +105,7 @@ public class Driver {
 				
 			case GET_DEP_AIRPORT:
 				System.out.println("Finding Airports available...:");
-				String xmlAirport = resSys.getAirports(team);
-				airports.addAll(xmlAirport);
+				airports = resSys.getAirports(team);
 				Flight.setmAirports(airports);
 				
 				System.out.println("Found Aiports!");
@@ -197,6 +216,10 @@ public class Driver {
 					resBuild.searchFlights();
 				} catch (ParseException e1) {
 					e1.printStackTrace();
+				} catch (TimeoutException e1) {
+					System.out.println("The search took too long. Please try again.");
+					uiState = State.BOOK_A_FLIGHT;
+					break;
 				}
 				resBuild.makeTrips();
 				uiState = State.DISPLAY_DEP_FLIGHTS;
@@ -222,6 +245,8 @@ public class Driver {
 				System.out.println("Departure Time: D");
 				System.out.println("Arrival Time: A");
 				System.out.println("Length of Trip: L");
+				System.out.println("Next page: N");
+				System.out.println("Previous page: B");
 				
 				stringIn = s.nextLine();
 				Integer index = 0;
@@ -258,6 +283,16 @@ public class Driver {
 					uiState = State.DISPLAY_DEP_FLIGHTS;
 					justSorted = true;
 					resBuild.sortByTripLength(flDirection.OUTBOUND);
+				}else if(stringIn.equalsIgnoreCase("N")) {
+					uiState = State.DISPLAY_DEP_FLIGHTS;
+					if(!resBuild.nextPage(flDirection.OUTBOUND)) {
+						System.out.println("This is the last page.");
+					}
+				}else if(stringIn.equalsIgnoreCase("B")) {
+					uiState = State.DISPLAY_DEP_FLIGHTS;
+					if(!resBuild.previousPage(flDirection.OUTBOUND)) {
+						System.out.println("This is the first page.");
+					}
 				}else if(stringIn.equalsIgnoreCase("X")) {
 					uiState = State.EXIT_APP;
 				}else if(stringIn.equalsIgnoreCase("R")) {
@@ -286,6 +321,8 @@ public class Driver {
 				System.out.println("Departure Time: D");
 				System.out.println("Arrival Time: A");
 				System.out.println("Length of Trip: L");
+				System.out.println("Next page: N");
+				System.out.println("Previous page: B");
 				
 				stringIn = s.nextLine();
 				index = 0;
@@ -318,6 +355,16 @@ public class Driver {
 					uiState = State.DISPLAY_ARR_FLIGHTS;
 					justSorted = true;
 					resBuild.sortByTripLength(flDirection.INBOUND);
+				}else if(stringIn.equalsIgnoreCase("N")) {
+					uiState = State.DISPLAY_ARR_FLIGHTS;
+					if(!resBuild.nextPage(flDirection.INBOUND)) {
+						System.out.println("This is the last page.");
+					}
+				}else if(stringIn.equalsIgnoreCase("B")) {
+					uiState = State.DISPLAY_ARR_FLIGHTS;
+					if(!resBuild.previousPage(flDirection.INBOUND)) {
+						System.out.println("This is the first page.");
+					}
 				}else if(stringIn.equalsIgnoreCase("X")) {
 					uiState = State.EXIT_APP;
 				}else if(stringIn.equalsIgnoreCase("R")) {
@@ -374,6 +421,11 @@ public class Driver {
 				break;
 				
 			case EXIT_APP:
+				saveSnapshot(team);
+				if (metrics) {
+					ServerMetrics.global().stopDump();
+					ServerMetrics.global().dump(System.err);
+				}
 				System.out.println("Thank you for using Team C's Flight Application, Goodbye!");
 				appOn = false;
 				break;
@@ -386,4 +438,55 @@ public class Driver {
 		s.close();
 	}
 
+	/**
+	 * Preload mode fetches every flight list of the database window once at startup
+	 * @param args command line arguments
+	 * @return true if --preload was given or the cs509.preload system property is true
+	 */
+	static boolean preloadRequested(String[] args) {
+		return Arrays.asList(args).contains("--preload") || Boolean.getBoolean("cs509.preload");
+	}
+
+	/**
+	 * Metrics mode prints what the requests to the server cost while the application runs
+	 * @param args command line arguments
+	 * @return true if --metrics was given or the cs509.metrics system property is true
+	 */
+	static boolean metricsRequested(String[] args) {
+		return Arrays.asList(args).contains("--metrics") || Boolean.getBoolean("cs509.metrics");
+	}
+
+	/**
+	 * Loads the departing and arriving flights of every airport from Sp.START to Sp.END, so searches are answered locally
+	 * @param resSys interface to the server
+	 * @param team the ticket agency
+	 */
+	private static void preload(ServerInterface resSys, String team) {
+		System.out.println("Loading the flight schedule from " + Sp.START + " to " + Sp.END + "...");
+		List<String> codes = new ArrayList<String>();
+		for (Airport airport : resSys.getAirports(team)) {
+			codes.add(airport.code());
+		}
+		try {
+			ServerInterface.useSchedule(ScheduleIndex.preload(resSys, team, codes,
+					ScheduleIndex.days(Sp.START, Sp.END), Sp.FETCH_CONCURRENCY, System.out));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.out.println("Loading was interrupted, flights will be fetched as needed.");
+		}
+	}
+
+	/**
+	 * Saves the airports, airplanes and flight lists fetched so far, so the next start does not wait for the server.
+	 * What the snapshot of the last run answered is kept with its age, the file is left alone if nothing was fetched.
+	 * @param team the ticket agency
+	 */
+	private static void saveSnapshot(String team) {
+		try {
+			ServerInterface.saveSnapshot(Paths.get(Sp.SNAPSHOT_FILE), team);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 }
\ No newline at end of file
@@ -1,14 +1,22 @@
 package CS509.client.driver;
 import java.util.ArrayList;
-
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import CS509.client.flight.*;
 import CS509.client.airplane.*;
 import CS509.client.airport.*;
 import CS509.client.dao.ServerInterface; 
+import CS509.client.util.SearchEvents;
 import CS509.client.util.Sp;
 /**
  * @author gokul
@@ -23,7 +31,12 @@ import CS509.client.util.Sp;
 public class FlightSearch{
 
 	final static Airplanes a = getAirplanes();
-	static SimpleDateFormat sdf = new SimpleDateFormat("yyyy MMM dd HH:mm z");	
+	final static AirplaneRegistry registry = new AirplaneRegistry(a);
+	private final static ExecutorService fetchPool = Executors.newFixedThreadPool(Sp.FETCH_CONCURRENCY, r -> {
+		Thread t = new Thread(r, "flight-fetch");
+		t.setDaemon(true);
+		return t;
+	});
 	
 	/**
 	 * Searches and return the list of possible flights between the given airports with No layover
@@ -39,19 +52,22 @@ public class FlightSearch{
 	 */
 	public static List<Flights> searchFlightsWithNoStop(String team,String departure,String arrival,String date, int seats,boolean coach){
 
+		SearchEvents.Search event = new SearchEvents.Search();
+		event.begin();
 		List<Flights> res=new ArrayList<Flights>();
 		
-		Flights xmlflights = getFlights(team,departure,arrival,date,true);
-		xmlflights = filterByArrival(arrival,xmlflights);
-		for (Flight f1: xmlflights) {
+		RouteIndex routes = new RouteIndex(getFlights(team,departure,arrival,date,true));
+		DayWindow window = DayWindow.of(date,departure);
+		for (int leg : routes.route(departure, arrival, window.startGMT() + 1, window.endGMT() - 1)) {
+			Flight f1 = routes.flight(leg);
 			if(isSeatAvailable(f1,seats,coach)) {
 				Flights flight=new Flights();
-				if (validDate(f1,date,departure)) {
 				flight.add(f1);
 				res.add(flight);
-				}}
+				}
 		}
 //		System.out.println("Flights with no layover:"+res.size());	
+		event.finish("FlightSearch.searchFlightsWithNoStop", departure, arrival, date, 0, routes.size(), res.size());
 		return res;
 		
 	}
@@ -59,7 +75,7 @@ public class FlightSearch{
 	/**
 	 * 
 	 * Searches and return the list of possible flights between the given airports with one layover
-	 * The layover threshold is set between 30 minutes and 2 hours
+	 * The layover threshold is set between 30 minutes and 6 hours
 	 * Returns a List of Flights
 	 *
 	 * @param team The ticket agency
@@ -73,27 +89,35 @@ public class FlightSearch{
 	 */
 	public static List<Flights> searchFlightsWithOneStop(String team,String departure,String arrival,String date,int seats,boolean coach) throws ParseException{
 	
+		SearchEvents.Search event = new SearchEvents.Search();
+		event.begin();
 		List<Flights> res=new ArrayList<Flights>();
 		
-		Flights flights1 = getFlights(team,departure,arrival,date,true);
-		Flights flights2 = getFlights(team,departure,arrival,date,false);//false means search by departure
-			
-		for(Flight f1 : flights1){			
-			for(Flight f2 :flights2){
-				if(f1.getmCodeArrival().equals(f2.getmCodeDepart()) && validDate(f1,date,departure)){										
-						long layover = (sdf.parse(f2.getmTimeDepart()).getTime() - sdf.parse(f1.getmTimeArrival()).getTime())/ (60 * 1000);
-//						The layover threshold is set between 30 minutes and 6 hours.
-						if (layover >= Sp.MIN_LAYOVER && layover <= Sp.MAX_TOTAL_LAYOVER && isSeatAvailable(f1,seats,coach) && isSeatAvailable(f2,seats,coach)) {
-							
-							Flights flight=new Flights();
-							flight.add(f1);
-							flight.add(f2);
-							res.add(flight);
-							}
-				}
+		Flights loaded = getFlights(team,departure,arrival,date,true);
+		loaded.addAll(getFlights(team,departure,arrival,date,false));//false means search by arrival
+		RouteIndex routes = new RouteIndex(loaded);
+		int arrivalId = AirportCode.id(arrival);
+		
+		//Only flights leaving on the given local day can start a trip
+		DayWindow window = DayWindow.of(date,departure);
+		int[] first = routes.departing(departure, window.startGMT() + 1, window.endGMT() - 1);
+		for(int i = first[0]; i < first[1]; i++){
+			Flight f1 = routes.flight(i);
+			if(!isSeatAvailable(f1,seats,coach)) continue;
+//			The layover threshold is set between 30 minutes and 6 hours.
+			for(int j : routes.route(routes.arriveId(i), arrivalId,
+					routes.arriveMinute(i) + Sp.MIN_LAYOVER, routes.arriveMinute(i) + Sp.MAX_TOTAL_LAYOVER)){
+				Flight f2 = routes.flight(j);
+				if (isSeatAvailable(f2,seats,coach)) {
+					Flights flight=new Flights();
+					flight.add(f1);
+					flight.add(f2);
+					res.add(flight);
+					}
 			}
 		}
 //		System.out.println("Flights with one layover:"+res.size());		
+		event.finish("FlightSearch.searchFlightsWithOneStop", departure, arrival, date, 1, routes.size(), res.size());
 		return res;		
 	}
 	
@@ -112,85 +136,91 @@ public class FlightSearch{
 	 * @throws ParseException
 	 */
 	public static List<Flights> searchFlightsWithTwoStop(String team,String departure,String arrival,String date,int seats,boolean coach) throws ParseException{
+		SearchEvents.Search event = new SearchEvents.Search();
+		event.begin();
 		List<Flights> res=new ArrayList<Flights>();
-		Flights flights1 = getFlights(team,departure,arrival,date,true);
-		Flights flights3 = getFlights(team,departure,arrival,date,false);//false means search by arrival
-		for(Flight f1:flights1) {
-			if(validDate(f1,date,departure)) {
-			//Since it is set to true, arrival doesnt matter thus set to Dummy
-			Flights flights2 = getFlights(team, f1.getmCodeArrival(), "Dummy", date, true);
-			for(Flight f2 : flights2) {				
-				for(Flight f3 :flights3){
-					if(f2.getmCodeArrival().equals(f3.getmCodeDepart()) && !f1.getmCodeArrival().equals(f3.getmCodeArrival())){									
-							SimpleDateFormat sdf = new SimpleDateFormat("yyyy MMM dd HH:mm z");
-							long layover1 = (sdf.parse(f2.getmTimeDepart()).getTime() - sdf.parse(f1.getmTimeArrival()).getTime())/ (60 * 1000); //Layover 1
-							long layover2 = (sdf.parse(f3.getmTimeDepart()).getTime() - sdf.parse(f2.getmTimeArrival()).getTime())/ (60 * 1000);// Layover 2
-							long total_layover = layover1+layover2;
-//							The layover threshold is set between 30 minutes and 6 hours.
-							if (layover1 >= Sp.MIN_LAYOVER && layover1 <= Sp.MAX_LAYOVER && 
-								layover2 >= Sp.MIN_LAYOVER && layover2 <= Sp.MAX_LAYOVER && 
-								total_layover <= Sp.MAX_TOTAL_LAYOVER  && 
-								isSeatAvailable(f1,seats,coach) && isSeatAvailable(f2,seats,coach)&& isSeatAvailable(f3,seats,coach))
-							{								
-								Flights flight=new Flights();
-								flight.add(f1);
-								flight.add(f2);
-								flight.add(f3);
-								res.add(flight);
-								}
-					}
+		Flights loaded = getFlights(team,departure,arrival,date,true);
+		//Only flights leaving on the given local day can start a trip
+		DayWindow window = DayWindow.of(date,departure);
+		Set<String> stops = new LinkedHashSet<String>();
+		for(Flight f1:loaded) {
+			if(window.contains(f1) && !f1.getmCodeArrival().equals(arrival)) {
+				stops.add(f1.getmCodeArrival());
+			}
+		}
+		//Every intermediate airport is fetched once, all of them concurrently
+		for(Flights secondLegs : getDepartingFlights(team, stops, date).values()) {
+			loaded.addAll(secondLegs);
+		}
+		loaded.addAll(getFlights(team,departure,arrival,date,false));//false means search by arrival
+		RouteIndex routes = new RouteIndex(loaded);
+		int arrivalId = AirportCode.id(arrival);
+		
+		int[] first = routes.departing(departure, window.startGMT() + 1, window.endGMT() - 1);
+		for(int i = first[0]; i < first[1]; i++) {
+			Flight f1 = routes.flight(i);
+			if(routes.arriveId(i) == arrivalId || !isSeatAvailable(f1,seats,coach)) continue;
+			long arrival1 = routes.arriveMinute(i);
+//			The layover threshold is set between 30 minutes and 3 hours, 6 hours in total.
+			int[] second = routes.departing(routes.arriveId(i), arrival1 + Sp.MIN_LAYOVER, arrival1 + Sp.MAX_LAYOVER);
+			for(int j = second[0]; j < second[1]; j++) {
+				Flight f2 = routes.flight(j);
+				if(!routes.connects(routes.arriveId(j), arrivalId) || !isSeatAvailable(f2,seats,coach)) continue;
+				long layover1 = routes.departMinute(j) - arrival1;
+				long arrival2 = routes.arriveMinute(j);
+				long latest = Math.min(arrival2 + Sp.MAX_LAYOVER, arrival2 + Sp.MAX_TOTAL_LAYOVER - layover1);
+				for(int k : routes.route(routes.arriveId(j), arrivalId, arrival2 + Sp.MIN_LAYOVER, latest)) {
+					Flight f3 = routes.flight(k);
+					if(isSeatAvailable(f3,seats,coach)) {
+						Flights flight=new Flights();
+						flight.add(f1);
+						flight.add(f2);
+						flight.add(f3);
+						res.add(flight);
+						}
+				}
 			}
 		}
-	}
-}
 
 //		System.out.println("Flights with two layover:"+res.size());		
+		event.finish("FlightSearch.searchFlightsWithTwoStop", departure, arrival, date, 2, routes.size(), res.size());
 		return res;
 		
 	}
 	
 	/**
-	 * Filters the list of Flights based on the arrival of the flight
-	 * @param arr Arrival Code
-	 * @param flights List of Flights
-	 * @return List of flights with the arrival airports same as the given arrival code
+	 * Searches and return the list of possible flights between the given airports with up to maxStops layovers
+	 * Uses a single Connection Scan pass over all loaded flights instead of one nested loop per stop count
+	 * Each layover is between Sp.MIN_LAYOVER and Sp.MAX_LAYOVER and the total layover is at most Sp.MAX_TOTAL_LAYOVER
+	 * Returns a List of Flights
+	 * @param team The ticket agency
+	 * @param departure Departure airport code
+	 * @param arrival Arrival airport code
+	 * @param date Departure Date
+	 * @param maxStops Maximum number of stops, Sp.MAX_STOPS by default
+	 * @param seats Number of seats
+	 * @param coach True if coach, false if FirstClass
+	 * @return List of flights with up to maxStops stops.
 	 */
-	private static Flights filterByArrival(String arr, Flights flights){
-		Flights res= new Flights();
-		for(Flight flight: flights){
-			if(flight.getmCodeArrival().equals(arr)){
-				res.add(flight);
-			}else if (flight.getmCodeDepart().equals(arr)) {
-//				System.out.println("We admire your love for your home airport, but unfortunately,\n"+ "it can't be both the departure and arrival. Please make a different selection.");
-				break;
-			}
-		}
+	public static List<Flights> searchFlightsWithStops(String team,String departure,String arrival,String date,int maxStops,int seats,boolean coach){
+		SearchEvents.Search event = new SearchEvents.Search();
+		event.begin();
+		ConnectionScan scan = ConnectionScan.load(team, departure, arrival, date, maxStops);
+		List<Flights> res = scan.search(departure, arrival, date, maxStops, seats, coach);
+		event.finish("FlightSearch.searchFlightsWithStops", departure, arrival, date, maxStops, scan.size(), res.size());
 		return res;
 	}
 	
 	/**
 	 * Checks if the seat is available for the given flight
+	 * The airplane is looked up by model in the registry, a flight on an unknown airplane has no seats available
 	 * @param f flight in which seat has to be checked
 	 * @param seats number of seats
 	 * @param coach true if coach, false if FirstClass
 	 * @return
 	 */
 	private static boolean isSeatAvailable(Flight f,int seats,boolean coach) {
-		Airplane a1 = a.stream().filter(ap -> ap.model().equals(f.getmAirplane())).findFirst().orElse(null);
-		if (coach){
-			int fseat =a1.coachSeats() - f.getmSeatsCoach();
-			if (fseat >= seats){
-				return true;
-			}
-		}
-		else if (!coach) {
-			int fseat = a1.firstClassSeats() - f.getmSeatsFirstclass();
-			if (fseat >= seats){
-				return true;
-			}
-		}
-		
-		return false;
+		return registry.isSeatAvailable(f, seats, coach);
 	}
 	
 	/**
@@ -200,9 +230,8 @@ public class FlightSearch{
 	 * @param airportCode code of airport
 	 * @return True if the departTime is in the 24 hours of given date (yyyy_MM_dd). 
 	 */
-	private static boolean validDate(Flight f, String date, String airportCode) {
-		String departTime = f.getmTimeDepart();
-		return TimeConversion.dateBetweentwoDates(date,departTime,airportCode);
+	static boolean validDate(Flight f, String date, String airportCode) {
+		return DayWindow.of(date,airportCode).contains(f);
 		
 	}
 	
@@ -225,7 +254,7 @@ public class FlightSearch{
 	 * @param dep True if search by departure, false if search by arrival
 	 * @return List of all flights
 	 */
-	private static Flights getFlights(String team,String departure,String arrival,String time,boolean dep) {
+	static Flights getFlights(String team,String departure,String arrival,String time,boolean dep) {
 		ServerInterface resSys = new ServerInterface();
 		String nextday = nextDate(time);
 		Flights flights1 = resSys.getFlights(team,departure,arrival,time,dep); //true means search by departure
@@ -234,15 +263,63 @@ public class FlightSearch{
 		return flights1;
 	}
 
+	/**
+	 * Gets the departing flights of several airports concurrently
+	 * Each airport is fetched once, with at most Sp.FETCH_CONCURRENCY requests to the server in flight,
+	 * so the total wait is close to the slowest request instead of the sum of all of them
+	 * @param team The ticket agency
+	 * @param airports Departure airport codes
+	 * @param time Departure Date
+	 * @return Departure airport code to its departing flights on the date and the next day
+	 */
+	static Map<String, Flights> getDepartingFlights(String team, Collection<String> airports, String time) {
+		String nextday = nextDate(time);
+		Map<String, Future<Flights>> today = new LinkedHashMap<String, Future<Flights>>();
+		Map<String, Future<Flights>> tomorrow = new LinkedHashMap<String, Future<Flights>>();
+		for (String airport : airports) {
+			if (!today.containsKey(airport)) {
+				//Since it is set to true, arrival doesnt matter thus set to Dummy
+				today.put(airport, fetchPool.submit(() -> new ServerInterface().getFlights(team, airport, "Dummy", time, true)));
+				tomorrow.put(airport, fetchPool.submit(() -> new ServerInterface().getFlights(team, airport, "Dummy", nextday, true)));
+			}
+		}
+
+		Map<String, Flights> res = new LinkedHashMap<String, Flights>();
+		try {
+			for (String airport : today.keySet()) {
+				Flights flights = today.get(airport).get();
+				flights.addAll(tomorrow.get(airport).get());
+				res.put(airport, flights);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancel(today, tomorrow);
+			throw new IllegalStateException("Interrupted while fetching flights", e);
+		} catch (ExecutionException e) {
+			cancel(today, tomorrow);
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		return res;
+	}
+
+	@SafeVarargs
+	private static void cancel(Map<String, Future<Flights>>... fetches) {
+		for (Map<String, Future<Flights>> fetch : fetches) {
+			for (Future<Flights> f : fetch.values()) {
+				f.cancel(true);
+			}
+		}
+	}
+
 	/**
 	 * Finds all the airplanes
 	 * @return List of all airplanes
 	 */
 	private static Airplanes getAirplanes() {
-		Airplanes airplanes = new Airplanes();
 		ServerInterface resSys = new ServerInterface();
-		String xmlAirplane = resSys.getAirplanes(Sp.TICKET_AGENCY);
-		airplanes.addAll(xmlAirplane);
-		return airplanes;
+		return resSys.getAirplanes(Sp.TICKET_AGENCY);
 	}	
 }
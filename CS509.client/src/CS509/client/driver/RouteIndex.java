@@ -0,0 +1,254 @@
+package CS509.client.driver;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import CS509.client.airport.AirportCode;
+import CS509.client.flight.Flight;
+import CS509.client.flight.Flights;
+
+/**
+ * Route index over a set of loaded Flights.
+ *
+ * Every flight is a leg numbered by its position in an array grouped by departure airport and
+ * sorted by departure minute. A second ordering groups the same legs by airport pair, so the
+ * legs from one airport to another inside a departure window are found with a binary search
+ * instead of comparing every departing flight against every arriving flight.
+ *
+ * Airports are AirportCode ids. Both orderings are searched on a single long key holding the
+ * airport ids in the high bits and the departure minute in the low 32 bits, so a lookup is one
+ * binary search per bound and no map is consulted.
+ *
+ * Connection lookups take the window in minutes, for example every leg leaving an airport
+ * between Sp.MIN_LAYOVER and Sp.MAX_LAYOVER minutes after a landing.
+ *
+ * @author Team C
+ */
+public class RouteIndex {
+
+	private static final int[] NONE = new int[0];
+	private static final long MAX_MINUTE = 0xFFFFFFFFL;
+
+	/**
+	 * Legs grouped by departure airport and sorted by departure minute
+	 */
+	private final Flight[] legs;
+	private final long[] departMinute;
+	private final long[] arriveMinute;
+	private final int[] departId;
+	private final int[] arriveId;
+	private final long[] departKey;
+
+	/**
+	 * Legs grouped by departure airport, then arrival airport, and sorted by departure minute
+	 */
+	private final int[] routeOrder;
+	private final long[] routeKey;
+
+	/**
+	 * Builds the index from the given flights. Flights listed more than once (for example in
+	 * both a departing and an arriving list) become a single leg, and flights whose times
+	 * or airport codes cannot be read are left out.
+	 *
+	 * @param loaded Flights to index
+	 */
+	public RouteIndex(Flights loaded) {
+		Map<String, Flight> unique = new HashMap<String, Flight>();
+		for (Flight flight : loaded) {
+			if (unique.containsKey(flight.getmNumber())) {
+				continue;
+			}
+			// a flight without a usable schedule can never be part of an itinerary
+			if (flight.getmMinuteDepart() != Flight.NO_TIME && flight.getmMinuteArrival() != Flight.NO_TIME
+					&& flight.getmIdDepart() != AirportCode.NO_ID && flight.getmIdArrival() != AirportCode.NO_ID) {
+				unique.put(flight.getmNumber(), flight);
+			}
+		}
+
+		Flight[] sorted = unique.values().toArray(new Flight[0]);
+		Arrays.sort(sorted, Comparator.comparingInt(Flight::getmIdDepart)
+				.thenComparingLong(Flight::getmMinuteDepart));
+
+		int n = sorted.length;
+		legs = sorted;
+		departMinute = new long[n];
+		arriveMinute = new long[n];
+		departId = new int[n];
+		arriveId = new int[n];
+		departKey = new long[n];
+		for (int i = 0; i < n; i++) {
+			departMinute[i] = sorted[i].getmMinuteDepart();
+			arriveMinute[i] = sorted[i].getmMinuteArrival();
+			departId[i] = sorted[i].getmIdDepart();
+			arriveId[i] = sorted[i].getmIdArrival();
+			departKey[i] = key(departId[i], departMinute[i]);
+		}
+
+		// a stable sort by arrival airport keeps every route in departure order
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingInt((Integer i) -> departId[i]).thenComparingInt(i -> arriveId[i]));
+		routeOrder = new int[n];
+		routeKey = new long[n];
+		for (int r = 0; r < n; r++) {
+			int leg = order[r];
+			routeOrder[r] = leg;
+			routeKey[r] = key(route(departId[leg], arriveId[leg]), departMinute[leg]);
+		}
+	}
+
+	/**
+	 * @return number of legs in the index
+	 */
+	public int size() {
+		return legs.length;
+	}
+
+	/**
+	 * @param leg number of a leg, below size()
+	 * @return the flight of the leg
+	 */
+	public Flight flight(int leg) {
+		return legs[leg];
+	}
+
+	/**
+	 * @param leg number of a leg, below size()
+	 * @return departure time of the leg in GMT minutes since the epoch
+	 */
+	public long departMinute(int leg) {
+		return departMinute[leg];
+	}
+
+	/**
+	 * @param leg number of a leg, below size()
+	 * @return arrival time of the leg in GMT minutes since the epoch
+	 */
+	public long arriveMinute(int leg) {
+		return arriveMinute[leg];
+	}
+
+	/**
+	 * @param leg number of a leg, below size()
+	 * @return AirportCode id of the departure airport of the leg
+	 */
+	public int departId(int leg) {
+		return departId[leg];
+	}
+
+	/**
+	 * @param leg number of a leg, below size()
+	 * @return AirportCode id of the arrival airport of the leg
+	 */
+	public int arriveId(int leg) {
+		return arriveId[leg];
+	}
+
+	/**
+	 * Finds the legs leaving an airport inside a departure window
+	 *
+	 * @param airport code of the departure airport
+	 * @param earliest earliest departure minute (inclusive)
+	 * @param latest latest departure minute (inclusive)
+	 * @return {from, to} range of matching legs, empty if there are none
+	 */
+	public int[] departing(String airport, long earliest, long latest) {
+		return departing(AirportCode.id(airport), earliest, latest);
+	}
+
+	/**
+	 * Finds the legs leaving an airport inside a departure window
+	 *
+	 * @param airport AirportCode id of the departure airport
+	 * @param earliest earliest departure minute (inclusive)
+	 * @param latest latest departure minute (inclusive)
+	 * @return {from, to} range of matching legs, empty if there are none
+	 */
+	public int[] departing(int airport, long earliest, long latest) {
+		if (airport == AirportCode.NO_ID || latest < earliest) {
+			return new int[] {0, 0};
+		}
+		int from = lowerBound(departKey, key(airport, earliest));
+		int to = lowerBound(departKey, key(airport, latest + 1));
+		return new int[] {from, to};
+	}
+
+	/**
+	 * Finds the legs flying from one airport to another inside a departure window
+	 *
+	 * @param departure code of the departure airport
+	 * @param arrival code of the arrival airport
+	 * @param earliest earliest departure minute (inclusive)
+	 * @param latest latest departure minute (inclusive)
+	 * @return numbers of the matching legs in departure order, empty if there are none
+	 */
+	public int[] route(String departure, String arrival, long earliest, long latest) {
+		return route(AirportCode.id(departure), AirportCode.id(arrival), earliest, latest);
+	}
+
+	/**
+	 * Finds the legs flying from one airport to another inside a departure window
+	 *
+	 * @param departure AirportCode id of the departure airport
+	 * @param arrival AirportCode id of the arrival airport
+	 * @param earliest earliest departure minute (inclusive)
+	 * @param latest latest departure minute (inclusive)
+	 * @return numbers of the matching legs in departure order, empty if there are none
+	 */
+	public int[] route(int departure, int arrival, long earliest, long latest) {
+		if (departure == AirportCode.NO_ID || arrival == AirportCode.NO_ID || latest < earliest) {
+			return NONE;
+		}
+		long route = route(departure, arrival);
+		int from = lowerBound(routeKey, key(route, earliest));
+		int to = lowerBound(routeKey, key(route, latest + 1));
+		return from == to ? NONE : Arrays.copyOfRange(routeOrder, from, to);
+	}
+
+	/**
+	 * @param departure AirportCode id of the departure airport
+	 * @param arrival AirportCode id of the arrival airport
+	 * @return true if at least one leg flies from the departure airport to the arrival airport
+	 */
+	public boolean connects(int departure, int arrival) {
+		if (departure == AirportCode.NO_ID || arrival == AirportCode.NO_ID) {
+			return false;
+		}
+		long route = route(departure, arrival);
+		int from = lowerBound(routeKey, key(route, 0));
+		return from < routeKey.length && routeKey[from] >>> 32 == route;
+	}
+
+	private static long route(int departure, int arrival) {
+		return (long) departure * AirportCode.SIZE + arrival;
+	}
+
+	/**
+	 * @return the airports in the high bits and the minute, clamped to 32 bits, in the low bits
+	 */
+	private static long key(long airports, long minute) {
+		return airports << 32 | Math.max(0, Math.min(minute, MAX_MINUTE));
+	}
+
+	/**
+	 * @return the first position of keys at or above key
+	 */
+	private static int lowerBound(long[] keys, long key) {
+		int lo = 0;
+		int hi = keys.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (keys[mid] < key) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+}
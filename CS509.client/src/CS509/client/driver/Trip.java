@@ -3,9 +3,10 @@ package CS509.client.driver;
 import java.util.Date;
 import java.text.DecimalFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 
+import CS509.client.flight.Flight;
 import CS509.client.flight.Flights;
+import CS509.client.util.Money;
 /**
  * Trip is a representation of data pertinent to a flight reservation.
  * The Trip object stores the ticket price, the length, and the arrival and departure dates.
@@ -19,46 +20,66 @@ public class Trip {
 		FIRST
 	}
 	
-	private Flights LoF;
-	private Double coachTicketPrice = 0d;
-	private Double firstClassTicketPrice = 0d;
-	private Long lengthOfTrip; //stored in ms!!
-	private Long[] lengthOfLayovers;
-	private Long[] lengthOfFlights;
-	private Date departureDate;
-	private Date arrivalDate;
+	private final Flights LoF;
+	private final long coachTicketCents;
+	private final long firstClassTicketCents;
+	private final long departureMinute;
+	private final long arrivalMinute;
 	
-	private static final SimpleDateFormat sdf = new SimpleDateFormat("yyyy MMM dd HH:mm z");	
-	private static final DecimalFormat df = new DecimalFormat("0.00");
 	private static final DecimalFormat tf = new DecimalFormat("0");
 
 	/**
 	 * Basic constructor for a Trip. The only necessary parameter is a list of flights, with 1 or more flight objects in it.
+	 * Only the prices and the first departure and last arrival are kept, as primitives. Dates, layovers and
+	 * durations are worked out from the legs when they are asked for, since most trips are never displayed.
 	 * @param flights
-	 * @throws ParseException
+	 * @throws ParseException if a time or price of a leg could not be read
 	 */
 	public Trip(Flights flights) throws ParseException {
 		LoF = flights;
 		int numFlights = flights.size();
 		
-		departureDate = sdf.parse(flights.get(0).getmTimeDepart());
-		arrivalDate = sdf.parse(flights.get(numFlights-1).getmTimeArrival());
-		lengthOfTrip = arrivalDate.getTime() - departureDate.getTime();
-		
-		lengthOfFlights = new Long[numFlights];
-		
-		if(numFlights > 1) {
-			lengthOfLayovers = new Long[numFlights-1];
-		}
-		
+		long coach = 0;
+		long firstClass = 0;
 		for(int i = 0; i < numFlights; i++) {
-			coachTicketPrice += Double.parseDouble(flights.get(i).getmPriceCoach().replace(",", "").replace("$", ""));
-			firstClassTicketPrice += Double.parseDouble(flights.get(i).getmPriceFirstclass().replace(",", "").replace("$", ""));
-			lengthOfFlights[i] = Long.parseLong(flights.get(i).getmFlightTime());
-			if(i < numFlights - 1) {
-				lengthOfLayovers[i] = sdf.parse(flights.get(i+1).getmTimeDepart()).getTime() - sdf.parse(flights.get(i).getmTimeArrival()).getTime();
-			}		
+			Flight leg = flights.get(i);
+			minute(leg.getmMinuteDepart(), leg.getmTimeDepart());
+			minute(leg.getmMinuteArrival(), leg.getmTimeArrival());
+			coach = Money.add(coach, cents(leg.getmCentsCoach(), leg.getmPriceCoach()));
+			firstClass = Money.add(firstClass, cents(leg.getmCentsFirstclass(), leg.getmPriceFirstclass()));
 		}
+		coachTicketCents = coach;
+		firstClassTicketCents = firstClass;
+		departureMinute = flights.get(0).getmMinuteDepart();
+		arrivalMinute = flights.get(numFlights-1).getmMinuteArrival();
+	}
+	
+	/**
+	 * Checks a flight time already parsed to epoch minutes
+	 * @param minute the parsed time
+	 * @param time the time as received from the server, used in the error message
+	 * @return minutes since the epoch
+	 * @throws ParseException if the time could not be parsed
+	 */
+	private static long minute(long minute, String time) throws ParseException {
+		if (minute == Flight.NO_TIME) {
+			throw new ParseException("Unparseable date: \"" + time + "\"", 0);
+		}
+		return minute;
+	}
+	
+	/**
+	 * Checks a price already read into cents
+	 * @param cents the price in cents
+	 * @param price the price as received from the server, used in the error message
+	 * @return the price in cents
+	 * @throws ParseException if the price could not be read
+	 */
+	private static long cents(long cents, String price) throws ParseException {
+		if (cents == Money.NO_PRICE) {
+			throw new ParseException("Unparseable price: \"" + price + "\"", 0);
+		}
+		return cents;
 	}
 	
 	/**
@@ -69,22 +90,10 @@ public class Trip {
 	public void displayTrip(seatType seat) {
 	    System.out.println(this.LoF.toString());
 	    
-	    double ticketPrice;
-	    if(seat == Trip.seatType.COACH) {
-	    	ticketPrice = this.coachTicketPrice;
-	    }
-	    else {
-	    	ticketPrice = this.firstClassTicketPrice;
-	    }
-	    System.out.println("Total Ticket Price :$"+ df.format(ticketPrice));
+	    System.out.println("Total Ticket Price :"+ Money.format(getPriceCents(seat)));
 	    
 	    if(this.LoF.size() > 1) {
-	    	long laydurationMinutes = 0;
-	    	for(int i = 0; i < this.lengthOfLayovers.length; i++) {
-	    		laydurationMinutes += this.lengthOfLayovers[i];
-	    	}
-	    	
-	    	laydurationMinutes /= (1000*60);
+	    	long laydurationMinutes = getLayoverMinutes();
 	    	
 		    long lminutes = laydurationMinutes % 60;
 		    long lhours = 0;
@@ -94,7 +103,7 @@ public class Trip {
 		    System.out.printf("Total Layover Time:" +tf.format(lhours)+" Hours "+ tf.format(lminutes)+" Minutes\n");
 	    }
 	    
-	    long durationMinutes = this.lengthOfTrip/(1000*60); 
+	    long durationMinutes = getTripMinutes(); 
 	    long fminutes = durationMinutes % 60;
 	    long fhours = 0;
 	    if(durationMinutes > 60) {
@@ -115,38 +124,84 @@ public class Trip {
 	/**
 	 * The method getPrice returns the price of a Trip, given the type of seating class.
 	 * @param seat
-	 * @return
+	 * @return the price in dollars
+	 */
+	public double getPrice(seatType seat) {
+		return getPriceCents(seat) / 100d;
+	}
+	
+	/**
+	 * The method getPriceCents returns the exact price of a Trip, given the type of seating class.
+	 * Utilized in comparator and to add up a reservation.
+	 * @param seat
+	 * @return the price in cents
 	 */
-	public Double getPrice(seatType seat) {
+	public long getPriceCents(seatType seat) {
 		if(seat == seatType.COACH) {
-			return this.coachTicketPrice;
+			return this.coachTicketCents;
 		}else {
-			return this.firstClassTicketPrice;
+			return this.firstClassTicketCents;
 		}
 	}
 	
 	/**
-	 * Simple getter. Utilized in comparator.
+	 * Simple getter, builds a new Date on every call.
 	 * @return arrivalDate
 	 */
 	public Date getArrivalDate() {
-		return this.arrivalDate;
+		return new Date(this.arrivalMinute * 60 * 1000);
 	}
 	
 	/**
-	 * Simple getter. Utilized in comparator.
+	 * Simple getter, builds a new Date on every call.
 	 * @return departureDate
 	 */
 	public Date getDepartureDate() {
-		return this.departureDate;
+		return new Date(this.departureMinute * 60 * 1000);
 	}
 	
 	/**
 	 * Simple getter. Utilized in comparator.
-	 * @return lengthofTrip
+	 * @return arrival of the last flight in minutes since the epoch
 	 */
-	public Long getTripLength() {
-		return this.lengthOfTrip;
+	public long getArrivalMinute() {
+		return this.arrivalMinute;
+	}
+	
+	/**
+	 * Simple getter. Utilized in comparator.
+	 * @return departure of the first flight in minutes since the epoch
+	 */
+	public long getDepartureMinute() {
+		return this.departureMinute;
+	}
+	
+	/**
+	 * Length of the trip from the first departure to the last arrival.
+	 * @return lengthofTrip in ms
+	 */
+	public long getTripLength() {
+		return getTripMinutes() * 60 * 1000;
+	}
+	
+	/**
+	 * Length of the trip from the first departure to the last arrival. Utilized in comparator.
+	 * @return lengthofTrip in minutes
+	 */
+	public long getTripMinutes() {
+		return this.arrivalMinute - this.departureMinute;
+	}
+	
+	/**
+	 * Total time spent waiting between flights, worked out from the legs on every call.
+	 * @return total layover in minutes, 0 for a direct flight
+	 */
+	public long getLayoverMinutes() {
+		long layover = 0;
+		for(int i = 0; i < this.LoF.size() - 1; i++) {
+			layover += this.LoF.get(i+1).getmMinuteDepart() - this.LoF.get(i).getmMinuteArrival();
+		}
+		return layover;
 	}
 	
 	/**
@@ -0,0 +1,276 @@
+package CS509.client.driver;
+
+import java.text.ParseException;
+import java.util.List;
+
+import CS509.client.flight.Flights;
+import CS509.client.util.SearchEvents;
+
+/**
+ * Streaming ranking of the best trips found by a search.
+ *
+ * Every trip offered is ranked at once by price, departure time, arrival time and trip length.
+ * For each criterion only the best trips, up to a fixed limit, are kept in a bounded max-heap
+ * whose root is the worst trip kept, so a trip that cannot make the cut is dropped with a single
+ * comparison. Memory stays at the limit per criterion however many trips a search finds, and the
+ * trips can be shown in another order without searching again.
+ *
+ * Trips ranking equal keep the order they were offered in, so a ranking lists the same trips in
+ * the same order as a stable sort of every trip found followed by taking the first ones.
+ *
+ * @author Team C
+ */
+public class TripRanking {
+
+	public enum Criterion {
+		PRICE,
+		DEPARTURE_TIME,
+		ARRIVAL_TIME,
+		TRIP_LENGTH
+	}
+
+	private final Trip.seatType seatType;
+	private final int limit;
+	private final Heap[] heaps;
+	private long offered;
+
+	/**
+	 * @param seatType seating class whose price is ranked
+	 * @param limit number of trips kept for each criterion
+	 */
+	public TripRanking(Trip.seatType seatType, int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Ranking limit must be positive: " + limit);
+		}
+		this.seatType = seatType;
+		this.limit = limit;
+		this.heaps = new Heap[Criterion.values().length];
+		for (int i = 0; i < heaps.length; i++) {
+			heaps[i] = new Heap(limit);
+		}
+	}
+
+	/**
+	 * Offers a trip to every criterion
+	 *
+	 * @param trip trip to rank
+	 * @return true if the trip is kept for at least one criterion
+	 */
+	public boolean offer(Trip trip) {
+		return offer(trip, offered++);
+	}
+
+	private boolean offer(Trip trip, long sequence) {
+		boolean kept = false;
+		for (Criterion criterion : Criterion.values()) {
+			kept |= heaps[criterion.ordinal()].offer(trip, key(criterion, trip), sequence);
+		}
+		return kept;
+	}
+
+	/**
+	 * Builds a Trip for each list of Flights and offers it, like Trips.addAll
+	 *
+	 * @param LoF lists of Flights found by a search
+	 * @return true if at least one trip is kept
+	 */
+	public boolean offerAll(List<Flights> LoF) {
+		SearchEvents.BuildTrips event = new SearchEvents.BuildTrips();
+		event.begin();
+		boolean kept = false;
+		int built = 0;
+		for (int i = 0; i < LoF.size(); i++) {
+			Trip trip = null;
+
+			try {
+				trip = new Trip(LoF.get(i));
+			} catch (ParseException e) {
+				e.printStackTrace();
+			}
+
+			if (trip != null && trip.isValid()) {
+				kept |= offer(trip);
+				built++;
+			}
+		}
+		event.finish("TripRanking.offerAll", LoF.size(), built);
+		return kept;
+	}
+
+	/**
+	 * Adds the trips of another ranking, as if they had been offered to this ranking after its own
+	 * trips. The best trips of two rankings are always among the best trips of each, so searches can
+	 * rank their own trips at the same time and be merged in search order afterwards.
+	 *
+	 * @param other ranking of the same seating class
+	 */
+	public void merge(TripRanking other) {
+		if (other.seatType != seatType) {
+			throw new IllegalArgumentException("Cannot merge a " + other.seatType + " ranking into a " + seatType + " ranking");
+		}
+		for (Criterion criterion : Criterion.values()) {
+			Heap from = other.heaps[criterion.ordinal()];
+			Heap to = heaps[criterion.ordinal()];
+			for (int i = 0; i < from.size; i++) {
+				to.offer(from.trips[i], from.keys[i], offered + from.sequences[i]);
+			}
+		}
+		offered += other.offered;
+	}
+
+	/**
+	 * @param criterion order of the trips
+	 * @return the best trips by the criterion, best first
+	 */
+	public Trips ranked(Criterion criterion) {
+		SearchEvents.SortTrips event = new SearchEvents.SortTrips();
+		event.begin();
+		Trips trips = heaps[criterion.ordinal()].sorted();
+		event.finish(criterion.name(), trips.size());
+		return trips;
+	}
+
+	/**
+	 * @return number of trips offered, kept or not
+	 */
+	public long offered() {
+		return offered;
+	}
+
+	/**
+	 * @return number of trips kept for each criterion
+	 */
+	public int limit() {
+		return limit;
+	}
+
+	/**
+	 * @return seating class whose price is ranked
+	 */
+	public Trip.seatType seatType() {
+		return seatType;
+	}
+
+	private long key(Criterion criterion, Trip trip) {
+		switch (criterion) {
+		case PRICE:
+			return trip.getPriceCents(seatType);
+		case DEPARTURE_TIME:
+			return trip.getDepartureMinute();
+		case ARRIVAL_TIME:
+			return trip.getArrivalMinute();
+		case TRIP_LENGTH:
+			return trip.getTripMinutes();
+		default:
+			throw new IllegalArgumentException("Unknown criterion: " + criterion);
+		}
+	}
+
+	/**
+	 * Bounded max-heap of trips ordered by key, then by the order they were offered in
+	 */
+	private static final class Heap {
+		final Trip[] trips;
+		final long[] keys;
+		final long[] sequences;
+		int size;
+
+		Heap(int limit) {
+			trips = new Trip[limit];
+			keys = new long[limit];
+			sequences = new long[limit];
+		}
+
+		/**
+		 * @return true if the trip is kept
+		 */
+		boolean offer(Trip trip, long key, long sequence) {
+			if (size < trips.length) {
+				set(size, trip, key, sequence);
+				siftUp(size++);
+				return true;
+			}
+			if (!before(key, sequence, keys[0], sequences[0])) {
+				return false;
+			}
+			set(0, trip, key, sequence);
+			siftDown(0, size);
+			return true;
+		}
+
+		/**
+		 * Sorts a copy of the heap, leaving the heap as it is
+		 *
+		 * @return the kept trips, best first
+		 */
+		Trips sorted() {
+			Heap copy = new Heap(trips.length);
+			System.arraycopy(trips, 0, copy.trips, 0, size);
+			System.arraycopy(keys, 0, copy.keys, 0, size);
+			System.arraycopy(sequences, 0, copy.sequences, 0, size);
+			// heap sort: moving the worst trip behind the heap each time leaves the best first
+			for (int end = size - 1; end > 0; end--) {
+				copy.swap(0, end);
+				copy.siftDown(0, end);
+			}
+			Trips sorted = new Trips();
+			sorted.ensureCapacity(size);
+			for (int i = 0; i < size; i++) {
+				sorted.add(copy.trips[i]);
+			}
+			return sorted;
+		}
+
+		private static boolean before(long key, long sequence, long otherKey, long otherSequence) {
+			return key < otherKey || (key == otherKey && sequence < otherSequence);
+		}
+
+		private boolean before(int i, int j) {
+			return before(keys[i], sequences[i], keys[j], sequences[j]);
+		}
+
+		private void siftUp(int i) {
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (!before(parent, i)) {
+					return;
+				}
+				swap(i, parent);
+				i = parent;
+			}
+		}
+
+		private void siftDown(int i, int end) {
+			while (true) {
+				int worst = i;
+				int left = 2 * i + 1;
+				int right = left + 1;
+				if (left < end && before(worst, left)) {
+					worst = left;
+				}
+				if (right < end && before(worst, right)) {
+					worst = right;
+				}
+				if (worst == i) {
+					return;
+				}
+				swap(i, worst);
+				i = worst;
+			}
+		}
+
+		private void set(int i, Trip trip, long key, long sequence) {
+			trips[i] = trip;
+			keys[i] = key;
+			sequences[i] = sequence;
+		}
+
+		private void swap(int i, int j) {
+			Trip trip = trips[i];
+			long key = keys[i];
+			long sequence = sequences[i];
+			set(i, trips[j], keys[j], sequences[j]);
+			set(j, trip, key, sequence);
+		}
+	}
+}
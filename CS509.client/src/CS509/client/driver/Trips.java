@@ -6,6 +6,8 @@ import java.util.ArrayList;
 import java.util.Comparator;
 
 import CS509.client.flight.Flights;
+import CS509.client.util.Money;
+import CS509.client.util.SearchEvents;
 /**
  * Trips is a child class of ArrayList of the type Trip. 
  * Trips contains the functionality necessary to build a Trips object, and print the data held within it. 		
@@ -23,7 +25,11 @@ public class Trips extends ArrayList<Trip>{
 	 */
 	public boolean addAll(List<Flights> LoF) {
 		
+		SearchEvents.BuildTrips event = new SearchEvents.BuildTrips();
+		event.begin();
 		boolean collectionUpdated = false;
+		int before = this.size();
+		this.ensureCapacity(this.size() + LoF.size());
 		
 		for (int i = 0; i < LoF.size(); i++) {
 			Trip trip = null;
@@ -34,12 +40,13 @@ public class Trips extends ArrayList<Trip>{
 				e.printStackTrace();
 			}
 			
-			if (trip.isValid()) {
+			if (trip != null && trip.isValid()) {
 				this.add(trip);
 				collectionUpdated = true;
 			}
 		}
 		
+		event.finish("Trips.addAll", LoF.size(), this.size() - before);
 		return collectionUpdated;
 	}
 	
@@ -49,7 +56,7 @@ public class Trips extends ArrayList<Trip>{
 	Comparator<Trip> compareByPrice = new Comparator<Trip>(){
 		@Override
 		public int compare(Trip t1, Trip t2) {
-			return t1.getPrice(Trip.seatType.COACH).compareTo(t2.getPrice(Trip.seatType.COACH));
+			return Money.compare(t1.getPriceCents(Trip.seatType.COACH), t2.getPriceCents(Trip.seatType.COACH));
 		}
 	};
 	
@@ -59,10 +66,24 @@ public class Trips extends ArrayList<Trip>{
 	 * @return True to confirm that the method has been executed.
 	 */
 	public boolean displayAll(Trip.seatType seatType) {
-		int tripListSize = this.size();
+		return displayPage(seatType, 0, this.size());
+	}
+	
+	/**
+	 * displayPage is the method used to display part of the information held within a Trips object.
+	 * Trips are numbered by their position in the whole list, so a number shown can be selected directly.
+	 * @param seatType is the enum seat type stored in Trip.
+	 * @param first position of the first Trip to display
+	 * @param count number of Trips to display
+	 * @return True to confirm that the method has been executed.
+	 */
+	public boolean displayPage(Trip.seatType seatType, int first, int count) {
+		SearchEvents.DisplayTrips event = new SearchEvents.DisplayTrips();
+		event.begin();
+		int last = (int) Math.min(this.size(), (long) Math.max(first, 0) + Math.max(count, 0));
 		
-		if(tripListSize > 0) {
-			for (int i = 0; i < tripListSize; i++) {
+		if(first >= 0 && first < last) {
+			for (int i = first; i < last; i++) {
 			    System.out.println("["+i+"]"+" *****************************************************************************************");
 			    this.get(i).displayTrip(seatType);
 			}
@@ -71,6 +92,7 @@ public class Trips extends ArrayList<Trip>{
 		else {
 			System.out.println("No Flights in this List");
 		}
+		event.finish(String.valueOf(seatType), first, Math.max(last - first, 0), this.size());
 		return true;
 	}
 
@@ -3,12 +3,40 @@ package CS509.client.driver;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Map;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import CS509.client.airplane.AirplaneRegistry;
+import CS509.client.airport.AirportCode;
+import CS509.client.airport.DayWindow;
 import CS509.client.airport.TimeConversion;
+import CS509.client.dao.HttpTransport;
+import CS509.client.dao.ServerInterface;
+import CS509.client.dao.ServerMetrics;
+import CS509.client.dao.StubServer;
 import CS509.client.flight.Flight;
+import CS509.client.flight.FlightStore;
+import CS509.client.flight.FlightView;
+import CS509.client.flight.Flights;
+import CS509.client.util.Money;
+import CS509.client.util.Sp;
+import CS509.client.util.SyntheticSchedule;
 
 class driver_test {
 	public Flight f1 = new Flight("777",
@@ -40,6 +68,366 @@ class driver_test {
 		assertEquals(actuallocaltime2,localtime2);
 	}
 	
+	/**
+	 * JUnit test method for testing the pre-parsed flight times against the string based date check.
+	 * @throws IOException
+	 */
+	@Test
+	void validdatetest() throws IOException {
+		new TimeConversion("timezone.csv");
+		assertEquals(606, f1.getmMinuteArrival() - f1.getmMinuteDepart());
+		assertEquals(Flight.NO_TIME, Flight.toMinute("2023 May 26"));
+		for (String date : new String[] {"2023_05_25", "2023_05_26"}) {
+			assertEquals(TimeConversion.dateBetweentwoDates(date, f1.getmTimeDepart(), "HNL"),
+					TimeConversion.dateBetweentwoDates(date, f1.getmMinuteDepart(), "HNL"));
+		}
+		assertTrue(TimeConversion.dateBetweentwoDates("2023_05_25", f1.getmMinuteDepart(), "HNL"));
+		assertEquals(f1.getmMinuteDepart() - 10 * 60, TimeConversion.toLocalMinute(f1.getmMinuteDepart(), "HNL"));
+		assertEquals(f1.getmMinuteDepart(), TimeConversion.toGMTMinute(f1.getmMinuteDepart() - 10 * 60, "HNL"));
+		assertEquals("HST", TimeConversion.zoneAbbreviation("HNL"));
+		assertThrows(IllegalArgumentException.class, () -> TimeConversion.zoneOffset("XXX"));
+
+		Flights flights = new Flights();
+		flights.addAll(res);
+		assertSame(DayWindow.of("2023_05_25", "HNL"), DayWindow.of("2023_05_25", "HNL"));
+		assertEquals(1, DayWindow.of("2023_05_25", "HNL").filter(flights).size());
+		assertEquals(0, DayWindow.of("2023_05_26", "HNL").filter(flights).size());
+	}
+	
+	/**
+	 * JUnit test method for testing the departure windows of the RouteIndex.
+	 */
+	@Test
+	void routeindextest() {
+		Flight f2 = new Flight("777", "200", "20837", "SAT", "2023 May 26 12:31 GMT", "BOS", "2023 May 26 15:51 GMT",
+				"$580.61", 39, "$114.67", 197);
+		Flight f3 = new Flight("777", "200", "20838", "SAT", "2023 May 26 16:31 GMT", "BOS", "2023 May 26 19:51 GMT",
+				"$580.61", 39, "$114.67", 197);
+		Flights flights = new Flights();
+		flights.addAll(Arrays.asList(f3, f1, f2, f1));
+		RouteIndex routes = new RouteIndex(flights);
+		assertEquals(3, routes.size());
+
+		long landed = f1.getmMinuteArrival();
+		int[] next = routes.departing("SAT", landed + 30, landed + 180);
+		assertEquals(1, next[1] - next[0]);
+		assertSame(f2, routes.flight(next[0]));
+		assertArrayEquals(new int[] {next[0], next[0] + 1}, routes.route("SAT", "BOS", landed, landed + 24 * 60));
+		assertEquals(0, routes.route("SAT", "HNL", landed, landed + 24 * 60).length);
+		assertEquals(0, routes.route("HNL", "SAT", landed, landed - 1).length);
+		assertTrue(routes.connects(AirportCode.id("SAT"), AirportCode.id("BOS")));
+		assertFalse(routes.connects(AirportCode.id("BOS"), AirportCode.id("SAT")));
+		assertEquals(AirportCode.id("BOS"), routes.arriveId(next[0]));
+		assertSame(f2.getmCodeArrival(), f3.getmCodeArrival());
+	}
+	
+	/**
+	 * JUnit test method for testing that prices are read once into cents and summed exactly by Trip, and that its times are derived from the legs.
+	 * @throws ParseException
+	 */
+	@Test
+	void pricetest() throws ParseException {
+		assertEquals(11467, f1.getmCentsCoach());
+		assertEquals(111467, Money.parse("$1,114.67"));
+		assertEquals(50, Money.parse("$.50"));
+		for (String price : new String[] {null, "114.67", "$114.6", "$11,4.67", "$114.67 ", "$1.1.67"}) {
+			assertEquals(Money.NO_PRICE, Money.parse(price), price);
+		}
+		assertEquals("$1114.67", Money.format(111467));
+		assertEquals("$0.05", Money.format(5));
+
+		Flight f2 = new Flight("777", "200", "20837", "SAT", "2023 May 26 12:31 GMT", "BOS", "2023 May 26 15:51 GMT",
+				"$0.10", 39, "$0.20", 197);
+		Flights flights = new Flights();
+		flights.addAll(Arrays.asList(f1, f2));
+		Trip trip = new Trip(flights);
+		assertEquals(11487, trip.getPriceCents(Trip.seatType.COACH));
+		assertEquals(58071, trip.getPriceCents(Trip.seatType.FIRST));
+		assertEquals(114.87, trip.getPrice(Trip.seatType.COACH), 1e-9);
+		assertEquals(866, trip.getTripMinutes());
+		assertEquals(60, trip.getLayoverMinutes());
+		assertEquals(trip.getDepartureMinute() * 60 * 1000, trip.getDepartureDate().getTime());
+
+		f2.setmPriceCoach("$0.2O");
+		assertFalse(f2.isValid());
+		assertThrows(ParseException.class, () -> new Trip(flights));
+	}
+	
+	/**
+	 * JUnit test method for testing that every field of a flight reads back the same through a FlightView of a FlightStore,
+	 * and that the flights Flight.isValid rejects are left out of the store.
+	 */
+	@Test
+	void flightstoretest() {
+		Flights flights = new SyntheticSchedule(4, 6, 2, 509).flights();
+		flights.add(f1);
+		flights.add(new Flight("A320", "45", "0042", "BOS", "2023 May 26 23:59 GMT", "JFK", "2023 May 27 00:44 GMT",
+				"$1,114.67", 0, "$0.05", 0));
+		Flight badTime = new Flight("777", "200", "20837", "SAT", "2023 May 26 12:3 GMT", "BOS", "2023 May 26 15:51 GMT",
+				"$0.10", 39, "$0.20", 197);
+		Flight badPrice = new Flight("777", "200", "20838", "SAT", "2023 May 26 12:31 GMT", "BOS", "2023 May 26 15:51 GMT",
+				"$0.10", 39, "$0.2O", 197);
+		Flight badNumber = new Flight("777", "200", "0", "SAT", "2023 May 26 12:31 GMT", "BOS", "2023 May 26 15:51 GMT",
+				"$0.10", 39, "$0.20", 197);
+		Flight badCode = new Flight("777", "200", "20839", "SA", "2023 May 26 12:31 GMT", "BOS", "2023 May 26 15:51 GMT",
+				"$0.10", 39, "$0.20", 197);
+		assertEquals(Flight.NO_TIME, badTime.getmMinuteDepart());
+		assertEquals(Money.NO_PRICE, badPrice.getmCentsCoach());
+		assertEquals(AirportCode.NO_ID, badCode.getmIdDepart());
+
+		Flights all = new Flights();
+		all.addAll(flights);
+		all.add(1, badTime);
+		all.add(badPrice);
+		all.add(2, badNumber);
+		all.add(badCode);
+		FlightStore store = FlightStore.of(all);
+		assertEquals(flights.size(), store.size());
+		for (Flight bad : Arrays.asList(badTime, badPrice, badNumber, badCode)) {
+			assertFalse(bad.isValid());
+			assertFalse(store.add(bad));
+		}
+
+		int row = 0;
+		for (FlightView view : store) {
+			Flight flight = flights.get(row);
+			assertEquals(row, view.row());
+			assertEquals(flight.getmAirplane(), view.getmAirplane());
+			assertEquals(flight.getmFlightTime(), view.getmFlightTime());
+			assertEquals(flight.getmNumber(), view.getmNumber());
+			assertEquals(flight.getmCodeDepart(), view.getmCodeDepart());
+			assertEquals(flight.getmMinuteDepart(), view.getmMinuteDepart());
+			assertEquals(flight.getmCodeArrival(), view.getmCodeArrival());
+			assertEquals(flight.getmMinuteArrival(), view.getmMinuteArrival());
+			assertEquals(flight.getmCentsFirstclass(), view.getmCentsFirstclass());
+			assertEquals(flight.getmSeatsFirstclass(), view.getmSeatsFirstclass());
+			assertEquals(flight.getmCentsCoach(), view.getmCentsCoach());
+			assertEquals(flight.getmSeatsCoach(), view.getmSeatsCoach());
+
+			Flight rebuilt = view.toFlight();
+			assertEquals(flight.getmTimeDepart(), rebuilt.getmTimeDepart());
+			assertEquals(flight.getmTimeArrival(), rebuilt.getmTimeArrival());
+			assertEquals(flight.getmNumber(), rebuilt.getmNumber());
+			assertEquals(flight.getmCentsFirstclass(), rebuilt.getmCentsFirstclass());
+			assertEquals(flight.getmCentsCoach(), rebuilt.getmCentsCoach());
+			assertTrue(rebuilt.isValid());
+			row++;
+		}
+		assertEquals(flights.size(), row);
+
+		FlightView last = store.get(store.size() - 1);
+		assertEquals("0042", last.getmNumber());
+		assertEquals(111467, last.getmCentsFirstclass());
+		assertEquals(5, last.getmCentsCoach());
+		assertEquals("$1114.67", last.toFlight().getmPriceFirstclass());
+		assertEquals(11467, store.get(store.size() - 2).getmCentsCoach());
+		assertThrows(IndexOutOfBoundsException.class, () -> store.get(store.size()));
+	}
+	
+	/**
+	 * JUnit test method for testing that TripRanking keeps the same trips as sorting every trip, for every criterion,
+	 * and that merging rankings gives the same result as ranking every trip in one place.
+	 * @throws ParseException
+	 */
+	@Test
+	void rankingtest() throws ParseException {
+		Random random = new Random(509);
+		Trips all = new Trips();
+		TripRanking ranking = new TripRanking(Trip.seatType.COACH, 7);
+		TripRanking first = new TripRanking(Trip.seatType.COACH, 7);
+		TripRanking second = new TripRanking(Trip.seatType.COACH, 7);
+		for (int i = 0; i < 200; i++) {
+			int depart = random.nextInt(6) * 60;
+			int length = 60 + random.nextInt(4) * 30;
+			Flight flight = new Flight("777", "60", Integer.toString(i), "BOS", String.format("2023 May 10 %02d:%02d GMT", depart / 60, depart % 60),
+					"SAT", String.format("2023 May 10 %02d:%02d GMT", (depart + length) / 60, (depart + length) % 60),
+					"$100.00", 10, "$" + (50 + random.nextInt(5)) + ".00", 10);
+			Flights flights = new Flights();
+			flights.add(flight);
+			Trip trip = new Trip(flights);
+			all.add(trip);
+			ranking.offer(trip);
+			(i < 120 ? first : second).offer(trip);
+		}
+		first.merge(second);
+		assertEquals(200, first.offered());
+
+		Map<TripRanking.Criterion, Comparator<Trip>> orders = new EnumMap<TripRanking.Criterion, Comparator<Trip>>(TripRanking.Criterion.class);
+		orders.put(TripRanking.Criterion.PRICE, Comparator.comparingLong(t -> t.getPriceCents(Trip.seatType.COACH)));
+		orders.put(TripRanking.Criterion.DEPARTURE_TIME, Comparator.comparingLong(Trip::getDepartureMinute));
+		orders.put(TripRanking.Criterion.ARRIVAL_TIME, Comparator.comparingLong(Trip::getArrivalMinute));
+		orders.put(TripRanking.Criterion.TRIP_LENGTH, Comparator.comparingLong(Trip::getTripMinutes));
+		for (TripRanking.Criterion criterion : TripRanking.Criterion.values()) {
+			Trips sorted = new Trips();
+			sorted.addAll(all);
+			sorted.sort(orders.get(criterion));
+			assertEquals(sorted.subList(0, 7), ranking.ranked(criterion), criterion.name());
+			assertEquals(sorted.subList(0, 7), first.ranked(criterion), criterion.name());
+		}
+	}
+	
+	/**
+	 * JUnit test method for testing that the connection scan with up to 0, 1 and 2 stops finds the same itineraries
+	 * as the fixed stop searches, including single layovers longer than Sp.MAX_LAYOVER.
+	 * @throws IOException
+	 */
+	@Test
+	void scantest() throws IOException {
+		new TimeConversion("timezone.csv");
+		SyntheticSchedule schedule = new SyntheticSchedule(6, 12, 3, 509L);
+		ConnectionGraph graph = new ConnectionGraph(schedule.flights(), schedule.airplanes());
+		ConnectionScan scan = new ConnectionScan(schedule.flights(), schedule.airplanes());
+		int compared = 0;
+		int longLayovers = 0;
+		for (int from = 0; from < 6; from++) {
+			for (int to = 0; to < 6; to++) {
+				if (from == to) {
+					continue;
+				}
+				String departure = schedule.code(from);
+				String arrival = schedule.code(to);
+				String date = schedule.day(1);
+				Set<String> expected = new TreeSet<String>();
+				for (int stops = 0; stops <= 2; stops++) {
+					List<Flights> fixed = stops == 0 ? graph.searchWithNoStop(departure, arrival, date, 1, true)
+							: stops == 1 ? graph.searchWithOneStop(departure, arrival, date, 1, true)
+							: graph.searchWithTwoStop(departure, arrival, date, 1, true);
+					expected.addAll(numbers(fixed));
+					for (Flights itinerary : fixed) {
+						if (stops == 1 && itinerary.get(1).getmMinuteDepart() - itinerary.get(0).getmMinuteArrival() > Sp.MAX_LAYOVER) {
+							longLayovers++;
+						}
+					}
+					assertEquals(expected, numbers(scan.search(departure, arrival, date, stops, 1, true)), departure + "-" + arrival + " " + stops);
+					compared += expected.size();
+				}
+			}
+		}
+		assertTrue(compared > 0);
+		assertTrue(longLayovers > 0);
+	}
+	
+	/**
+	 * @return the flight numbers of every itinerary, e.g. 1001-1042
+	 */
+	private static Set<String> numbers(List<Flights> itineraries) {
+		Set<String> numbers = new TreeSet<String>();
+		for (Flights itinerary : itineraries) {
+			StringBuilder number = new StringBuilder();
+			for (Flight flight : itinerary) {
+				number.append(number.length() == 0 ? "" : "-").append(flight.getmNumber());
+			}
+			numbers.add(number.toString());
+		}
+		return numbers;
+	}
+	
+	/**
+	 * JUnit test method for testing that parsing, building, sorting and displaying trips are recorded as flight recorder events.
+	 * @throws IOException
+	 */
+	@Test
+	void eventstest() throws IOException {
+		Flight f2 = new Flight("777", "200", "20837", "SAT", "2023 May 26 12:31 GMT", "BOS", "2023 May 26 15:51 GMT",
+				"$0.10", 39, "$0.20", 197);
+		Flights legs = new Flights();
+		legs.addAll(Arrays.asList(f1, f2));
+		String xml = SyntheticSchedule.toXml(legs);
+		Path file = Files.createTempFile("cs509", ".jfr");
+		try (Recording recording = new Recording()) {
+			for (String name : new String[] {"CS509.ParseFlights", "CS509.BuildTrips", "CS509.SortTrips", "CS509.DisplayTrips"}) {
+				recording.enable(name);
+			}
+			recording.start();
+			Flights parsed = Flights.addAllf(xml);
+			Trips trips = new Trips();
+			trips.addAll(Arrays.asList(legs, parsed));
+			TripRanking ranking = new TripRanking(Trip.seatType.COACH, 5);
+			ranking.offerAll(Arrays.asList(legs));
+			ranking.ranked(TripRanking.Criterion.PRICE);
+			trips.displayPage(Trip.seatType.COACH, 2, 10);
+			recording.stop();
+			recording.dump(file);
+
+			Map<String, RecordedEvent> events = new HashMap<String, RecordedEvent>();
+			List<RecordedEvent> recorded = RecordingFile.readAllEvents(file);
+			for (RecordedEvent event : recorded) {
+				String name = event.getEventType().getName();
+				if (!name.equals("CS509.BuildTrips") || event.getString("method").equals("Trips.addAll")) {
+					events.put(name, event);
+				}
+			}
+			assertEquals(5, recorded.size());
+			assertEquals(2, events.get("CS509.ParseFlights").getInt("flights"));
+			assertEquals(xml.length(), events.get("CS509.ParseFlights").getLong("characters"));
+			assertEquals(2, events.get("CS509.BuildTrips").getInt("candidates"));
+			assertEquals(2, events.get("CS509.BuildTrips").getInt("trips"));
+			assertEquals("PRICE", events.get("CS509.SortTrips").getString("order"));
+			assertEquals(1, events.get("CS509.SortTrips").getInt("trips"));
+			assertEquals(0, events.get("CS509.DisplayTrips").getInt("shown"));
+			assertEquals(2, events.get("CS509.DisplayTrips").getInt("trips"));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+	
+	/**
+	 * JUnit test method for testing that a round trip is booked whole in a single lock window against a StubServer,
+	 * adding one reserved seat on every leg, or not at all when one of its legs is sold out.
+	 * @throws Exception
+	 */
+	@Test
+	void reservetripstest() throws Exception {
+		SyntheticSchedule schedule = new SyntheticSchedule(4, 3, 2, 509L);
+		StubServer server = new StubServer(schedule, 0, 0, 0, 0).start();
+		ServerMetrics metrics = new ServerMetrics();
+		ServerInterface.useTransport(new HttpTransport(server.url(), 1000, 5000, metrics));
+		try {
+			Flights outbound = new Flights();
+			outbound.add(schedule.list(schedule.code(0), schedule.day(0), true).get(0));
+			outbound.add(schedule.list(schedule.code(1), schedule.day(0), true).get(0));
+			Flights inbound = new Flights();
+			inbound.add(schedule.list(schedule.code(2), schedule.day(1), true).get(0));
+			inbound.add(schedule.list(schedule.code(3), schedule.day(1), true).get(0));
+			for (Flight leg : outbound) {
+				leg.setmSeatsCoach(0);
+			}
+			for (Flight leg : inbound) {
+				leg.setmSeatsCoach(0);
+			}
+
+			reservationBuilder rb = new reservationBuilder();
+			rb.setTripType("round");
+			rb.setSeatClass("Coach");
+			rb.outboundTrip = new Trip(outbound);
+			rb.inboundTrip = new Trip(inbound);
+			assertTrue(rb.reserve());
+			for (Flight leg : outbound) {
+				assertEquals(1, leg.getmSeatsCoach());
+			}
+			for (Flight leg : inbound) {
+				assertEquals(1, leg.getmSeatsCoach());
+			}
+			assertEquals(1, metrics.action(ServerMetrics.Action.LOCK).getRequests());
+			assertEquals(1, metrics.action(ServerMetrics.Action.BUY_TICKETS).getRequests());
+			assertEquals(1, metrics.action(ServerMetrics.Action.UNLOCK).getRequests());
+			assertEquals(3, server.requests());
+
+			Flight soldOut = inbound.get(1);
+			soldOut.setmSeatsCoach(new AirplaneRegistry(schedule.airplanes()).get(soldOut.getmAirplane()).coachSeats());
+			assertFalse(rb.reserve());
+			for (Flight leg : outbound) {
+				assertEquals(1, leg.getmSeatsCoach());
+			}
+			assertEquals(1, inbound.get(0).getmSeatsCoach());
+			assertEquals(2, metrics.action(ServerMetrics.Action.LOCK).getRequests());
+			assertEquals(2, metrics.action(ServerMetrics.Action.UNLOCK).getRequests());
+		} finally {
+			ServerInterface.useTransport(null);
+			server.stop();
+		}
+	}
+	
 	/**
 	 * JUnit test method for testing the reserveFlight() method of the reservationBuilder class.
 	 */
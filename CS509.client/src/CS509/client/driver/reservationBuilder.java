@@ -1,17 +1,26 @@
 package CS509.client.driver;
 import CS509.client.flight.*;
+import CS509.client.util.Money;
 import CS509.client.util.Sp;
 import CS509.client.airport.TimeConversion;
 import CS509.client.dao.*;
 
-import java.text.DecimalFormat;
 import java.text.ParseException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 /**
  * This class provides an interface for reservation building.
  * @author Joe
@@ -28,11 +37,15 @@ public class reservationBuilder {
 	String team = Sp.TICKET_AGENCY;//OOF check this constant.
 	
 	List<Flights> onewayFlights = new ArrayList<Flights>();
-	List<Flights> DepartureFlights = new ArrayList<Flights>();
-	List<Flights> ArrivalFlights = new ArrayList<Flights>();
 	
+	TripRanking outboundRanking = new TripRanking(Trip.seatType.COACH, Sp.RANKING_SIZE);
+	TripRanking inboundRanking = new TripRanking(Trip.seatType.COACH, Sp.RANKING_SIZE);
+	
+	//the ranked trips in the order currently shown
 	Trips outboundTrips = new Trips();
 	Trips inboundTrips = new Trips();
+	int outboundPage = 0;
+	int inboundPage = 0;
 	
 	Trip outboundTrip;
 	Trip inboundTrip;
@@ -52,73 +65,231 @@ public class reservationBuilder {
 	Boolean roundTrip = false;
 	Boolean oneWay = false;
 	int seats = 1; //does the professor ask for multiple seat reservation ability?
-	private static final DecimalFormat df = new DecimalFormat("0.00");
+	private static final ExecutorService searchPool = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "flight-search");
+		t.setDaemon(true);
+		return t;
+	});
 	
 	/**
 	 * Searches flights 
+	 * The no-stop, one-stop and two-stop searches for the outbound and inbound trips all run at the same time.
+	 * Each search ranks its own trips as soon as it finishes, keeping only the best Sp.RANKING_SIZE trips
+	 * for each sort order. Rankings are merged in the same order as a sequential search. If any search fails,
+	 * or the searches do not finish within Sp.SEARCH_DEADLINE, the remaining searches are cancelled and nothing is merged.
 	 * @throws ParseException
+	 * @throws TimeoutException if the searches did not finish before the deadline
 	 */
-	public void searchFlights() throws ParseException {
+	public void searchFlights() throws ParseException, TimeoutException {
 		//Have to add handling of MULTIPLE departure dates (windows)
 
-//		
-				DepartureFlights.addAll(FlightSearch.searchFlightsWithNoStop(team,departureCode,arrivalCode,departureDate,seats, coach));
-				DepartureFlights.addAll(FlightSearch.searchFlightsWithOneStop(team,departureCode,arrivalCode,departureDate,seats, coach));
-				DepartureFlights.addAll(FlightSearch.searchFlightsWithTwoStop(team,departureCode,arrivalCode,departureDate,seats, coach));
-				
-				if(roundTrip) {
-					ArrivalFlights.addAll(FlightSearch.searchFlightsWithNoStop(team,arrivalCode,departureCode,arrivalDate,seats, coach));
-					ArrivalFlights.addAll(FlightSearch.searchFlightsWithOneStop(team,arrivalCode,departureCode,arrivalDate,seats, coach));
-					ArrivalFlights.addAll(FlightSearch.searchFlightsWithTwoStop(team,arrivalCode,departureCode,arrivalDate,seats, coach));
-//					System.out.println(ArrivalFlights.size());
-				}
+		List<CompletableFuture<?>> tasks = new ArrayList<CompletableFuture<?>>();
+		List<CompletableFuture<TripRanking>> outbound = searchAsync(departureCode, arrivalCode, departureDate, tasks);
+		List<CompletableFuture<TripRanking>> inbound = new ArrayList<CompletableFuture<TripRanking>>();
+		if(roundTrip) {
+			inbound = searchAsync(arrivalCode, departureCode, arrivalDate, tasks);
+		}
+		
+		await(tasks, Sp.SEARCH_DEADLINE);
+		
+		outboundRanking = new TripRanking(getSeatType(), Sp.RANKING_SIZE);
+		inboundRanking = new TripRanking(getSeatType(), Sp.RANKING_SIZE);
+		for (CompletableFuture<TripRanking> search : outbound) {
+			outboundRanking.merge(search.join());
+		}
+		for (CompletableFuture<TripRanking> search : inbound) {
+			inboundRanking.merge(search.join());
+		}
+	}
+	
+	/**
+	 * Starts the no-stop, one-stop and two-stop searches between two airports.
+	 * The three searches share one connection graph, loaded once.
+	 * @param from Departure airport code
+	 * @param to Arrival airport code
+	 * @param date Departure Date
+	 * @param tasks collects every started task so it can be awaited or cancelled
+	 * @return the rankings of the no-stop, one-stop and two-stop searches, in that order
+	 */
+	private List<CompletableFuture<TripRanking>> searchAsync(String from, String to, String date, List<CompletableFuture<?>> tasks) {
+		CompletableFuture<ConnectionGraph> graph = async(() -> ConnectionGraph.load(team, from, to, date));
+		Trip.seatType seatType = getSeatType();
+		List<CompletableFuture<TripRanking>> searches = new ArrayList<CompletableFuture<TripRanking>>();
+		searches.add(graph.thenApplyAsync(g -> rank(g.searchWithNoStop(from, to, date, seats, coach), seatType), searchPool));
+		searches.add(graph.thenApplyAsync(g -> rank(g.searchWithOneStop(from, to, date, seats, coach), seatType), searchPool));
+		searches.add(graph.thenApplyAsync(g -> rank(g.searchWithTwoStop(from, to, date, seats, coach), seatType), searchPool));
+		tasks.add(graph);
+		tasks.addAll(searches);
+		return searches;
+	}
+	
+	/**
+	 * Ranks the trips found by one search.
+	 * @param LoF lists of Flights found by the search
+	 * @param seatType seating class whose price is ranked
+	 * @return the best trips of the search
+	 */
+	private static TripRanking rank(List<Flights> LoF, Trip.seatType seatType) {
+		TripRanking ranking = new TripRanking(seatType, Sp.RANKING_SIZE);
+		ranking.offerAll(LoF);
+		return ranking;
+	}
+	
+	/**
+	 * Runs a task on the search pool. Cancelling the returned future interrupts the task.
+	 * @param task the task to run
+	 * @return future completed with the result of the task
+	 */
+	private static <T> CompletableFuture<T> async(Callable<T> task) {
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		Future<?> running = searchPool.submit(() -> {
+			try {
+				result.complete(task.call());
+			} catch (Throwable t) {
+				result.completeExceptionally(t);
 			}
+		});
+		result.whenComplete((r, ex) -> {
+			if (result.isCancelled()) {
+				running.cancel(true);
+			}
+		});
+		return result;
+	}
 	
 	/**
-	 * Generates trips for the reservation based on the selected flights.
-	 * The method adds all the departure flights to the outboundTrips list
-	 * and all the arrival flights to the inboundTrips list if roundTrip is true.
+	 * Waits for every task to finish, failing as soon as one of them fails.
+	 * @param tasks tasks to wait for
+	 * @param deadline time in milliseconds to wait
+	 * @throws ParseException if a task failed to parse a flight
+	 * @throws TimeoutException if the tasks did not finish before the deadline
 	 */
-	public void makeTrips() {
+	private static void await(List<CompletableFuture<?>> tasks, long deadline) throws ParseException, TimeoutException {
+		CompletableFuture<Void> failed = new CompletableFuture<Void>();
+		for (CompletableFuture<?> task : tasks) {
+			task.whenComplete((r, ex) -> {
+				if (ex != null) {
+					failed.completeExceptionally(ex);
+				}
+			});
+		}
+		CompletableFuture<Void> all = CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]));
+		
 		try {
-			this.outboundTrips.addAll(this.DepartureFlights);
-		} catch (Exception e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			CompletableFuture.anyOf(all, failed).get(deadline, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			cancel(tasks);
+			throw e;
+		} catch (InterruptedException e) {
+			cancel(tasks);
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Search interrupted");
+		} catch (ExecutionException e) {
+			cancel(tasks);
+			Throwable cause = e.getCause();
+			while (cause instanceof CompletionException && cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+			if (cause instanceof ParseException) {
+				throw (ParseException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+	
+	private static void cancel(List<CompletableFuture<?>> tasks) {
+		for (CompletableFuture<?> task : tasks) {
+			task.cancel(true);
 		}
+	}
+	
+	/**
+	 * Generates trips for the reservation from the ranked search results.
+	 * The outboundTrips list, and the inboundTrips list if roundTrip is true,
+	 * hold the best trips by price, starting from the first page.
+	 */
+	public void makeTrips() {
+		this.sortByPrice(flDirection.OUTBOUND);
 		if(this.roundTrip) {
-			this.inboundTrips.addAll(this.ArrivalFlights);
+			this.sortByPrice(flDirection.INBOUND);
 		}
 	}
 	
 	/**
-	 * Calls displayAll method to display the Departure Flights information held within a Trips object.
+	 * Calls displayPage method to display the current page of the Departure Flights held within a Trips object.
 	 */
 	public void showDepartureFlights() {
-		Trip.seatType seatType;
-		
-		if(this.coach) {
-			seatType = Trip.seatType.COACH;
+		showPage(outboundTrips, outboundRanking, outboundPage);
+	}
+	
+	/**
+	 * Calls displayPage method to display the current page of the Arrival Flights held within a Trips object.
+	 */
+	public void showArrivalFlights() {
+		showPage(inboundTrips, inboundRanking, inboundPage);
+	}
+	
+	private void showPage(Trips trips, TripRanking ranking, int page) {
+		int first = page * Sp.PAGE_SIZE;
+		trips.displayPage(getSeatType(), first, Sp.PAGE_SIZE);
+		if(trips.size() > 0) {
+			System.out.println("Showing trips " + first + " to " + (Math.min(trips.size(), first + Sp.PAGE_SIZE) - 1)
+					+ " of the best " + trips.size() + " (" + ranking.offered() + " found), page " + (page + 1) + " of " + pages(trips));
 		}
-		else {
-			seatType = Trip.seatType.FIRST;
+	}
+	
+	private static int pages(Trips trips) {
+		return Math.max(1, (trips.size() + Sp.PAGE_SIZE - 1) / Sp.PAGE_SIZE);
+	}
+	
+	/**
+	 * Moves to the next page of inbound or outbound trips.
+	 * @param fl Direction of flight (INBOUND/OUTBOUND)
+	 * @return true if there was a next page, false otherwise
+	 */
+	public boolean nextPage(flDirection fl) {
+		if(fl == flDirection.INBOUND && inboundPage + 1 < pages(inboundTrips)) {
+			inboundPage++;
+			return true;
+		}else if (fl == flDirection.OUTBOUND && outboundPage + 1 < pages(outboundTrips)) {
+			outboundPage++;
+			return true;
 		}
-		outboundTrips.displayAll(seatType);
+		return false;
 	}
 	
 	/**
-	 * Calls displayAll method to display the Arrival Flights information held within a Trips object.
+	 * Moves to the previous page of inbound or outbound trips.
+	 * @param fl Direction of flight (INBOUND/OUTBOUND)
+	 * @return true if there was a previous page, false otherwise
 	 */
-	public void showArrivalFlights() {
-		Trip.seatType seatType;
-		
+	public boolean previousPage(flDirection fl) {
+		if(fl == flDirection.INBOUND && inboundPage > 0) {
+			inboundPage--;
+			return true;
+		}else if (fl == flDirection.OUTBOUND && outboundPage > 0) {
+			outboundPage--;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * @return the seat type of the reservation, coach or first class
+	 */
+	private Trip.seatType getSeatType() {
 		if(this.coach) {
-			seatType = Trip.seatType.COACH;
+			return Trip.seatType.COACH;
 		}
 		else {
-			seatType = Trip.seatType.FIRST;
+			return Trip.seatType.FIRST;
 		}
-		inboundTrips.displayAll(seatType);
 	}
 	
 	/**
@@ -217,14 +388,16 @@ public class reservationBuilder {
 	}
 	
 	/**
-	 * Clears all the reservations made by the user by removing all the departure flights,
-	 * arrival flights, outbound trips, and inbound trips from the corresponding lists.
+	 * Clears all the reservations made by the user by dropping the ranked outbound
+	 * and inbound trips and returning to the first page.
 	 */
 	public void flushReservation() {
-		this.DepartureFlights.removeAll(DepartureFlights);
-		this.ArrivalFlights.removeAll(ArrivalFlights);
-		this.outboundTrips.removeAll(outboundTrips);
-		this.inboundTrips.removeAll(inboundTrips);
+		this.outboundRanking = new TripRanking(getSeatType(), Sp.RANKING_SIZE);
+		this.inboundRanking = new TripRanking(getSeatType(), Sp.RANKING_SIZE);
+		this.outboundTrips = new Trips();
+		this.inboundTrips = new Trips();
+		this.outboundPage = 0;
+		this.inboundPage = 0;
 	}
 	
 	/**
@@ -235,7 +408,7 @@ public class reservationBuilder {
 	 */
 	public void displayReservation() {
 		Trip.seatType seatType;
-		double reservationCost = 0d;
+		long reservationCost = 0;
 		
 		if(this.coach) {
 			seatType = Trip.seatType.COACH;
@@ -254,7 +427,7 @@ public class reservationBuilder {
 		}
 		
 		this.outboundTrip.displayTrip(seatType);
-		reservationCost += this.outboundTrip.getPrice(seatType);
+		reservationCost = Money.add(reservationCost, this.outboundTrip.getPriceCents(seatType));
 		
 		if(this.roundTrip) {
 			if(this.inboundTrips.size() > 1) {
@@ -263,35 +436,41 @@ public class reservationBuilder {
 				System.out.println("**********************************   INBOUND FLIGHT    *************************************");	
 				}
 			this.inboundTrip.displayTrip(seatType);
-			reservationCost += this.inboundTrip.getPrice(seatType);
+			reservationCost = Money.add(reservationCost, this.inboundTrip.getPriceCents(seatType));
 		}
 		System.out.println("******************************* PENDING RESERVATION ABOVE ***********************************");
-		System.out.println("******************************* TOTAL COST: $" + df.format(reservationCost)+" ***************************************");
+		System.out.println("******************************* TOTAL COST: " + Money.format(reservationCost)+" ***************************************");
 		System.out.println("*********************************************************************************************");
 	}
 
 	/**
-	 * Reserves the flights in the outbound trip and if round trip is true, reserves flights in inbound trip
+	 * Reserves the flights in the outbound trip and if round trip is true, the flights in the inbound trip with them.
+	 * Every leg of both trips is booked in a single lock window, so either both trips are reserved or neither is.
 	 * @return true if reservation successful for both trips, false otherwise
 	 */
 	public boolean reserve() {
-		boolean complete = false;
-		boolean completereturn=true;
-		Flights flights1 = this.outboundTrip.getTripFlights();
-		if(reserveFlight(flights1, this.seatClass)) {
-			complete = true;
-		}
-		
+		List<Flights> trips = new ArrayList<Flights>();
+		trips.add(this.outboundTrip.getTripFlights());
 		if(this.roundTrip) {
-			//book flights in inbound
-			completereturn = false;
-			Flights flights2 = this.inboundTrip.getTripFlights();
-			if(reserveFlight(flights2, this.seatClass)) {
-				completereturn = true;
-			}
-		
+			trips.add(this.inboundTrip.getTripFlights());
+		}
+		return reserveTrips(trips, this.seatClass);
+	}
+	
+	/**
+	 * Reserves the flights of several trips at once.
+	 * The legs of all the trips go into one reservation, bought with a single lock, buyTickets and unlock,
+	 * and the server books every leg of a reservation or none of them.
+	 * @param trips the flights of each trip
+	 * @param seatClass
+	 * @return true if every trip was reserved, false if none was
+	 */
+	public boolean reserveTrips(List<? extends List<Flight>> trips, String seatClass) {
+		ArrayList<Flight> flightList = new ArrayList<Flight>();
+		for (List<Flight> trip : trips) {
+			flightList.addAll(trip);
 		}
-		return (complete && completereturn);
+		return reserveFlight(flightList, seatClass);
 	}
 	
 	/**
@@ -299,30 +478,7 @@ public class reservationBuilder {
 	 * @param fl Direction of flight (INBOUND/OUTBOUND)
 	 */
 	public void sortByPrice(flDirection fl) {
-		Trip.seatType seatType;
-		if(this.coach) {
-			seatType = Trip.seatType.COACH;
-		}
-		else {
-			seatType = Trip.seatType.FIRST;
-		}
-		
-		Comparator<Trip> compareByPrice = new Comparator<Trip>(){
-			@Override
-			public int compare(Trip t1, Trip t2) {
-				return t1.getPrice(seatType).compareTo(t2.getPrice(seatType));
-			}
-		};
-		
-		if(fl == flDirection.INBOUND) {
-			inboundTrips.sort(compareByPrice);
-		}else if (fl == flDirection.OUTBOUND) {
-			outboundTrips.sort(compareByPrice);
-		}
-		else {
-			System.out.println("Not sorted oof");
-		}
-
+		rank(fl, TripRanking.Criterion.PRICE);
 	}
 
 	/**
@@ -330,22 +486,7 @@ public class reservationBuilder {
 	 * @param fl Direction of flight (INBOUND/OUTBOUND)
 	 */
 	public void sortByDepartureDate(flDirection fl) {
-		Comparator<Trip> compareByDepartureDate = new Comparator<Trip>(){
-			@Override
-			public int compare(Trip t1, Trip t2) {
-				return t1.getDepartureDate().compareTo(t2.getDepartureDate());
-			}
-		};
-		
-		if(fl == flDirection.INBOUND) {
-			inboundTrips.sort(compareByDepartureDate);
-		}else if (fl == flDirection.OUTBOUND) {
-			outboundTrips.sort(compareByDepartureDate);
-		}
-		else {
-			System.out.println("Not sorted oof");
-		}
-		
+		rank(fl, TripRanking.Criterion.DEPARTURE_TIME);
 	}
 	
 	/**
@@ -353,21 +494,7 @@ public class reservationBuilder {
 	 * @param fl Direction of flight (INBOUND/OUTBOUND)
 	 */
 	public void sortByArrivalDate(flDirection fl) {
-		Comparator<Trip> compareByArrivalDate = new Comparator<Trip>(){
-			@Override
-			public int compare(Trip t1, Trip t2) {
-				return t1.getArrivalDate().compareTo(t2.getArrivalDate());
-			}
-		};
-		
-		if(fl == flDirection.INBOUND) {
-			inboundTrips.sort(compareByArrivalDate);
-		}else if (fl == flDirection.OUTBOUND) {
-			outboundTrips.sort(compareByArrivalDate);
-		}
-		else {
-			System.out.println("Not sorted oof");
-		}
+		rank(fl, TripRanking.Criterion.ARRIVAL_TIME);
 	}
 	
 	/**
@@ -375,17 +502,22 @@ public class reservationBuilder {
 	 * @param fl Direction of flight (INBOUND/OUTBOUND)
 	 */
 	public void sortByTripLength(flDirection fl) {
-		Comparator<Trip> compareByTripLength = new Comparator<Trip>(){
-			@Override
-			public int compare(Trip t1, Trip t2) {
-				return t1.getTripLength().compareTo(t2.getTripLength());
-			}
-		};
-		
+		rank(fl, TripRanking.Criterion.TRIP_LENGTH);
+	}
+	
+	/**
+	 * Shows the best inbound or outbound trips by another criterion, from the first page.
+	 * The trips come from the ranking kept during the search, nothing is searched or sorted again.
+	 * @param fl Direction of flight (INBOUND/OUTBOUND)
+	 * @param criterion the new order of the trips
+	 */
+	private void rank(flDirection fl, TripRanking.Criterion criterion) {
 		if(fl == flDirection.INBOUND) {
-			inboundTrips.sort(compareByTripLength);
+			inboundTrips = inboundRanking.ranked(criterion);
+			inboundPage = 0;
 		}else if (fl == flDirection.OUTBOUND) {
-			outboundTrips.sort(compareByTripLength);
+			outboundTrips = outboundRanking.ranked(criterion);
+			outboundPage = 0;
 		}
 		else {
 			System.out.println("Not sorted oof");
@@ -465,10 +597,10 @@ public class reservationBuilder {
             isReserved = ServerInterface.buyTickets(Sp.TICKET_AGENCY, xmlFlights);
 
             // if reservation is successful
-            // unlock server
+            // unlock server, then fetch the preloaded lists of the reserved flights again
             if (isReserved) {
                 isUnlocked = ServerInterface.unlock(Sp.TICKET_AGENCY);
-               
+                ServerInterface.refreshSchedule();
             }
             // if not, also unlock, and ask to try again.
             else {
@@ -3,11 +3,15 @@
  */
 package CS509.client.flight;
 
-import java.text.SimpleDateFormat;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
 
-import java.util.Date;
+import CS509.client.airport.AirportCode;
 import CS509.client.airport.Airports;
 import CS509.client.airport.TimeConversion;
+import CS509.client.util.Money;
 
 /**
  * This class holds values pertaining to a single flight from one airport to another. 
@@ -15,6 +19,11 @@ import CS509.client.airport.TimeConversion;
  * values after conversion from XML received from the server to Java primitives. 
  * Attributes are accessed via getter and setter methods.
  * 
+ * The departure and arrival times are also kept as minutes since the epoch, parsed once when
+ * the time is set, so searches can compare times without parsing the strings again. Airport
+ * codes are interned and also kept as AirportCode ids, so airports compare with ==. Prices
+ * are read once into cents with Money.
+ * 
  * @author blake
  * @version 1
  * @since 2016-02-24
@@ -22,6 +31,13 @@ import CS509.client.airport.TimeConversion;
  */
 public class Flight {
 
+	/**
+	 * Minute value of a time that could not be parsed
+	 */
+	public static final long NO_TIME = Long.MIN_VALUE;
+
+	private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy MMM dd HH:mm z", Locale.US);
+
 	/**
 	 * Member attributes describing a flight
 	 */
@@ -36,10 +52,12 @@ public class Flight {
 	private int mSeatsFirstclass;
 	private String mPriceCoach;
 	private int mSeatsCoach;
-	@SuppressWarnings("unused")
-	private String line;
-	@SuppressWarnings("unused")
-	private String line2;
+	private long mMinuteDepart;
+	private long mMinuteArrival;
+	private int mIdDepart;
+	private int mIdArrival;
+	private long mCentsFirstclass;
+	private long mCentsCoach;
 	private static Airports mAirports;
 	
 	public Flight (
@@ -58,16 +76,20 @@ public class Flight {
 		mAirplane = airplane;
 		mFlightTime = flightTime;
 		mNumber = number;
-		mCodeDepart = codeDepart;
+		mCodeDepart = AirportCode.intern(codeDepart);
+		mIdDepart = AirportCode.id(codeDepart);
 		mTimeDepart = timeDepart;
-		mCodeArrival = codeArrival;
+		mMinuteDepart = toMinute(timeDepart);
+		mCodeArrival = AirportCode.intern(codeArrival);
+		mIdArrival = AirportCode.id(codeArrival);
 		mTimeArrival = timeArrival;
+		mMinuteArrival = toMinute(timeArrival);
 		mPriceFirstclass = priceFirstclass;
+		mCentsFirstclass = Money.parse(priceFirstclass);
 		mSeatsFirstclass = seatsFirstclass;
 		mPriceCoach = priceCoach;
+		mCentsCoach = Money.parse(priceCoach);
 		mSeatsCoach = seatsCoach;
-		line = "---------------------------------------------------------------";
-		line2 = "______________________________________________________________";
 		
 	}
 
@@ -82,31 +104,16 @@ public class Flight {
 			if (Integer.parseInt(mNumber) <= 0) {
 				return false;
 			}
-			if (mCodeDepart.length() != 3) {
-				return false;
-			}
-			if (mCodeArrival.length() != 3) {
+			if (mIdDepart == AirportCode.NO_ID || mIdArrival == AirportCode.NO_ID) {
 				return false;
 			}
 			// verify departure time and arrival time are expected formats
-			SimpleDateFormat sdf = new SimpleDateFormat("yyyy MMM dd HH:mm z");
-			@SuppressWarnings("unused")
-			Date tmpDate = sdf.parse(mTimeDepart);
-			tmpDate = sdf.parse(mTimeArrival);
-			
-			/**
-			 * Need to match:
-			 * $ at start of string
-			 * some number of digits for dollars
-			 * . as dollar cents separator
-			 * two digits as cents
-			 * end of string. no following characters
-			 */
-			
-			if (!mPriceFirstclass.matches("^\\$\\d*\\.\\d\\d$")) {
+			if (mMinuteDepart == NO_TIME || mMinuteArrival == NO_TIME) {
 				return false;
 			}
-			if (!mPriceCoach.matches("^\\$\\d*\\.\\d\\d$")) {
+			
+			// verify both prices were read, $ then dollars, . and two digits of cents
+			if (mCentsFirstclass == Money.NO_PRICE || mCentsCoach == Money.NO_PRICE) {
 				return false;
 			}
 			
@@ -178,7 +185,15 @@ public class Flight {
 	 * @param mCodeDepart the mCodeDepart to set
 	 */
 	public void setmCodeDepart(String mCodeDepart) {
-		this.mCodeDepart = mCodeDepart;
+		this.mCodeDepart = AirportCode.intern(mCodeDepart);
+		this.mIdDepart = AirportCode.id(mCodeDepart);
+	}
+
+	/**
+	 * @return the AirportCode id of the departure airport, AirportCode.NO_ID if the code is not 3 letters
+	 */
+	public int getmIdDepart() {
+		return mIdDepart;
 	}
 
 	/**
@@ -193,6 +208,14 @@ public class Flight {
 	 */
 	public void setmTimeDepart(String mTimeDepart) {
 		this.mTimeDepart = mTimeDepart;
+		this.mMinuteDepart = toMinute(mTimeDepart);
+	}
+
+	/**
+	 * @return the departure time in minutes since the epoch, NO_TIME if it could not be parsed
+	 */
+	public long getmMinuteDepart() {
+		return mMinuteDepart;
 	}
 
 	/**
@@ -206,7 +229,15 @@ public class Flight {
 	 * @param mCodeArrival the mCodeArrival to set
 	 */
 	public void setmCodeArrival(String mCodeArrival) {
-		this.mCodeArrival = mCodeArrival;
+		this.mCodeArrival = AirportCode.intern(mCodeArrival);
+		this.mIdArrival = AirportCode.id(mCodeArrival);
+	}
+
+	/**
+	 * @return the AirportCode id of the arrival airport, AirportCode.NO_ID if the code is not 3 letters
+	 */
+	public int getmIdArrival() {
+		return mIdArrival;
 	}
 
 	/**
@@ -221,6 +252,14 @@ public class Flight {
 	 */
 	public void setmTimeArrival(String mTimeArrival) {
 		this.mTimeArrival = mTimeArrival;
+		this.mMinuteArrival = toMinute(mTimeArrival);
+	}
+
+	/**
+	 * @return the arrival time in minutes since the epoch, NO_TIME if it could not be parsed
+	 */
+	public long getmMinuteArrival() {
+		return mMinuteArrival;
 	}
 
 	/**
@@ -235,6 +274,14 @@ public class Flight {
 	 */
 	public void setmPriceFirstclass(String mPriceFirstclass) {
 		this.mPriceFirstclass = mPriceFirstclass;
+		this.mCentsFirstclass = Money.parse(mPriceFirstclass);
+	}
+
+	/**
+	 * @return the first class price in cents, Money.NO_PRICE if it could not be read
+	 */
+	public long getmCentsFirstclass() {
+		return mCentsFirstclass;
 	}
 
 	/**
@@ -263,6 +310,14 @@ public class Flight {
 	 */
 	public void setmPriceCoach(String mPriceCoach) {
 		this.mPriceCoach = mPriceCoach;
+		this.mCentsCoach = Money.parse(mPriceCoach);
+	}
+
+	/**
+	 * @return the coach price in cents, Money.NO_PRICE if it could not be read
+	 */
+	public long getmCentsCoach() {
+		return mCentsCoach;
 	}
 
 	/**
@@ -283,6 +338,23 @@ public class Flight {
 		mAirports = airports;
 	}
 
+	/**
+	 * Converts a flight time in the server format (yyyy MMM dd HH:mm z) to minutes since the epoch
+	 * 
+	 * @param time the time to convert
+	 * @return minutes since the epoch, NO_TIME if the time is missing or not in the expected format
+	 */
+	public static long toMinute(String time) {
+		if (time == null) {
+			return NO_TIME;
+		}
+		try {
+			return ZonedDateTime.parse(time, TIME_FORMATTER).toEpochSecond() / 60;
+		} catch (DateTimeParseException e) {
+			return NO_TIME;
+		}
+	}
+
 	/**
 	 * This method returns the string representation of a flight.
 	 * 
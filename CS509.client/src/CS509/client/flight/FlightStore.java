@@ -0,0 +1,365 @@
+/**
+ *
+ */
+package CS509.client.flight;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import CS509.client.util.Money;
+
+/**
+ * This class stores a large number of flights column by column in primitive arrays instead of
+ * one Flight object per flight. Flight numbers, airport codes and airplane models are interned
+ * to int ids, times are kept as int epoch minutes and prices as int cents, so a flight costs a
+ * few dozen bytes and its number instead of a Flight object and its eleven Strings.
+ *
+ * Flights are read through a FlightView, a small handle on one row of the store. A full Flight
+ * can be rebuilt from a row when an existing API needs one.
+ *
+ * Like Flights the store is not synchronized; fill it from one thread before sharing it.
+ *
+ * @author Team C
+ *
+ */
+public class FlightStore implements Iterable<FlightView> {
+
+	private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy MMM dd HH:mm", Locale.US);
+
+	private final Map<String, Integer> mNumberIds = new HashMap<String, Integer>();
+	private String[] mNumbers = new String[64];
+	private final Map<String, Integer> mAirportIds = new HashMap<String, Integer>();
+	private String[] mAirports = new String[64];
+	private final Map<String, Integer> mModelIds = new HashMap<String, Integer>();
+	private String[] mModels = new String[16];
+
+	private int mSize;
+	private int[] mNumber;
+	private int[] mAirplane;
+	private int[] mFlightTime;
+	private int[] mDepartAirport;
+	private int[] mDepartMinute;
+	private int[] mArriveAirport;
+	private int[] mArriveMinute;
+	private int[] mFirstclassCents;
+	private int[] mSeatsFirstclass;
+	private int[] mCoachCents;
+	private int[] mSeatsCoach;
+
+	/**
+	 * Default constructor
+	 */
+	public FlightStore() {
+		this(1024);
+	}
+
+	/**
+	 * Initializing constructor
+	 *
+	 * @param capacity number of flights the store holds before its columns grow
+	 */
+	public FlightStore(int capacity) {
+		allocate(Math.max(capacity, 16));
+	}
+
+	/**
+	 * Builds a store holding the given flights
+	 *
+	 * @param flights flights to store
+	 * @return the store
+	 */
+	public static FlightStore of(Iterable<Flight> flights) {
+		FlightStore store = new FlightStore(flights instanceof Flights ? ((Flights) flights).size() : 1024);
+		store.addAll(flights);
+		return store;
+	}
+
+	/**
+	 * Adds a flight to the store. The flights Flight.isValid rejects are not stored, nor flights
+	 * whose prices in cents or times in epoch minutes do not fit an int.
+	 *
+	 * @param flight the flight to add
+	 * @return true if the flight was stored
+	 */
+	public boolean add(Flight flight) {
+		if (!flight.isValid()) {
+			return false;
+		}
+		long firstclassCents = flight.getmCentsFirstclass();
+		long coachCents = flight.getmCentsCoach();
+		long departMinute = flight.getmMinuteDepart();
+		long arriveMinute = flight.getmMinuteArrival();
+		if (!fitsInt(firstclassCents) || !fitsInt(coachCents) || !fitsInt(departMinute) || !fitsInt(arriveMinute)) {
+			return false;
+		}
+
+		if (mSize == mNumber.length) {
+			allocate(mSize * 2);
+		}
+		int row = mSize++;
+		mNumber[row] = internNumber(flight.getmNumber());
+		mAirplane[row] = internModel(flight.getmAirplane());
+		mFlightTime[row] = Integer.parseInt(flight.getmFlightTime());
+		mDepartAirport[row] = internAirport(flight.getmCodeDepart());
+		mDepartMinute[row] = (int) departMinute;
+		mArriveAirport[row] = internAirport(flight.getmCodeArrival());
+		mArriveMinute[row] = (int) arriveMinute;
+		mFirstclassCents[row] = (int) firstclassCents;
+		mSeatsFirstclass[row] = flight.getmSeatsFirstclass();
+		mCoachCents[row] = (int) coachCents;
+		mSeatsCoach[row] = flight.getmSeatsCoach();
+		return true;
+	}
+
+	/**
+	 * Adds every flight to the store
+	 *
+	 * @param flights flights to add
+	 * @return true if at least one flight was stored
+	 */
+	public boolean addAll(Iterable<Flight> flights) {
+		boolean updated = false;
+		for (Flight flight : flights) {
+			updated |= add(flight);
+		}
+		return updated;
+	}
+
+	/**
+	 * @return number of flights stored
+	 */
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * @param row index of a flight, below size()
+	 * @return a view of the flight
+	 */
+	public FlightView get(int row) {
+		check(row);
+		return new FlightView(this, row);
+	}
+
+	/**
+	 * @param row index of a flight, below size()
+	 * @return a new Flight with the values of the row
+	 */
+	public Flight toFlight(int row) {
+		check(row);
+		return new Flight(
+				model(mAirplane[row]),
+				Integer.toString(mFlightTime[row]),
+				flightNumber(mNumber[row]),
+				airportCode(mDepartAirport[row]),
+				time(mDepartMinute[row]),
+				airportCode(mArriveAirport[row]),
+				time(mArriveMinute[row]),
+				Money.format(mFirstclassCents[row]),
+				mSeatsFirstclass[row],
+				Money.format(mCoachCents[row]),
+				mSeatsCoach[row]);
+	}
+
+	/**
+	 * @return every stored flight rebuilt as a Flight, in the order they were added
+	 */
+	public Flights toFlights() {
+		Flights flights = new Flights();
+		flights.ensureCapacity(mSize);
+		for (int row = 0; row < mSize; row++) {
+			flights.add(toFlight(row));
+		}
+		return flights;
+	}
+
+	/**
+	 * @param id id of a flight number in this store
+	 * @return the flight number, as the server wrote it
+	 */
+	public String flightNumber(int id) {
+		return mNumbers[id];
+	}
+
+	/**
+	 * @param code airport code
+	 * @return id of the airport in this store, -1 if no stored flight uses it
+	 */
+	public int airportId(String code) {
+		Integer id = mAirportIds.get(code);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param id id of an airport in this store
+	 * @return the airport code
+	 */
+	public String airportCode(int id) {
+		return mAirports[id];
+	}
+
+	/**
+	 * @return number of distinct airports used by the stored flights
+	 */
+	public int airportCount() {
+		return mAirportIds.size();
+	}
+
+	/**
+	 * @param id id of an airplane model in this store
+	 * @return the airplane model
+	 */
+	public String model(int id) {
+		return mModels[id];
+	}
+
+	/*
+	 * Column accessors. Each takes the row of a flight, below size(), and reads one column
+	 * without building a view: ids of flight numbers, airports and models, epoch minutes, cents and seats.
+	 */
+
+	public int number(int row) {
+		return mNumber[row];
+	}
+
+	public int airplane(int row) {
+		return mAirplane[row];
+	}
+
+	public int flightTime(int row) {
+		return mFlightTime[row];
+	}
+
+	public int departAirport(int row) {
+		return mDepartAirport[row];
+	}
+
+	public int departMinute(int row) {
+		return mDepartMinute[row];
+	}
+
+	public int arriveAirport(int row) {
+		return mArriveAirport[row];
+	}
+
+	public int arriveMinute(int row) {
+		return mArriveMinute[row];
+	}
+
+	public int firstclassCents(int row) {
+		return mFirstclassCents[row];
+	}
+
+	public int seatsFirstclass(int row) {
+		return mSeatsFirstclass[row];
+	}
+
+	public int coachCents(int row) {
+		return mCoachCents[row];
+	}
+
+	public int seatsCoach(int row) {
+		return mSeatsCoach[row];
+	}
+
+	@Override
+	public Iterator<FlightView> iterator() {
+		return new Iterator<FlightView>() {
+			private int row;
+
+			@Override
+			public boolean hasNext() {
+				return row < mSize;
+			}
+
+			@Override
+			public FlightView next() {
+				if (row >= mSize) {
+					throw new NoSuchElementException();
+				}
+				return new FlightView(FlightStore.this, row++);
+			}
+		};
+	}
+
+	private static String time(int minute) {
+		return LocalDateTime.ofEpochSecond(minute * 60L, 0, ZoneOffset.UTC).format(TIME_FORMATTER) + " GMT";
+	}
+
+	private static boolean fitsInt(long value) {
+		return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Flight numbers are mostly distinct, so unlike codes and models they are kept out of the JVM's string pool
+	 */
+	private int internNumber(String number) {
+		Integer id = mNumberIds.get(number);
+		if (id == null) {
+			id = mNumberIds.size();
+			if (id == mNumbers.length) {
+				mNumbers = Arrays.copyOf(mNumbers, id * 2);
+			}
+			mNumbers[id] = number;
+			mNumberIds.put(number, id);
+		}
+		return id;
+	}
+
+	private int internAirport(String code) {
+		Integer id = mAirportIds.get(code);
+		if (id == null) {
+			id = mAirportIds.size();
+			if (id == mAirports.length) {
+				mAirports = Arrays.copyOf(mAirports, id * 2);
+			}
+			mAirports[id] = code.intern();
+			mAirportIds.put(mAirports[id], id);
+		}
+		return id;
+	}
+
+	private int internModel(String model) {
+		Integer id = mModelIds.get(model);
+		if (id == null) {
+			id = mModelIds.size();
+			if (id == mModels.length) {
+				mModels = Arrays.copyOf(mModels, id * 2);
+			}
+			mModels[id] = model.intern();
+			mModelIds.put(mModels[id], id);
+		}
+		return id;
+	}
+
+	private void check(int row) {
+		if (row < 0 || row >= mSize) {
+			throw new IndexOutOfBoundsException("Row " + row + " of " + mSize);
+		}
+	}
+
+	private void allocate(int capacity) {
+		mNumber = grow(mNumber, capacity);
+		mAirplane = grow(mAirplane, capacity);
+		mFlightTime = grow(mFlightTime, capacity);
+		mDepartAirport = grow(mDepartAirport, capacity);
+		mDepartMinute = grow(mDepartMinute, capacity);
+		mArriveAirport = grow(mArriveAirport, capacity);
+		mArriveMinute = grow(mArriveMinute, capacity);
+		mFirstclassCents = grow(mFirstclassCents, capacity);
+		mSeatsFirstclass = grow(mSeatsFirstclass, capacity);
+		mCoachCents = grow(mCoachCents, capacity);
+		mSeatsCoach = grow(mSeatsCoach, capacity);
+	}
+
+	private static int[] grow(int[] column, int capacity) {
+		return column == null ? new int[capacity] : Arrays.copyOf(column, capacity);
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ *
+ */
+package CS509.client.flight;
+
+/**
+ * This class is a read only view of one flight in a FlightStore. It only holds the store and
+ * the row, every value is read from the store's columns when asked for. The getters have the
+ * names and types of the ones of Flight; the column accessors of FlightStore read one value of
+ * a row without a view.
+ *
+ * @author Team C
+ *
+ */
+public final class FlightView {
+
+	private final FlightStore mStore;
+	private final int mRow;
+
+	FlightView(FlightStore store, int row) {
+		mStore = store;
+		mRow = row;
+	}
+
+	/**
+	 * @return row of the flight in its store
+	 */
+	public int row() {
+		return mRow;
+	}
+
+	/**
+	 * @return the airplane model
+	 */
+	public String getmAirplane() {
+		return mStore.model(mStore.airplane(mRow));
+	}
+
+	/**
+	 * @return the flight time in minutes
+	 */
+	public String getmFlightTime() {
+		return Integer.toString(mStore.flightTime(mRow));
+	}
+
+	/**
+	 * @return the flight number
+	 */
+	public String getmNumber() {
+		return mStore.flightNumber(mStore.number(mRow));
+	}
+
+	/**
+	 * @return code of the departure airport
+	 */
+	public String getmCodeDepart() {
+		return mStore.airportCode(mStore.departAirport(mRow));
+	}
+
+	/**
+	 * @return the departure time in minutes since the epoch
+	 */
+	public long getmMinuteDepart() {
+		return mStore.departMinute(mRow);
+	}
+
+	/**
+	 * @return code of the arrival airport
+	 */
+	public String getmCodeArrival() {
+		return mStore.airportCode(mStore.arriveAirport(mRow));
+	}
+
+	/**
+	 * @return the arrival time in minutes since the epoch
+	 */
+	public long getmMinuteArrival() {
+		return mStore.arriveMinute(mRow);
+	}
+
+	/**
+	 * @return the first class price in cents
+	 */
+	public long getmCentsFirstclass() {
+		return mStore.firstclassCents(mRow);
+	}
+
+	/**
+	 * @return the first class seats already reserved
+	 */
+	public int getmSeatsFirstclass() {
+		return mStore.seatsFirstclass(mRow);
+	}
+
+	/**
+	 * @return the coach price in cents
+	 */
+	public long getmCentsCoach() {
+		return mStore.coachCents(mRow);
+	}
+
+	/**
+	 * @return the coach seats already reserved
+	 */
+	public int getmSeatsCoach() {
+		return mStore.seatsCoach(mRow);
+	}
+
+	/**
+	 * @return a new Flight with the values of this view
+	 */
+	public Flight toFlight() {
+		return mStore.toFlight(mRow);
+	}
+
+	@Override
+	public String toString() {
+		return "FlightView[" + getmNumber() + " " + getmCodeDepart() + "->" + getmCodeArrival() + "]";
+	}
+}
@@ -5,12 +5,17 @@ package CS509.client.flight;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 //----------------------
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.CharacterData;
 import org.w3c.dom.Document;
@@ -19,6 +24,8 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+import CS509.client.util.SearchEvents;
+
 /**
  * This class holds values pertaining to an aggregate flights. The aggregate is implemented
  * as an ArrayList. Flights can be populated from XML string returned from CS509 server.
@@ -31,6 +38,7 @@ import org.xml.sax.SAXException;
 public class Flights extends ArrayList <Flight> {
 
 	private static final long serialVersionUID = 1L;
+	private static final XMLInputFactory xmlInputFactory = newInputFactory();
 	
 	/**
 	 * Add all the flights contained in the XML string to the aggregate of Flights
@@ -67,6 +75,8 @@ public class Flights extends ArrayList <Flight> {
 	 * @return ArrayList of Flight of all the flights successfully added
 	 */
 	public static Flights addAllf (String xmlFlights) throws NullPointerException {
+		SearchEvents.ParseFlights event = new SearchEvents.ParseFlights();
+		event.begin();
 		Flights flights = new Flights();
 		
 		
@@ -82,9 +92,159 @@ public class Flights extends ArrayList <Flight> {
 			flights.add(flight);
 		}
 		
+		event.finish("dom", xmlFlights.length(), flights.size());
 		return flights;
 	}
 	
+	/**
+	 * Add all the flights contained in an XML stream to the aggregate of Flights
+	 * 
+	 * Reads the stream with a StAX pull parser and builds each Flight as soon as its element
+	 * ends, without building a DOM tree or an intermediate String first
+	 * 
+	 * @param xmlFlights is an XML stream identifying zero or more flights
+	 * @return ArrayList of Flight of all the flights in the stream
+	 * @throws IOException if the stream is cut short or is not a well formed list of flights
+	 */
+	public static Flights addAllf (InputStream xmlFlights) throws IOException {
+		return addAllf(xmlFlights, null);
+	}
+	
+	/**
+	 * Add all the flights contained in an XML stream to the aggregate of Flights
+	 * 
+	 * Reads the stream with a StAX pull parser and builds each Flight as soon as its element
+	 * ends, without building a DOM tree or an intermediate String first
+	 * 
+	 * A list is only returned when the whole document was read, so a connection reset in the middle
+	 * of a response is never mistaken for a shorter list
+	 * 
+	 * @param xmlFlights is an XML stream identifying zero or more flights
+	 * @param encoding charset declared for the stream, or null to let the parser detect it from the XML
+	 * @return ArrayList of Flight of all the flights in the stream
+	 * @throws IOException if the stream is cut short or is not a well formed list of flights
+	 */
+	public static Flights addAllf (InputStream xmlFlights, String encoding) throws IOException {
+		SearchEvents.ParseFlights event = new SearchEvents.ParseFlights();
+		event.begin();
+		Flights flights = new Flights();
+		XMLStreamReader reader = null;
+		
+		try {
+			reader = encoding == null ? xmlInputFactory.createXMLStreamReader(xmlFlights)
+					: xmlInputFactory.createXMLStreamReader(xmlFlights, encoding);
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("Flight")) {
+					flights.add(readFlight(reader));
+				}
+			}
+		}
+		catch (XMLStreamException | NumberFormatException e) {
+			throw new IOException("Flight list could not be read after " + flights.size() + " flights", e);
+		}
+		finally {
+			close(reader);
+			event.finish("stax", -1, flights.size());
+		}
+		return flights;
+	}
+	
+	/**
+	 * Creates a Flight object from the stream positioned on a Flight start element
+	 * 
+	 * @param reader is positioned on the start element of a Flight
+	 * @return Flight object created from the element, the reader is left on its end element
+	 * @throws XMLStreamException
+	 * 
+	 * @preconditions the Flight element is of format specified by CS509 server API
+	 */
+	static private Flight readFlight (XMLStreamReader reader) throws XMLStreamException {
+		String airplane = reader.getAttributeValue(null, "Airplane");
+		String flightTime = reader.getAttributeValue(null, "FlightTime");
+		String number = reader.getAttributeValue(null, "Number");
+		String codeDepart = null;
+		String timeDepart = null;
+		String codeArrival = null;
+		String timeArrival = null;
+		String priceFirstclass = null;
+		int seatsFirstclass = 0;
+		String priceCoach = null;
+		int seatsCoach = 0;
+		
+		// Departure and Arrival both have Code and Time children, remember which one we are in
+		boolean inDeparture = false;
+		
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("Flight")) {
+				break;
+			}
+			if (event != XMLStreamConstants.START_ELEMENT) {
+				continue;
+			}
+			switch (reader.getLocalName()) {
+			case "Departure":
+				inDeparture = true;
+				break;
+			case "Arrival":
+				inDeparture = false;
+				break;
+			case "Code":
+				if (inDeparture) {
+					codeDepart = reader.getElementText();
+				} else {
+					codeArrival = reader.getElementText();
+				}
+				break;
+			case "Time":
+				if (inDeparture) {
+					timeDepart = reader.getElementText();
+				} else {
+					timeArrival = reader.getElementText();
+				}
+				break;
+			case "FirstClass":
+				priceFirstclass = reader.getAttributeValue(null, "Price");
+				seatsFirstclass = Integer.parseInt(reader.getElementText().trim());
+				break;
+			case "Coach":
+				priceCoach = reader.getAttributeValue(null, "Price");
+				seatsCoach = Integer.parseInt(reader.getElementText().trim());
+				break;
+			default:
+				break;
+			}
+		}
+		
+		return new Flight (airplane, flightTime, number, codeDepart, timeDepart, 
+				codeArrival, timeArrival, priceFirstclass, seatsFirstclass, priceCoach, seatsCoach);
+	}
+	
+	/**
+	 * Creates the StAX factory shared by all parses. External entities and DTDs are not needed
+	 * for the server XML and are turned off.
+	 * 
+	 * @return configured XMLInputFactory
+	 */
+	private static XMLInputFactory newInputFactory () {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+	
+	private static void close (XMLStreamReader reader) {
+		if (reader != null) {
+			try {
+				reader.close();
+			}
+			catch (XMLStreamException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
 	/**
 	 * Builds a DOM tree form an XML string
 	 * 
@@ -0,0 +1,88 @@
+package CS509.client.util;
+
+/**
+ * Fixed point money amounts.
+ *
+ * An amount is a long number of cents, so prices are summed and compared as plain longs without
+ * floating point rounding, boxing or parsing. This class reads and writes the server price format,
+ * a dollar sign, the dollars, a point and two digits of cents, e.g. $114.67. Thousands separators,
+ * e.g. $1,114.67, are accepted when reading.
+ *
+ * @author Team C
+ */
+public final class Money {
+
+	/**
+	 * Amount of a price that could not be read
+	 */
+	public static final long NO_PRICE = Long.MIN_VALUE;
+
+	private Money() {
+	}
+
+	/**
+	 * Reads a price in the server format in a single pass
+	 *
+	 * @param price the price, e.g. $1,114.67
+	 * @return the price in cents, NO_PRICE if it is missing or not in the server format
+	 */
+	public static long parse(String price) {
+		if (price == null || price.length() < 4 || price.charAt(0) != '$' || price.charAt(price.length() - 3) != '.') {
+			return NO_PRICE;
+		}
+		int point = price.length() - 3;
+		long cents = 0;
+		// a separator must be followed by groups of three digits up to the point
+		for (int i = 1; i < price.length(); i++) {
+			char c = price.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (cents > (Long.MAX_VALUE - 9) / 10) {
+					return NO_PRICE;
+				}
+				cents = cents * 10 + (c - '0');
+			} else if (c == '.' ? i != point : c != ',' || i == 1 || (point - i) % 4 != 0) {
+				return NO_PRICE;
+			}
+		}
+		return cents;
+	}
+
+	/**
+	 * Writes an amount in the server format, without thousands separators
+	 *
+	 * @param cents the amount in cents
+	 * @return the amount, e.g. $114.67 or -$3.05
+	 */
+	public static String format(long cents) {
+		StringBuilder text = new StringBuilder(16);
+		if (cents < 0) {
+			text.append('-');
+		}
+		long abs = Math.abs(cents);
+		long rest = abs % 100;
+		return text.append('$').append(abs / 100).append('.').append(rest < 10 ? "0" : "").append(rest).toString();
+	}
+
+	/**
+	 * Adds two amounts
+	 *
+	 * @param a an amount in cents
+	 * @param b an amount in cents
+	 * @return the sum in cents
+	 * @throws ArithmeticException if the sum overflows
+	 */
+	public static long add(long a, long b) {
+		return Math.addExact(a, b);
+	}
+
+	/**
+	 * Compares two amounts, for use in comparators
+	 *
+	 * @param a an amount in cents
+	 * @param b an amount in cents
+	 * @return negative, zero or positive as a is less than, equal to or greater than b
+	 */
+	public static int compare(long a, long b) {
+		return Long.compare(a, b);
+	}
+}
@@ -0,0 +1,276 @@
+package CS509.client.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for every phase of a flight search: fetching a flight list,
+ * parsing its XML, loading the connection graph, the 0/1/2 stop joins, building and ranking the
+ * trips, and printing them. A recording then shows where the time of a slow search went.
+ *
+ * Record with -XX:StartFlightRecording:filename=search.jfr and open the file in JDK Mission Control,
+ * or print the events with jfr print --categories CS509 search.jfr. When no recording is running the
+ * events are disabled, each one costs a begin and a check, and its fields are never filled in.
+ *
+ * Every event is used the same way: create it, call begin, do the work, then call its finish method,
+ * which ends the event and commits it with its fields only if a recording wants it.
+ *
+ * @author Team C
+ */
+public final class SearchEvents {
+
+	private SearchEvents() {
+	}
+
+	/**
+	 * A flight list asked of ServerInterface.getFlights
+	 */
+	@Name("CS509.FetchFlights")
+	@Label("Fetch Flights")
+	@Category({"CS509", "Server"})
+	@Description("A list of flights departing from or arriving at an airport on a day")
+	@StackTrace(false)
+	public static final class FetchFlights extends Event {
+		/** The list came from the preloaded schedule or the snapshot */
+		public static final String SCHEDULE = "schedule";
+		/** The list came from the flight cache */
+		public static final String CACHE = "cache";
+		/** The list was requested from the server */
+		public static final String SERVER = "server";
+
+		@Label("Airport")
+		String airport;
+
+		@Label("Day")
+		String day;
+
+		@Label("Departing")
+		@Description("True for the departing flights, false for the arriving flights")
+		boolean departing;
+
+		@Label("Source")
+		@Description("Where the list came from: schedule, cache or server")
+		String source;
+
+		@Label("Flights")
+		int flights;
+
+		public void finish(String airport, String day, boolean departing, String source, int flights) {
+			end();
+			if (shouldCommit()) {
+				this.airport = airport;
+				this.day = day;
+				this.departing = departing;
+				this.source = source;
+				this.flights = flights;
+				commit();
+			}
+		}
+	}
+
+	/**
+	 * Flights read from an XML document by Flights.addAllf
+	 */
+	@Name("CS509.ParseFlights")
+	@Label("Parse Flights")
+	@Category({"CS509", "XML"})
+	@StackTrace(false)
+	public static final class ParseFlights extends Event {
+		@Label("Parser")
+		@Description("dom for a String, stax for a stream")
+		String parser;
+
+		@Label("Characters")
+		@Description("Length of the XML String, -1 when read from a stream")
+		long characters;
+
+		@Label("Flights")
+		int flights;
+
+		public void finish(String parser, long characters, int flights) {
+			end();
+			if (shouldCommit()) {
+				this.parser = parser;
+				this.characters = characters;
+				this.flights = flights;
+				commit();
+			}
+		}
+	}
+
+	/**
+	 * Every flight needed by the searches between two airports loaded into a ConnectionGraph
+	 */
+	@Name("CS509.LoadGraph")
+	@Label("Load Connection Graph")
+	@Category({"CS509", "Search"})
+	@StackTrace(false)
+	public static final class LoadGraph extends Event {
+		@Label("Departure")
+		String departure;
+
+		@Label("Arrival")
+		String arrival;
+
+		@Label("Date")
+		String date;
+
+		@Label("Stops")
+		@Description("Intermediate airports whose departing flights were fetched")
+		int stops;
+
+		@Label("Flights")
+		@Description("Flights loaded, counting a flight once for every list it was in")
+		int flights;
+
+		public void finish(String departure, String arrival, String date, int stops, int flights) {
+			end();
+			if (shouldCommit()) {
+				this.departure = departure;
+				this.arrival = arrival;
+				this.date = date;
+				this.stops = stops;
+				this.flights = flights;
+				commit();
+			}
+		}
+	}
+
+	/**
+	 * One join of flights into itineraries, by FlightSearch, ConnectionGraph or ConnectionScan
+	 */
+	@Name("CS509.Search")
+	@Label("Search")
+	@Category({"CS509", "Search"})
+	@StackTrace(false)
+	public static final class Search extends Event {
+		@Label("Method")
+		String method;
+
+		@Label("Departure")
+		String departure;
+
+		@Label("Arrival")
+		String arrival;
+
+		@Label("Date")
+		String date;
+
+		@Label("Stops")
+		@Description("Number of stops searched for, the most stops for a search with up to maxStops")
+		int stops;
+
+		@Label("Candidates")
+		@Description("Flights the search could join")
+		int candidates;
+
+		@Label("Results")
+		@Description("Itineraries found")
+		int results;
+
+		public void finish(String method, String departure, String arrival, String date, int stops, int candidates, int results) {
+			end();
+			if (shouldCommit()) {
+				this.method = method;
+				this.departure = departure;
+				this.arrival = arrival;
+				this.date = date;
+				this.stops = stops;
+				this.candidates = candidates;
+				this.results = results;
+				commit();
+			}
+		}
+	}
+
+	/**
+	 * Trips built from itineraries by Trips.addAll or TripRanking.offerAll
+	 */
+	@Name("CS509.BuildTrips")
+	@Label("Build Trips")
+	@Category({"CS509", "Trips"})
+	@StackTrace(false)
+	public static final class BuildTrips extends Event {
+		@Label("Method")
+		String method;
+
+		@Label("Candidates")
+		@Description("Itineraries offered")
+		int candidates;
+
+		@Label("Trips")
+		@Description("Valid trips built")
+		int trips;
+
+		public void finish(String method, int candidates, int trips) {
+			end();
+			if (shouldCommit()) {
+				this.method = method;
+				this.candidates = candidates;
+				this.trips = trips;
+				commit();
+			}
+		}
+	}
+
+	/**
+	 * Trips put in a sort order by TripRanking.ranked
+	 */
+	@Name("CS509.SortTrips")
+	@Label("Sort Trips")
+	@Category({"CS509", "Trips"})
+	@StackTrace(false)
+	public static final class SortTrips extends Event {
+		@Label("Order")
+		String order;
+
+		@Label("Trips")
+		int trips;
+
+		public void finish(String order, int trips) {
+			end();
+			if (shouldCommit()) {
+				this.order = order;
+				this.trips = trips;
+				commit();
+			}
+		}
+	}
+
+	/**
+	 * Trips printed to the console by Trips.displayAll or Trips.displayPage
+	 */
+	@Name("CS509.DisplayTrips")
+	@Label("Display Trips")
+	@Category({"CS509", "Trips"})
+	@StackTrace(false)
+	public static final class DisplayTrips extends Event {
+		@Label("Seat Type")
+		String seatType;
+
+		@Label("First")
+		int first;
+
+		@Label("Shown")
+		int shown;
+
+		@Label("Trips")
+		@Description("Trips in the list, shown or not")
+		int trips;
+
+		public void finish(String seatType, int first, int shown, int trips) {
+			end();
+			if (shouldCommit()) {
+				this.seatType = seatType;
+				this.first = first;
+				this.shown = shown;
+				this.trips = trips;
+				commit();
+			}
+		}
+	}
+}
@@ -12,6 +12,10 @@ public class Sp {
 		 * Constant values used for Database Access
 		 */
 		public static final String TICKET_AGENCY = "TeamC";
+		/**
+		 * Constant value used for the base URL of the reservation system, unless the cs509.server system property is set
+		 */
+		public static final String SERVER_URL = "http://cs509.cs.wpi.edu:8181/CS509.server/ReservationSystem";
 		/**
 		 * Constant value used for Minimum Layover Time Criteria
 		 */	
@@ -24,6 +28,54 @@ public class Sp {
 		 * Constant value used for Maximum Total Layover Time Criteria
 		 */	
 		public static final long MAX_TOTAL_LAYOVER = 360;
+		/**
+		 * Constant value used for Maximum number of stops searched by the Connection Scan search
+		 */
+		public static final int MAX_STOPS = 2;
+		/**
+		 * Constant value used for the time in milliseconds a cached flight list stays valid
+		 */
+		public static final long FLIGHT_CACHE_TTL = 5 * 60 * 1000;
+		/**
+		 * Constant value used for the maximum number of flight lists held by the flight cache
+		 */
+		public static final int FLIGHT_CACHE_SIZE = 512;
+		/**
+		 * Constant value used for the maximum number of flight list requests sent to the server at the same time
+		 */
+		public static final int FETCH_CONCURRENCY = 8;
+		/**
+		 * Constant value used for the time in milliseconds a flight search may take before it is cancelled
+		 */
+		public static final long SEARCH_DEADLINE = 60 * 1000;
+		/**
+		 * Constant value used for the time in milliseconds allowed to connect to the server
+		 */
+		public static final long CONNECT_TIMEOUT = 10 * 1000;
+		/**
+		 * Constant value used for the time in milliseconds allowed for the server to answer a request
+		 */
+		public static final long READ_TIMEOUT = 30 * 1000;
+		/**
+		 * Constant value used for the time in milliseconds between two prints of the server metrics
+		 */
+		public static final long METRICS_DUMP_PERIOD = 30 * 1000;
+		/**
+		 * Constant value used for the file the airports, airplanes and flight lists are saved to on exit
+		 */
+		public static final String SNAPSHOT_FILE = "cs509.snapshot";
+		/**
+		 * Constant value used for the age in milliseconds after which a saved snapshot is not used at startup
+		 */
+		public static final long SNAPSHOT_MAX_AGE = 24 * 60 * 60 * 1000;
+		/**
+		 * Constant value used for the number of best trips kept for each sort order of a search
+		 */
+		public static final int RANKING_SIZE = 100;
+		/**
+		 * Constant value used for the number of trips shown on one page
+		 */
+		public static final int PAGE_SIZE = 10;
 		/**
 		 * Constant value used for input Date range validation
 		 */
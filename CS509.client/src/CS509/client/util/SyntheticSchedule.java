@@ -0,0 +1,212 @@
+package CS509.client.util;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import CS509.client.airplane.Airplane;
+import CS509.client.airplane.Airplanes;
+import CS509.client.flight.Flight;
+import CS509.client.flight.Flights;
+
+/**
+ * Deterministic synthetic schedule used to exercise the search without the CS509 server.
+ *
+ * The schedule covers N airports (taken from the airports in timezone.csv) with M departing
+ * flights per airport per day. The same airports, flightsPerDay and seed always give the same
+ * flights, so results and timings can be compared between runs.
+ *
+ * The flights are also split into the lists the server answers, the flights departing from or
+ * arriving at each airport on each GMT day, so the schedule can stand in for the server.
+ *
+ * @author Team C
+ */
+public class SyntheticSchedule {
+
+	/**
+	 * Airport codes with time zone data in timezone.csv
+	 */
+	public static final String[] CODES = {
+			"ATL", "ANC", "AUS", "BWI", "BOS", "CLT", "MDW", "ORD", "CVG", "CLE", "CMH", "DFW", "DEN",
+			"DTW", "FLL", "RSW", "BDL", "HNL", "IAH", "HOU", "IND", "MCI", "LAS", "LAX", "MEM", "MIA",
+			"MSP", "BNA", "MSY", "JFK", "LGA", "EWR", "OAK", "ONT", "MCO", "PHL", "PHX", "PIT", "PDX",
+			"RDU", "SMF", "SLC", "SAT", "SAN", "SFO", "SJC", "SNA", "SEA", "STL", "TPA", "IAD", "DCA"};
+
+	private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy MMM dd HH:mm", Locale.US);
+	private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyy_MM_dd");
+	private static final LocalDateTime FIRST_DAY = LocalDateTime.of(2023, 5, 6, 0, 0);
+
+	private final Airplanes airplanes = new Airplanes();
+	private final Flights flights = new Flights();
+	private final Map<String, Flights> lists = new HashMap<String, Flights>();
+	private final int airports;
+	private final int days;
+
+	/**
+	 * Generates the schedule
+	 *
+	 * @param airports number of airports, at most CODES.length
+	 * @param flightsPerDay number of flights departing each airport every day
+	 * @param days number of days, starting 2023 May 06
+	 * @param seed seed of the random generator
+	 */
+	public SyntheticSchedule(int airports, int flightsPerDay, int days, long seed) {
+		if (airports < 2 || airports > CODES.length) {
+			throw new IllegalArgumentException("Airports must be between 2 and " + CODES.length);
+		}
+		this.airports = airports;
+		this.days = days;
+
+		airplanes.add(new Airplane("Airbus", "A320", 12, 138));
+		airplanes.add(new Airplane("Boeing", "737", 16, 126));
+		airplanes.add(new Airplane("Boeing", "767", 24, 190));
+		airplanes.add(new Airplane("Boeing", "777", 40, 260));
+
+		Random random = new Random(seed);
+		int number = 1000;
+		for (int day = 0; day < days; day++) {
+			for (int from = 0; from < airports; from++) {
+				for (int k = 0; k < flightsPerDay; k++) {
+					int to = random.nextInt(airports - 1);
+					if (to >= from) {
+						to++;
+					}
+					Airplane airplane = airplanes.get(random.nextInt(airplanes.size()));
+					int flightTime = 45 + random.nextInt(360);
+					LocalDateTime depart = FIRST_DAY.plusDays(day).plusMinutes(random.nextInt(24 * 60));
+					LocalDateTime arrive = depart.plusMinutes(flightTime);
+					int coachPrice = 5000 + random.nextInt(45000);
+
+					flights.add(new Flight(
+							airplane.model(),
+							Integer.toString(flightTime),
+							Integer.toString(number++),
+							CODES[from],
+							depart.format(TIME_FORMATTER) + " GMT",
+							CODES[to],
+							arrive.format(TIME_FORMATTER) + " GMT",
+							Money.format(coachPrice * 4),
+							random.nextInt(airplane.firstClassSeats() + 1),
+							Money.format(coachPrice),
+							random.nextInt(airplane.coachSeats() + 1)));
+				}
+			}
+		}
+
+		for (int day = 0; day < days; day++) {
+			for (int code = 0; code < airports; code++) {
+				lists.put(key(CODES[code], day(day), true), new Flights());
+				lists.put(key(CODES[code], day(day), false), new Flights());
+			}
+		}
+		for (Flight f : flights) {
+			// flights landing after the last day are only listed by departure
+			lists.get(key(f.getmCodeDepart(), gmtDay(f.getmMinuteDepart()), true)).add(f);
+			Flights arriving = lists.get(key(f.getmCodeArrival(), gmtDay(f.getmMinuteArrival()), false));
+			if (arriving != null) {
+				arriving.add(f);
+			}
+		}
+	}
+
+	/**
+	 * @return every generated flight
+	 */
+	public Flights flights() {
+		return flights;
+	}
+
+	/**
+	 * @return the airplane models flown by the generated flights
+	 */
+	public Airplanes airplanes() {
+		return airplanes;
+	}
+
+	/**
+	 * @return number of airports in the schedule
+	 */
+	public int airportCount() {
+		return airports;
+	}
+
+	/**
+	 * @param index index of an airport, below the number of airports in the schedule
+	 * @return the 3 letter code of the airport
+	 */
+	public String code(int index) {
+		if (index < 0 || index >= airports) {
+			throw new IndexOutOfBoundsException("Airport index " + index);
+		}
+		return CODES[index];
+	}
+
+	/**
+	 * @param index index of a day, below the number of days in the schedule
+	 * @return the day in yyyy_MM_dd format, the first day is 2023_05_06
+	 */
+	public String day(int index) {
+		if (index < 0 || index >= days) {
+			throw new IndexOutOfBoundsException("Day index " + index);
+		}
+		return FIRST_DAY.plusDays(index).format(DAY_FORMATTER);
+	}
+
+	/**
+	 * Looks up the flights the server lists for an airport and day
+	 *
+	 * @param airportCode code of the departure or arrival airport
+	 * @param day GMT day of the departure or arrival in yyyy_MM_dd format
+	 * @param isByDeparture true for departing flights, false for arriving flights
+	 * @return the flights held by the schedule, not a copy, empty for an airport or day outside the schedule
+	 */
+	public Flights list(String airportCode, String day, boolean isByDeparture) {
+		Flights list = lists.get(key(airportCode, day, isByDeparture));
+		return list != null ? list : new Flights();
+	}
+
+	/**
+	 * @return every flight list of the schedule, keyed by airport|yyyy_MM_dd|D for departing or A for arriving
+	 */
+	public Map<String, Flights> lists() {
+		return lists;
+	}
+
+	private static String key(String airportCode, String day, boolean isByDeparture) {
+		return airportCode + '|' + day + '|' + (isByDeparture ? 'D' : 'A');
+	}
+
+	private static String gmtDay(long gmtMinute) {
+		return LocalDateTime.of(1970, 1, 1, 0, 0).plusMinutes(gmtMinute).format(DAY_FORMATTER);
+	}
+
+	/**
+	 * Writes flights in the XML format returned by the CS509 server
+	 *
+	 * @param flights flights to write
+	 * @return XML string listing the flights
+	 */
+	public static String toXml(Flights flights) {
+		StringBuilder xml = new StringBuilder(flights.size() * 360 + 32);
+		xml.append("<Flights>");
+		for (Flight f : flights) {
+			xml.append("<Flight Airplane=\"").append(f.getmAirplane())
+					.append("\" FlightTime=\"").append(f.getmFlightTime())
+					.append("\" Number=\"").append(f.getmNumber()).append("\">")
+					.append("<Departure><Code>").append(f.getmCodeDepart()).append("</Code>")
+					.append("<Time>").append(f.getmTimeDepart()).append("</Time></Departure>")
+					.append("<Arrival><Code>").append(f.getmCodeArrival()).append("</Code>")
+					.append("<Time>").append(f.getmTimeArrival()).append("</Time></Arrival>")
+					.append("<Seating><FirstClass Price=\"").append(f.getmPriceFirstclass()).append("\">")
+					.append(f.getmSeatsFirstclass()).append("</FirstClass>")
+					.append("<Coach Price=\"").append(f.getmPriceCoach()).append("\">")
+					.append(f.getmSeatsCoach()).append("</Coach></Seating>")
+					.append("</Flight>");
+		}
+		xml.append("</Flights>");
+		return xml.toString();
+	}
+}